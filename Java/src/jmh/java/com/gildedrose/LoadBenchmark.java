@@ -0,0 +1,76 @@
+package com.gildedrose;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.io.IOException;
+import java.io.OutputStream;
+import java.nio.charset.Charset;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Cost of reading a one-day text dump back into an inventory with
+ * {@link InventoryLoader}, on one thread and across the common pool. Divide
+ * the file size printed at setup by the time per operation for MB/s.
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+@State(Scope.Benchmark)
+public class LoadBenchmark {
+
+    @Param({"1000000", "10000000"})
+    public int size;
+
+    @Param({"ALL_NORMAL", "FIXTURE"})
+    public Stock stock;
+
+    private Path file;
+
+    private InventoryLoader sequential;
+
+    private InventoryLoader parallel;
+
+    @Setup(Level.Trial)
+    public void writeDump() throws IOException {
+        file = Files.createTempFile("inventory", ".txt");
+        try (OutputStream out = Files.newOutputStream(file)) {
+            new ReportWriter(out).dayHeader(0).items(new GildedRose(stock.items(size))).flush();
+        }
+        System.out.println("dump size: " + Files.size(file) + " bytes");
+
+        sequential = new InventoryLoader();
+        parallel = new InventoryLoader(NameTable.SHARED, RuleBook.STANDARD,
+                Charset.defaultCharset(), Parallelism.common());
+    }
+
+    @TearDown(Level.Trial)
+    public void deleteDump() throws IOException {
+        Files.delete(file);
+    }
+
+    @Benchmark
+    public Inventory sequential() throws IOException {
+        return sequential.read(file);
+    }
+
+    @Benchmark
+    public Inventory parallel() throws IOException {
+        return parallel.read(file);
+    }
+}
@@ -0,0 +1,68 @@
+package com.gildedrose;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Group;
+import org.openjdk.jmh.annotations.GroupThreads;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Point-of-sale throughput on a {@link ConcurrentInventory}: each operation
+ * restocks an item and sells it again. Run with {@code -t 1}, {@code -t 2},
+ * and so on to see how sales scale with threads; the {@code nightly} group
+ * adds a thread rolling the stock over continuously alongside them.
+ */
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+@State(Scope.Benchmark)
+public class PointOfSaleBenchmark {
+    private static final int SIZE = 1_000_000;
+
+    private ConcurrentInventory inventory;
+
+    private List<Item> items;
+
+    @Setup(Level.Trial)
+    public void stock() {
+        inventory = new ConcurrentInventory();
+        items = Stock.ALL_NORMAL.items(1024);
+        List<Item> stock = Stock.ALL_NORMAL.items(SIZE);
+        for (Item item : stock) {
+            inventory.add(item);
+        }
+    }
+
+    @Benchmark
+    public boolean sale() {
+        Item item = items.get((int) Thread.currentThread().getId() & 1023);
+        return inventory.remove(inventory.add(item));
+    }
+
+    @Benchmark
+    @Group("nightly")
+    @GroupThreads(3)
+    public boolean saleDuringRollover() {
+        return sale();
+    }
+
+    @Benchmark
+    @Group("nightly")
+    @GroupThreads(1)
+    public void rollover() {
+        inventory.updateQuality(Parallelism.SEQUENTIAL);
+    }
+}
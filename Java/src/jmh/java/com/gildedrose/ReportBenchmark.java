@@ -0,0 +1,73 @@
+package com.gildedrose;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.io.IOException;
+import java.io.OutputStream;
+import java.io.PrintStream;
+import java.nio.channels.Channels;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Cost of rendering the text report, written to a sink that discards bytes so
+ * only formatting and stream overhead are measured. {@code printItems} renders
+ * a whole synthetic shop one {@code println} per item, {@code reportWriter}
+ * renders the same rows through {@link ReportWriter}.
+ */
+@BenchmarkMode({Mode.Throughput, Mode.SampleTime})
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+@State(Scope.Benchmark)
+public class ReportBenchmark {
+
+    @Param({"2", "30"})
+    public int days;
+
+    @Param({"1000", "1000000"})
+    public int size;
+
+    private PrintStream out;
+
+    private String[] args;
+
+    private GildedRose shop;
+
+    private ReportWriter report;
+
+    @Setup
+    public void createSink() {
+        out = new PrintStream(OutputStream.nullOutputStream());
+        args = new String[]{Integer.toString(days - 1)};
+        shop = new GildedRose(Stock.FIXTURE.items(size));
+        report = new ReportWriter(Channels.newChannel(OutputStream.nullOutputStream()));
+    }
+
+    @Benchmark
+    public void texttestFixture() {
+        TexttestFixture.print(out, args);
+    }
+
+    @Benchmark
+    public void printItems() {
+        for (Item item : shop.getItems()) {
+            out.println(item);
+        }
+    }
+
+    @Benchmark
+    public void reportWriter() throws IOException {
+        report.items(shop).flush();
+    }
+}
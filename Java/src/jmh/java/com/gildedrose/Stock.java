@@ -0,0 +1,48 @@
+package com.gildedrose;
+
+import java.util.AbstractList;
+import java.util.List;
+import java.util.SplittableRandom;
+
+/**
+ * Synthetic inventories for the benchmarks. Items are generated on access so
+ * that building a hundred-million row shop does not first need a hundred
+ * million {@link Item} objects on the heap.
+ */
+public enum Stock {
+    ALL_NORMAL("+5 Dexterity Vest", "Elixir of the Mongoose"),
+
+    SULFURAS_HEAVY(GildedRose.SULFURAS, GildedRose.SULFURAS, GildedRose.SULFURAS, GildedRose.SULFURAS,
+            GildedRose.SULFURAS, GildedRose.SULFURAS, GildedRose.SULFURAS, "+5 Dexterity Vest"),
+
+    BACKSTAGE_HEAVY(GildedRose.BACKSTAGE_PASSES, GildedRose.BACKSTAGE_PASSES, GildedRose.BACKSTAGE_PASSES,
+            GildedRose.BACKSTAGE_PASSES, GildedRose.BACKSTAGE_PASSES, GildedRose.BACKSTAGE_PASSES,
+            GildedRose.BACKSTAGE_PASSES, GildedRose.AGED_BRIE),
+
+    FIXTURE("+5 Dexterity Vest", GildedRose.AGED_BRIE, "Elixir of the Mongoose", GildedRose.SULFURAS,
+            GildedRose.SULFURAS, GildedRose.BACKSTAGE_PASSES, GildedRose.BACKSTAGE_PASSES,
+            GildedRose.BACKSTAGE_PASSES, GildedRose.CONJURED);
+
+    private final String[] names;
+
+    Stock(String... names) {
+        this.names = names;
+    }
+
+    List<Item> items(int size) {
+        return new AbstractList<>() {
+            @Override
+            public Item get(int index) {
+                SplittableRandom random = new SplittableRandom(index);
+                String name = names[random.nextInt(names.length)];
+                int quality = name.equals(GildedRose.SULFURAS) ? 80 : random.nextInt(51);
+                return new Item(name, random.nextInt(-5, 30), quality);
+            }
+
+            @Override
+            public int size() {
+                return size;
+            }
+        };
+    }
+}
@@ -0,0 +1,84 @@
+package com.gildedrose;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Daily rollover cost across inventory sizes and category mixes. The shop is
+ * rebuilt from the same stock, outside the measurement, once it has aged
+ * {@code days} days, so every invocation measures one of the first
+ * {@code days} days of the stock rather than a steady state where most items
+ * have settled at quality 0 or 50 and are skipped.
+ * <p>
+ * The largest sizes need a bigger heap than the default; pass it to the
+ * forked JVMs with {@code -Djmh.jvmArgs=-Xmx12g}.
+ */
+@BenchmarkMode({Mode.Throughput, Mode.SampleTime})
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+@State(Scope.Benchmark)
+public class UpdateQualityBenchmark {
+
+    @Param({"10", "1000", "100000", "10000000", "100000000"})
+    public int size;
+
+    @Param({"ALL_NORMAL", "SULFURAS_HEAVY", "BACKSTAGE_HEAVY", "FIXTURE"})
+    public Stock stock;
+
+    @Param({"30"})
+    public int days;
+
+    private List<Item> items;
+
+    private GildedRose shop;
+
+    private int aged;
+
+    @Setup(Level.Trial)
+    public void createStock() {
+        items = stock.items(size);
+    }
+
+    @Setup(Level.Invocation)
+    public void refreshShop() {
+        if (shop == null || aged >= days) {
+            shop = new GildedRose(items);
+            aged = 0;
+        }
+    }
+
+    @Benchmark
+    public void singleDay() {
+        shop.updateQuality();
+        aged++;
+    }
+
+    @Benchmark
+    public void dayByDay() {
+        for (int day = 0; day < days; day++) {
+            shop.updateQuality();
+        }
+        aged += days;
+    }
+
+    @Benchmark
+    public void advance() {
+        shop.advance(days);
+        aged += days;
+    }
+}
@@ -0,0 +1,45 @@
+package com.gildedrose;
+
+/**
+ * The rules the shop has always had, as {@link QualityRule}s. Each carries the
+ * {@link ItemKind} tag it is stored under, and {@link RuleBook} calls the
+ * matching {@link ItemKind} functions directly rather than through these
+ * objects so the daily loop stays free of virtual calls.
+ */
+enum BuiltInRule implements QualityRule {
+    NORMAL(ItemKind.NORMAL),
+
+    AGED_BRIE(ItemKind.AGED_BRIE),
+
+    BACKSTAGE_PASSES(ItemKind.BACKSTAGE_PASSES),
+
+    SULFURAS(ItemKind.SULFURAS),
+
+    CONJURED(ItemKind.CONJURED);
+
+    final byte kind;
+
+    BuiltInRule(byte kind) {
+        this.kind = kind;
+    }
+
+    @Override
+    public int age(int sellIn, int quality) {
+        return ItemKind.age(kind, sellIn, quality);
+    }
+
+    @Override
+    public int age(int sellIn, int quality, int days) {
+        return ItemKind.age(kind, sellIn, quality, days);
+    }
+
+    @Override
+    public boolean agesSellIn() {
+        return kind != ItemKind.SULFURAS;
+    }
+
+    @Override
+    public boolean isSettled(int sellIn, int quality) {
+        return ItemKind.isSettled(kind, sellIn, quality);
+    }
+}
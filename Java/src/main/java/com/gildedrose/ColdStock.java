@@ -0,0 +1,146 @@
+package com.gildedrose;
+
+import java.util.Arrays;
+
+/**
+ * Items that can no longer change, packed into a single byte array.
+ * <p>
+ * Each row is a name id, a rule tag, the sell-in it had on day 0 and its
+ * quality, with the numbers written as variable-length integers, so a row
+ * usually takes four or five bytes. Sell-in for any later day follows from
+ * {@link RuleBook#sellInAfter}. The offset of every {@value #BLOCK}th row is
+ * kept so a row can be found by decoding at most that many before it.
+ */
+final class ColdStock {
+    static final int BLOCK = 16;
+
+    static final ColdStock EMPTY = new Builder().build();
+
+    private final byte[] data;
+
+    private final int[] offsets;
+
+    private final int size;
+
+    private ColdStock(byte[] data, int[] offsets, int size) {
+        this.data = data;
+        this.offsets = offsets;
+        this.size = size;
+    }
+
+    int size() {
+        return size;
+    }
+
+    /**
+     * Bytes held, including the block offsets.
+     */
+    long bytes() {
+        return data.length + (long) offsets.length * Integer.BYTES;
+    }
+
+    /**
+     * Decodes row {@code index} into {@code row}.
+     */
+    void read(int index, Reader row) {
+        row.position = offsets[index / BLOCK];
+        for (int skip = index % BLOCK; skip >= 0; skip--) {
+            row.next();
+        }
+    }
+
+    Reader reader() {
+        return new Reader(this);
+    }
+
+    /**
+     * Decodes rows one after another, exposing the latest one's fields.
+     */
+    static final class Reader {
+        private final byte[] data;
+
+        private int position;
+
+        int nameId;
+
+        byte kind;
+
+        int sellIn;
+
+        int quality;
+
+        private Reader(ColdStock stock) {
+            data = stock.data;
+        }
+
+        void next() {
+            nameId = readInt();
+            kind = data[position++];
+            sellIn = unzigzag(readInt());
+            quality = unzigzag(readInt());
+        }
+
+        private int readInt() {
+            int value = 0;
+            for (int shift = 0; ; shift += 7) {
+                byte b = data[position++];
+                value |= (b & 0x7F) << shift;
+                if (b >= 0) {
+                    return value;
+                }
+            }
+        }
+
+        private static int unzigzag(int value) {
+            return (value >>> 1) ^ -(value & 1);
+        }
+    }
+
+    static final class Builder {
+        private byte[] data = new byte[64];
+
+        private int[] offsets = new int[4];
+
+        private int position;
+
+        private int size;
+
+        /**
+         * Appends a row, with {@code sellIn} as of day 0.
+         */
+        Builder add(int nameId, byte kind, int sellIn, int quality) {
+            if (size % BLOCK == 0) {
+                if (size / BLOCK == offsets.length) {
+                    offsets = Arrays.copyOf(offsets, offsets.length * 2);
+                }
+                offsets[size / BLOCK] = position;
+            }
+            if (position + 16 > data.length) {
+                data = Arrays.copyOf(data, data.length * 2);
+            }
+            writeInt(nameId);
+            data[position++] = kind;
+            writeInt(zigzag(sellIn));
+            writeInt(zigzag(quality));
+            size++;
+            return this;
+        }
+
+        ColdStock build() {
+            int blocks = (size + BLOCK - 1) / BLOCK;
+            return new ColdStock(Arrays.copyOf(data, position), Arrays.copyOf(offsets, blocks), size);
+        }
+
+        private void writeInt(int value) {
+            while ((value & ~0x7F) != 0) {
+                data[position++] = (byte) (value | 0x80);
+                value >>>= 7;
+            }
+            data[position++] = (byte) value;
+        }
+
+        private static int zigzag(int value) {
+            return (value << 1) ^ (value >> 31);
+        }
+    }
+}
@@ -0,0 +1,316 @@
+package com.gildedrose;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Objects;
+
+/**
+ * Stock that point-of-sale threads add to and sell from while rollovers run.
+ * <p>
+ * Items live in a fixed number of segments, each a set of columns behind its
+ * own lock. A thread adds to the segment its id hashes to, so threads mostly
+ * keep to segments of their own and do not contend. Every item gets an id
+ * that stays valid until it is sold: the segment and slot it lives in, plus
+ * a version that changes when the slot is freed, so an id is never mistaken
+ * for a later item that reused its slot.
+ * <p>
+ * A rollover brings the segments up to the new day one at a time, each under
+ * its own lock, so writers only ever wait for the one segment being aged.
+ * Until a segment has been aged, items added to it take part in the day being
+ * rolled over; items added to a segment already aged start on the new day.
+ */
+final class ConcurrentInventory {
+    private static final int INITIAL_CAPACITY = 16;
+
+    private final NameTable names;
+
+    private final RuleBook rules;
+
+    private final Segment[] segments;
+
+    private final int segmentBits;
+
+    private final Object rolloverLock = new Object();
+
+    private volatile int day;
+
+    ConcurrentInventory() {
+        this(NameTable.SHARED, RuleBook.STANDARD, defaultSegments());
+    }
+
+    /**
+     * @param segments number of segments, a power of two; more segments allow
+     *                 more writers to work at once
+     */
+    ConcurrentInventory(NameTable names, RuleBook rules, int segments) {
+        if (segments < 1 || Integer.bitCount(segments) != 1 || segments > 1 << 16) {
+            throw new IllegalArgumentException("segments must be a power of two up to 65536: " + segments);
+        }
+        this.names = Objects.requireNonNull(names);
+        this.rules = Objects.requireNonNull(rules);
+        this.segments = new Segment[segments];
+        for (int s = 0; s < segments; s++) {
+            this.segments[s] = new Segment();
+        }
+        segmentBits = Integer.numberOfTrailingZeros(segments);
+    }
+
+    private static int defaultSegments() {
+        int threads = 4 * Runtime.getRuntime().availableProcessors();
+        return Math.min(1 << 16, Integer.highestOneBit(threads - 1) << 1);
+    }
+
+    int segmentCount() {
+        return segments.length;
+    }
+
+    /**
+     * The segment an id belongs to.
+     */
+    int segmentOf(long id) {
+        return (int) id & (segments.length - 1);
+    }
+
+    /**
+     * Days rolled over since the inventory was created.
+     */
+    int day() {
+        return day;
+    }
+
+    long add(Item item) {
+        return add(item.name, item.sellIn, item.quality);
+    }
+
+    /**
+     * Puts an item on sale and returns its id.
+     */
+    long add(String name, int sellIn, int quality) {
+        Objects.requireNonNull(name);
+        int nameId = names.intern(name);
+        byte kind = rules.kindOf(name);
+        int s = segmentFor(Thread.currentThread().getId());
+        Segment segment = segments[s];
+        synchronized (segment) {
+            int slot = segment.allocate();
+            if (slot > Integer.MAX_VALUE >>> segmentBits) {
+                segment.release(slot);
+                throw new IllegalStateException("Segment " + s + " is full");
+            }
+            segment.nameIds[slot] = nameId;
+            segment.kinds[slot] = kind;
+            segment.sellIn[slot] = sellIn;
+            segment.quality[slot] = quality;
+            return id(segment.versions[slot], slot, s);
+        }
+    }
+
+    private int segmentFor(long threadId) {
+        return (int) ((threadId * 0x9E3779B97F4A7C15L) >>> 32) & (segments.length - 1);
+    }
+
+    private long id(int version, int slot, int segment) {
+        return (long) version << 32 | slot << segmentBits | segment;
+    }
+
+    /**
+     * Takes the item off sale, answering whether it was still there.
+     */
+    boolean remove(long id) {
+        Segment segment = segments[segmentOf(id)];
+        int slot = slotOf(id);
+        synchronized (segment) {
+            if (!segment.holds(slot, (int) (id >>> 32))) {
+                return false;
+            }
+            segment.release(slot);
+            return true;
+        }
+    }
+
+    /**
+     * The item with {@code id} as it stands now, or {@code null} once sold.
+     */
+    Item get(long id) {
+        Segment segment = segments[segmentOf(id)];
+        int slot = slotOf(id);
+        synchronized (segment) {
+            if (!segment.holds(slot, (int) (id >>> 32))) {
+                return null;
+            }
+            return new Item(names.name(segment.nameIds[slot]), segment.sellIn[slot], segment.quality[slot]);
+        }
+    }
+
+    private int slotOf(long id) {
+        return (int) id >>> segmentBits;
+    }
+
+    int size() {
+        int size = 0;
+        for (Segment segment : segments) {
+            synchronized (segment) {
+                size += segment.size;
+            }
+        }
+        return size;
+    }
+
+    interface ItemVisitor {
+        void visit(long id, String name, int sellIn, int quality);
+    }
+
+    /**
+     * Visits every item, one segment at a time. Each segment is read as of a
+     * single moment, but segments are read at different moments.
+     */
+    void forEach(ItemVisitor visitor) {
+        for (int s = 0; s < segments.length; s++) {
+            Segment segment = segments[s];
+            int count;
+            int[] nameIds;
+            int[] sellIn;
+            int[] quality;
+            long[] ids;
+            synchronized (segment) {
+                count = segment.size;
+                nameIds = new int[count];
+                sellIn = new int[count];
+                quality = new int[count];
+                ids = new long[count];
+                int j = 0;
+                for (int slot = 0; slot < segment.high; slot++) {
+                    if (segment.isLive(slot)) {
+                        nameIds[j] = segment.nameIds[slot];
+                        sellIn[j] = segment.sellIn[slot];
+                        quality[j] = segment.quality[slot];
+                        ids[j] = id(segment.versions[slot], slot, s);
+                        j++;
+                    }
+                }
+            }
+            // the visitor runs outside the lock, so it may add and sell
+            for (int j = 0; j < count; j++) {
+                visitor.visit(ids[j], names.name(nameIds[j]), sellIn[j], quality[j]);
+            }
+        }
+    }
+
+    List<Item> items() {
+        List<Item> items = new ArrayList<>();
+        forEach((id, name, sellIn, quality) -> items.add(new Item(name, sellIn, quality)));
+        return items;
+    }
+
+    void updateQuality(Parallelism parallelism) {
+        advance(1, parallelism);
+    }
+
+    /**
+     * Moves every item forward by {@code days} days, locking one segment at
+     * a time. Rollovers themselves run one after another.
+     */
+    void advance(int days, Parallelism parallelism) {
+        if (days < 0) {
+            throw new IllegalArgumentException("days must not be negative: " + days);
+        }
+        synchronized (rolloverLock) {
+            int target = day + days;
+            parallelism.run(segments.length, (from, to) -> {
+                for (int s = from; s < to; s++) {
+                    segments[s].catchUp(target, rules);
+                }
+            });
+            day = target;
+        }
+    }
+
+    /**
+     * Columns of one segment. Freed slots are kept on a stack for reuse; a
+     * slot's version is odd while it holds an item and goes up by one each
+     * time the slot is filled or freed. All fields are guarded by the segment.
+     */
+    private static final class Segment {
+        int[] nameIds = new int[INITIAL_CAPACITY];
+
+        byte[] kinds = new byte[INITIAL_CAPACITY];
+
+        int[] sellIn = new int[INITIAL_CAPACITY];
+
+        int[] quality = new int[INITIAL_CAPACITY];
+
+        int[] versions = new int[INITIAL_CAPACITY];
+
+        int[] free = new int[INITIAL_CAPACITY];
+
+        int freeCount;
+
+        /** Slots below this have been used at least once. */
+        int high;
+
+        int size;
+
+        int day;
+
+        boolean isLive(int slot) {
+            return (versions[slot] & 1) != 0;
+        }
+
+        boolean holds(int slot, int version) {
+            return slot < high && versions[slot] == version && isLive(slot);
+        }
+
+        int allocate() {
+            int slot;
+            if (freeCount > 0) {
+                slot = free[--freeCount];
+            } else {
+                if (high == nameIds.length) {
+                    grow();
+                }
+                slot = high++;
+            }
+            versions[slot]++;
+            size++;
+            return slot;
+        }
+
+        void release(int slot) {
+            versions[slot]++;
+            size--;
+            if (freeCount == free.length) {
+                free = Arrays.copyOf(free, free.length * 2);
+            }
+            free[freeCount++] = slot;
+        }
+
+        private void grow() {
+            int capacity = nameIds.length * 2;
+            nameIds = Arrays.copyOf(nameIds, capacity);
+            kinds = Arrays.copyOf(kinds, capacity);
+            sellIn = Arrays.copyOf(sellIn, capacity);
+            quality = Arrays.copyOf(quality, capacity);
+            versions = Arrays.copyOf(versions, capacity);
+        }
+
+        synchronized void catchUp(int target, RuleBook rules) {
+            int days = target - day;
+            day = target;
+            if (days == 0) {
+                return;
+            }
+            for (int slot = 0; slot < high; slot++) {
+                if (!isLive(slot)) {
+                    continue;
+                }
+                byte kind = kinds[slot];
+                int itemSellIn = sellIn[slot];
+                quality[slot] = days == 1
+                        ? rules.age(kind, itemSellIn, quality[slot])
+                        : rules.age(kind, itemSellIn, quality[slot], days);
+                sellIn[slot] = rules.sellInAfter(kind, itemSellIn, days);
+            }
+        }
+    }
+}
@@ -0,0 +1,79 @@
+package com.gildedrose;
+
+import java.util.logging.Level;
+import java.util.logging.Logger;
+
+/**
+ * One day's update of the built-in rules for a block of rows of the active
+ * list of an {@link Inventory}, for implementations that age a whole block at
+ * once with SIMD instructions.
+ * <p>
+ * The only implementation uses the incubating Vector API. It is compiled from
+ * {@code src/vector/java} when the build runs on JDK 17 or later and is opt-in:
+ * it is only used when the JVM runs with {@code -Dgildedrose.vector=true} and
+ * {@code --add-modules jdk.incubator.vector}. Anywhere else {@link #AVAILABLE}
+ * is {@code null} and the inventory stays on its scalar loop.
+ */
+interface DailyKernel {
+    /** The block was aged and no row settled. */
+    int AGED = 0;
+
+    /** The block was aged and the rows that settled were marked in the active list. */
+    int SETTLED = 1;
+
+    /** The block holds rows of an added rule; nothing was written. */
+    int UNSUPPORTED = -1;
+
+    DailyKernel AVAILABLE = Loader.load();
+
+    /**
+     * Number of rows in a block.
+     */
+    int lanes();
+
+    /**
+     * A buffer for {@link #age} to stage a block in. Each thread needs its
+     * own; one is enough for any number of calls.
+     */
+    default int[] scratch() {
+        return new int[4 * lanes()];
+    }
+
+    /**
+     * Ages the rows {@code active[from]} to {@code active[from + lanes() - 1]}
+     * by one day, reading sell-in anchors and quality and writing the new
+     * quality into {@code back}. Settled rows are marked in {@code active} with
+     * the complement of their index, as the scalar loop does. {@code scratch}
+     * comes from {@link #scratch()}.
+     *
+     * @return {@link #AGED}, {@link #SETTLED} or {@link #UNSUPPORTED}
+     */
+    int age(byte[] kinds, int[] sellIn, int[] quality, int[] back, int[] active, int from, int day, int[] scratch);
+
+    final class Loader {
+        private static final String IMPLEMENTATION = "com.gildedrose.VectorDailyKernel";
+
+        private Loader() {
+        }
+
+        private static DailyKernel load() {
+            if (!Boolean.getBoolean("gildedrose.vector")) {
+                return null;
+            }
+            return create();
+        }
+
+        /**
+         * The implementation whether or not it has been switched on, or
+         * {@code null} if it cannot be loaded here.
+         */
+        static DailyKernel create() {
+            try {
+                return (DailyKernel) Class.forName(IMPLEMENTATION).getDeclaredConstructor().newInstance();
+            } catch (ReflectiveOperationException | LinkageError | RuntimeException e) {
+                Logger.getLogger(DailyKernel.class.getName()).log(Level.FINE, "Vector kernel unavailable", e);
+                return null;
+            }
+        }
+    }
+}
@@ -0,0 +1,67 @@
+package com.gildedrose;
+
+/**
+ * A reusable buffer of item changes handed to a {@link DeltaSink}. Entries are
+ * held in parallel columns and read by position.
+ */
+final class DeltaBatch {
+    static final int DEFAULT_CAPACITY = 4096;
+
+    private final int[] ids;
+
+    private final int[] oldQuality;
+
+    private final int[] newQuality;
+
+    private final int[] sellIn;
+
+    private int size;
+
+    DeltaBatch(int capacity) {
+        if (capacity <= 0) {
+            throw new IllegalArgumentException("capacity must be positive: " + capacity);
+        }
+        ids = new int[capacity];
+        oldQuality = new int[capacity];
+        newQuality = new int[capacity];
+        sellIn = new int[capacity];
+    }
+
+    int size() {
+        return size;
+    }
+
+    /**
+     * Index of the changed item in the shop's stock.
+     */
+    int id(int entry) {
+        return ids[entry];
+    }
+
+    int oldQuality(int entry) {
+        return oldQuality[entry];
+    }
+
+    int newQuality(int entry) {
+        return newQuality[entry];
+    }
+
+    int sellIn(int entry) {
+        return sellIn[entry];
+    }
+
+    /**
+     * Appends an entry and answers whether the batch is now full.
+     */
+    boolean add(int id, int oldQuality, int newQuality, int sellIn) {
+        this.ids[size] = id;
+        this.oldQuality[size] = oldQuality;
+        this.newQuality[size] = newQuality;
+        this.sellIn[size] = sellIn;
+        return ++size == ids.length;
+    }
+
+    void clear() {
+        size = 0;
+    }
+}
@@ -0,0 +1,28 @@
+package com.gildedrose;
+
+/**
+ * Receives the changes each rollover makes to a shop's stock, so a mirror can
+ * be kept current without re-reading every item.
+ * <p>
+ * A rollover first reports {@link #dayAdvanced}, which stands for the sell-in
+ * of every item whose rule ages it going down by the same number of days.
+ * Items whose quality changed then follow in one or more batches carrying
+ * their new quality and sell-in, and {@link #dayCompleted} closes the
+ * rollover. Items that are not in a batch kept their quality.
+ */
+interface DeltaSink {
+    /**
+     * The shop has moved on to {@code day}, {@code days} days after the last
+     * rollover.
+     */
+    void dayAdvanced(int day, int days);
+
+    /**
+     * Items whose quality changed. The batch is reused once this returns, so
+     * consumers must copy anything they want to keep.
+     */
+    void accept(DeltaBatch batch);
+
+    default void dayCompleted(int day) {
+    }
+}
@@ -0,0 +1,374 @@
+package com.gildedrose;
+
+import java.io.Closeable;
+import java.io.IOException;
+import java.nio.channels.FileChannel;
+import java.nio.file.DirectoryStream;
+import java.nio.file.FileAlreadyExistsException;
+import java.nio.file.Files;
+import java.nio.file.NoSuchFileException;
+import java.nio.file.Path;
+import java.util.List;
+import java.util.TreeMap;
+import java.util.logging.Level;
+import java.util.logging.Logger;
+
+import static java.nio.file.StandardCopyOption.ATOMIC_MOVE;
+import static java.nio.file.StandardOpenOption.READ;
+
+/**
+ * A {@link GildedRose} whose rollovers survive the process dying.
+ * <p>
+ * The shop lives in a directory of numbered checkpoints and write-ahead logs.
+ * Checkpoint {@code n} is the whole stock in the {@link MappedInventory} file
+ * format, and log {@code n} records every rollover made after it. Recovery
+ * loads the newest complete checkpoint and replays its log and any later
+ * ones, so the work it does is bounded by how often checkpoints are taken.
+ * <p>
+ * A rollover is logged and then applied in memory under the shop's lock, then
+ * made durable outside it, so rollovers from several threads share one
+ * {@code fsync}. A log that can no longer be written refuses the rollover
+ * before the stock ages; a rollover that ages the stock but cannot be made
+ * durable stops the shop, as memory is then ahead of what recovery replays,
+ * and the shop must be reopened. A checkpoint switches to a fresh log under the lock and then
+ * writes a snapshot of the stock while rollovers carry on; older files are
+ * deleted only once the new checkpoint is safely on disk. A checkpoint taken
+ * automatically runs after its rollover is durable, so if it fails the
+ * rollover still stands: the failure is logged and kept for
+ * {@link #checkpointFailure()}, and the next rollover tries again.
+ * <p>
+ * The stock has a fixed set of items, so rollovers are the only mutation the
+ * log has to record.
+ */
+final class DurableShop implements Closeable {
+    static final int DEFAULT_CHECKPOINT_INTERVAL = 1024;
+
+    private static final String CHECKPOINT = "checkpoint-";
+
+    private static final String LOG = "wal-";
+
+    private static final String TEMPORARY = ".tmp";
+
+    private static final Logger LOGGER = Logger.getLogger(DurableShop.class.getName());
+
+    private final Path directory;
+
+    private final NameTable names;
+
+    private final RuleBook rules;
+
+    private final GildedRose shop;
+
+    private final Object checkpointLock = new Object();
+
+    private WriteAheadLog log;
+
+    private long epoch;
+
+    private int sinceCheckpoint;
+
+    private boolean checkpointPending;
+
+    private int checkpointInterval = DEFAULT_CHECKPOINT_INTERVAL;
+
+    private IOException checkpointFailure;
+
+    private Exception failure;
+
+    private DurableShop(Path directory, Inventory inventory, NameTable names, RuleBook rules,
+                        Parallelism parallelism, WriteAheadLog log, long epoch) {
+        this.directory = directory;
+        this.names = names;
+        this.rules = rules;
+        this.shop = new GildedRose(inventory, parallelism);
+        this.log = log;
+        this.epoch = epoch;
+    }
+
+    /**
+     * Starts a shop holding {@code items} in an empty or missing directory.
+     */
+    static DurableShop create(Path directory, List<Item> items, RuleBook rules, Parallelism parallelism)
+            throws IOException {
+        Files.createDirectories(directory);
+        if (!files(directory, CHECKPOINT).isEmpty() || !files(directory, LOG).isEmpty()) {
+            throw new FileAlreadyExistsException(directory.toString(), null, "already holds a shop");
+        }
+
+        Inventory inventory = new Inventory(items, NameTable.SHARED, rules);
+        writeCheckpoint(directory, 0, inventory.asList(), NameTable.SHARED, rules);
+        WriteAheadLog log = WriteAheadLog.create(directory.resolve(name(LOG, 0)));
+        syncDirectory(directory);
+        return new DurableShop(directory, inventory, NameTable.SHARED, rules, parallelism, log, 0);
+    }
+
+    /**
+     * Recovers the shop in {@code directory} as of its last durable rollover.
+     */
+    static DurableShop open(Path directory, RuleBook rules, Parallelism parallelism) throws IOException {
+        TreeMap<Long, Path> checkpoints = files(directory, CHECKPOINT);
+        if (checkpoints.isEmpty()) {
+            throw new NoSuchFileException(directory.toString(), null, "holds no checkpoint");
+        }
+
+        long checkpoint = checkpoints.lastKey();
+        Inventory inventory = readCheckpoint(checkpoints.lastEntry().getValue(), NameTable.SHARED, rules);
+        WriteAheadLog.Replayer replayer = (type, payload) -> {
+            if (type != WriteAheadLog.ROLLOVER) {
+                throw new IOException("Unknown log record type " + type);
+            }
+            inventory.advance(payload.getInt(0), parallelism);
+        };
+
+        TreeMap<Long, Path> logs = files(directory, LOG);
+        logs.headMap(checkpoint).clear();
+        long epoch = logs.isEmpty() ? checkpoint : logs.lastKey();
+        for (Path path : logs.headMap(epoch).values()) {
+            WriteAheadLog.replay(path, replayer);
+        }
+        WriteAheadLog log;
+        if (logs.isEmpty()) {
+            log = WriteAheadLog.create(directory.resolve(name(LOG, epoch)));
+            syncDirectory(directory);
+        } else {
+            log = WriteAheadLog.open(logs.get(epoch), replayer);
+        }
+
+        DurableShop shop = new DurableShop(directory, inventory, NameTable.SHARED, rules, parallelism, log, epoch);
+        shop.deleteBefore(checkpoint);
+        return shop;
+    }
+
+    /**
+     * Takes a checkpoint automatically after every {@code rollovers} logged
+     * rollovers. Fewer means faster recovery and more checkpoint writing.
+     */
+    synchronized void checkpointEvery(int rollovers) {
+        if (rollovers < 1) {
+            throw new IllegalArgumentException("rollovers must be positive: " + rollovers);
+        }
+        checkpointInterval = rollovers;
+    }
+
+    /**
+     * Why the latest automatic checkpoint failed, or {@code null} if it
+     * succeeded or none has been attempted.
+     */
+    synchronized IOException checkpointFailure() {
+        return checkpointFailure;
+    }
+
+    List<Item> getItems() {
+        return shop.getItems();
+    }
+
+    InventorySnapshot snapshot() {
+        return shop.snapshot();
+    }
+
+    /**
+     * Runs a day and returns once it is durable. An exception means the day
+     * may not have been logged; a failed automatic checkpoint does not throw.
+     *
+     * @throws IllegalStateException if an earlier rollover failed after aging
+     *                               the stock, or the shop is closed
+     */
+    void updateQuality() throws IOException {
+        rollover(1);
+    }
+
+    void advance(int days) throws IOException {
+        if (days < 0) {
+            throw new IllegalArgumentException("days must not be negative: " + days);
+        }
+        if (days > 0) {
+            rollover(days);
+        }
+    }
+
+    private void rollover(int days) throws IOException {
+        WriteAheadLog log;
+        long sequence;
+        boolean checkpointDue;
+        synchronized (this) {
+            if (failure != null) {
+                throw new IllegalStateException("Shop in " + directory + " stopped after a failed rollover; reopen it",
+                        failure);
+            }
+            log = this.log;
+            sequence = log.append(WriteAheadLog.ROLLOVER, days);
+            try {
+                if (days == 1) {
+                    shop.updateQuality();
+                } else {
+                    shop.advance(days);
+                }
+            } catch (RuntimeException e) {
+                failure = e;
+                throw e;
+            }
+            checkpointDue = ++sinceCheckpoint >= checkpointInterval && !checkpointPending;
+            if (checkpointDue) {
+                checkpointPending = true;
+            }
+        }
+
+        try {
+            log.sync(sequence);
+        } catch (IOException e) {
+            synchronized (this) {
+                failure = e;
+            }
+            throw e;
+        }
+        if (checkpointDue) {
+            try {
+                checkpoint();
+            } catch (IOException e) {
+                LOGGER.log(Level.WARNING, "Checkpoint of " + directory + " failed; retrying after the next rollover", e);
+                synchronized (this) {
+                    checkpointFailure = e;
+                    checkpointPending = false;
+                    sinceCheckpoint = Math.max(sinceCheckpoint, checkpointInterval - 1);
+                }
+            }
+        }
+    }
+
+    /**
+     * Writes the current stock as a new checkpoint and drops the files it
+     * replaces. Rollovers may run while the checkpoint is written.
+     */
+    void checkpoint() throws IOException {
+        synchronized (checkpointLock) {
+            WriteAheadLog previous;
+            long next;
+            InventorySnapshot snapshot;
+            synchronized (this) {
+                next = epoch + 1;
+                WriteAheadLog log = WriteAheadLog.create(directory.resolve(name(LOG, next)));
+                syncDirectory(directory);
+                snapshot = shop.snapshot();
+                previous = this.log;
+                this.log = log;
+                epoch = next;
+                sinceCheckpoint = 0;
+                checkpointPending = false;
+            }
+
+            try (InventorySnapshot closing = snapshot) {
+                previous.close();
+                writeCheckpoint(directory, next, closing.items(), names, rules);
+            }
+            deleteBefore(next);
+            synchronized (this) {
+                checkpointFailure = null;
+            }
+        }
+    }
+
+    private static void writeCheckpoint(Path directory, long number, List<Item> items, NameTable names,
+                                        RuleBook rules) throws IOException {
+        Path target = directory.resolve(name(CHECKPOINT, number));
+        Path temporary = directory.resolve(target.getFileName() + TEMPORARY);
+        try (MappedInventory file = MappedInventory.create(temporary, items, names, rules,
+                MappedInventory.SEGMENT_ITEMS)) {
+            file.force();
+        }
+        Files.move(temporary, target, ATOMIC_MOVE);
+        syncDirectory(directory);
+    }
+
+    private static Inventory readCheckpoint(Path path, NameTable names, RuleBook rules) throws IOException {
+        try (MappedInventory file = MappedInventory.open(path, names, rules, MappedInventory.SEGMENT_ITEMS)) {
+            int size = file.size();
+            int[] nameIds = new int[size];
+            int[] sellIn = new int[size];
+            int[] quality = new int[size];
+            for (int i = 0; i < size; i++) {
+                nameIds[i] = file.nameId(i);
+                sellIn[i] = file.sellIn(i);
+                quality[i] = file.quality(i);
+            }
+            return new Inventory(nameIds, sellIn, quality, names, rules);
+        }
+    }
+
+    /**
+     * Removes checkpoints and logs numbered below {@code number}, and any
+     * checkpoint left half-written by a crash.
+     */
+    private void deleteBefore(long number) throws IOException {
+        for (Path path : files(directory, CHECKPOINT).headMap(number).values()) {
+            Files.deleteIfExists(path);
+        }
+        for (Path path : files(directory, LOG).headMap(number).values()) {
+            Files.deleteIfExists(path);
+        }
+        try (DirectoryStream<Path> stream = Files.newDirectoryStream(directory, CHECKPOINT + "*" + TEMPORARY)) {
+            for (Path path : stream) {
+                Files.deleteIfExists(path);
+            }
+        }
+    }
+
+    private static TreeMap<Long, Path> files(Path directory, String prefix) throws IOException {
+        TreeMap<Long, Path> files = new TreeMap<>();
+        try (DirectoryStream<Path> stream = Files.newDirectoryStream(directory, prefix + "*")) {
+            for (Path path : stream) {
+                String number = path.getFileName().toString().substring(prefix.length());
+                if (isNumber(number)) {
+                    files.put(Long.parseLong(number), path);
+                }
+            }
+        }
+        return files;
+    }
+
+    /**
+     * Whether {@code text} is a number this shop could have named a file with,
+     * so stray files such as {@code wal-old} or half-written checkpoints are
+     * left alone.
+     */
+    private static boolean isNumber(String text) {
+        if (text.isEmpty() || text.length() > 18) {
+            return false;
+        }
+        for (int i = 0; i < text.length(); i++) {
+            if (text.charAt(i) < '0' || text.charAt(i) > '9') {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    private static String name(String prefix, long number) {
+        return String.format("%s%016d", prefix, number);
+    }
+
+    /**
+     * Makes file creations and renames in {@code directory} durable. Not every
+     * platform can open a directory for this; there the rename is left to the
+     * file system.
+     */
+    private static void syncDirectory(Path directory) {
+        try (FileChannel channel = FileChannel.open(directory, READ)) {
+            channel.force(true);
+        } catch (IOException e) {
+            // not supported here
+        }
+    }
+
+    /**
+     * Makes every logged rollover durable and closes the log. The shop must
+     * not be used afterwards.
+     */
+    @Override
+    public void close() throws IOException {
+        synchronized (checkpointLock) {
+            synchronized (this) {
+                log.close();
+            }
+        }
+    }
+}
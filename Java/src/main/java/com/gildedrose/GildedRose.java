@@ -1,6 +1,5 @@
 package com.gildedrose;
 
-import java.util.Collections;
 import java.util.List;
 import java.util.Objects;
 
@@ -13,75 +12,179 @@ class GildedRose {
 
     public static final String SULFURAS = "Sulfuras, Hand of Ragnaros";
 
-    private final List<Item> items;
+    private final ItemStore inventory;
+
+    private final Parallelism parallelism;
+
+    private volatile UpdateMetrics metrics;
 
     public GildedRose(List<Item> items) {
-        this.items = items;
+        this(items, Parallelism.SEQUENTIAL);
+    }
+
+    public GildedRose(List<Item> items, Parallelism parallelism) {
+        this(new Inventory(items), parallelism);
+    }
+
+    public GildedRose(List<Item> items, RuleBook rules, Parallelism parallelism) {
+        this(new Inventory(items, rules), parallelism);
+    }
+
+    /**
+     * A shop that moves items whose quality can no longer change out of the
+     * daily pass into a compact cold tier, for stocks where such items pile
+     * up. They stay visible to every read, query and change capture.
+     */
+    public static GildedRose tiered(List<Item> items, Parallelism parallelism) {
+        return tiered(items, RuleBook.STANDARD, parallelism);
+    }
+
+    public static GildedRose tiered(List<Item> items, RuleBook rules, Parallelism parallelism) {
+        return new GildedRose(new TieredInventory(items, NameTable.SHARED, rules, TieredInventory.MIN_SPILL),
+                parallelism);
     }
 
+    /**
+     * Runs the shop directly over existing storage, such as a {@link MappedInventory}.
+     * Snapshots, indexes, aggregates and change capture need a store that
+     * implements the matching {@link ItemStore} capability; see
+     * {@link #supports(Class)}.
+     */
+    GildedRose(ItemStore inventory, Parallelism parallelism) {
+        this.inventory = Objects.requireNonNull(inventory);
+        this.parallelism = Objects.requireNonNull(parallelism);
+    }
+
+    ItemStore inventory() {
+        return inventory;
+    }
+
+    /**
+     * Whether this shop's store has {@code capability}, one of the optional
+     * interfaces nested in {@link ItemStore}. The methods that need a
+     * capability the store lacks throw {@link UnsupportedOperationException}.
+     */
+    boolean supports(Class<?> capability) {
+        return capability.isInstance(inventory);
+    }
+
+    private <T> T capability(Class<T> capability, String feature) {
+        if (!capability.isInstance(inventory)) {
+            throw new UnsupportedOperationException(inventory.getClass().getSimpleName() + " does not support "
+                    + feature);
+        }
+        return capability.cast(inventory);
+    }
+
+    /**
+     * A live view of the stock. Each element is read from a single day, but a
+     * rollover running alongside can leave different elements on different
+     * days; use {@link #snapshot()} to read a whole day consistently.
+     */
     public List<Item> getItems() {
-        return Collections.unmodifiableList(items);
+        return inventory.asList();
+    }
+
+    /**
+     * The stock as of the latest completed day, which stays unchanged while
+     * later days are computed. Taking one never blocks a rollover.
+     */
+    InventorySnapshot snapshot() {
+        return capability(ItemStore.Snapshots.class, "snapshots").snapshot();
+    }
+
+    /**
+     * Reads the stock in batches of primitive columns rather than one
+     * {@link Item} per element, for exports and scans over large stocks.
+     * Close the cursor when done, as it may hold a day's buffer.
+     */
+    ItemCursor cursor() {
+        return inventory.cursor();
+    }
+
+    /**
+     * Secondary indexes for questions such as which items expire within a few
+     * days or have little quality left. They are built on first call and kept
+     * current by every later rollover; query them between rollovers.
+     */
+    ItemIndex index() {
+        return capability(ItemStore.Indexed.class, "indexes").index();
+    }
+
+    /**
+     * Quality totals, counts at 0 and at 50 and sell-in histograms per
+     * category, for dashboards that would otherwise scan {@link #getItems()}
+     * after each day. Built on first call and updated by every later rollover
+     * as it ages items; query them between rollovers.
+     */
+    StockAggregates aggregates() {
+        return capability(ItemStore.Aggregated.class, "aggregates").aggregates();
+    }
+
+    /**
+     * Streams the changes made by every later rollover to {@code sink}, in
+     * place of re-reading {@link #getItems()} after each day. Pass {@code null}
+     * to stop.
+     */
+    void setDeltaSink(DeltaSink sink) {
+        setDeltaSink(sink, DeltaBatch.DEFAULT_CAPACITY);
+    }
+
+    void setDeltaSink(DeltaSink sink, int batchSize) {
+        capability(ItemStore.ChangeCapture.class, "change capture").setDeltaSink(sink, batchSize);
     }
 
     public void updateQuality() {
-        items.forEach(item -> {
-            Objects.requireNonNull(item);
-
-            String name = item.name;
-            Objects.requireNonNull(item.name);
-
-            if (!name.equals(AGED_BRIE)
-                    && !name.equals(BACKSTAGE_PASSES)) {
-                if (item.quality > 0) {
-                    if (!name.equals(SULFURAS)) {
-                        item.quality -= calculateRate(item);
-                    }
-                }
-            } else {
-                if (item.quality < 50) {
-                    item.quality++;
-
-                    if (name.equals(BACKSTAGE_PASSES)) {
-                        if (item.sellIn < 11) {
-                            if (item.quality < 50) {
-                                item.quality++;
-                            }
-                        }
-
-                        if (item.sellIn < 6) {
-                            if (item.quality < 50) {
-                                item.quality++;
-                            }
-                        }
-                    }
-                }
-            }
-
-            if (!name.equals(SULFURAS)) {
-                item.sellIn--;
-            }
-
-            if (item.sellIn < 0) {
-                if (!name.equals(AGED_BRIE)) {
-                    if (!name.equals(BACKSTAGE_PASSES)) {
-                        if (item.quality > 0) {
-                            if (!name.equals(SULFURAS)) {
-                                item.quality -= calculateRate(item);
-                            }
-                        }
-                    } else {
-                        item.quality = 0;
-                    }
-                } else {
-                    if (item.quality < 50) {
-                        item.quality++;
-                    }
-                }
-            }
-        });
-    }
-
-    private int calculateRate(Item item) {
-        return item.name.equals(CONJURED) ? 2 : 1;
+        updateQuality(parallelism);
+    }
+
+    public void updateQuality(Parallelism parallelism) {
+        UpdateMetrics metrics = this.metrics;
+        if (metrics == null) {
+            inventory.updateQuality(parallelism);
+            return;
+        }
+
+        long start = System.nanoTime();
+        inventory.updateQuality(parallelism);
+        metrics.rolloverCompleted(System.nanoTime() - start);
+    }
+
+    /**
+     * Equivalent to calling {@link #updateQuality()} {@code days} times, in time
+     * independent of {@code days}.
+     */
+    public void advance(int days) {
+        if (days < 0) {
+            throw new IllegalArgumentException("days must not be negative: " + days);
+        }
+        UpdateMetrics metrics = this.metrics;
+        if (metrics == null) {
+            inventory.advance(days, parallelism);
+            return;
+        }
+
+        long start = System.nanoTime();
+        inventory.advance(days, parallelism);
+        metrics.rolloverCompleted(System.nanoTime() - start);
+    }
+
+    /**
+     * Starts collecting {@link UpdateMetrics} for this shop's rollovers, or
+     * returns the ones already being collected. Until this is called the
+     * update loop does no counting at all.
+     */
+    synchronized UpdateMetrics enableMetrics() {
+        if (metrics == null) {
+            UpdateMetrics metrics = new UpdateMetrics();
+            inventory.setMetrics(metrics);
+            this.metrics = metrics;
+        }
+        return metrics;
+    }
+
+    synchronized void disableMetrics() {
+        inventory.setMetrics(null);
+        metrics = null;
     }
 }
@@ -0,0 +1,574 @@
+package com.gildedrose;
+
+import java.util.AbstractList;
+import java.util.List;
+import java.util.Objects;
+import java.util.RandomAccess;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Column-oriented storage for the stock of a {@link GildedRose}.
+ * <p>
+ * Each item is a row across parallel primitive arrays, so a daily update is a
+ * linear scan over a kind tag, a sell-in and a quality column instead of a
+ * walk over individual {@link Item} objects. Names are held as ids into a
+ * {@link NameTable}; each row also carries the tag of the {@link RuleBook}
+ * rule its name resolved to, so names are never looked at again.
+ * <p>
+ * Sell-in is stored as its value on the day the inventory was created and
+ * derived from a day counter when read, so the daily pass only has to touch
+ * quality. Items whose quality can no longer change are dropped from the list
+ * of active rows and are not visited again. Where a SIMD {@link DailyKernel}
+ * is available the daily pass hands it whole blocks of active rows, unless
+ * metrics or aggregates need each change recorded as it is made.
+ * <p>
+ * The day counter and quality column together form a generation. A rollover
+ * computes the next generation into a second quality buffer and publishes it
+ * with a single volatile write, so readers holding a {@link InventorySnapshot}
+ * see one whole day and never a half-updated one. A buffer is only written
+ * again once no snapshot pins it; otherwise the rollover starts a fresh one.
+ */
+class Inventory implements ItemStore, ItemStore.Snapshots, ItemStore.Indexed, ItemStore.Aggregated,
+        ItemStore.ChangeCapture {
+    private final NameTable names;
+
+    private final RuleBook rules;
+
+    private final int[] nameIds;
+
+    private final byte[] kinds;
+
+    private final int[] sellIn;
+
+    private final int[] active;
+
+    private int activeCount;
+
+    private final int[] recentlySettled;
+
+    private int recentlySettledCount;
+
+    private volatile boolean settled;
+
+    private volatile Generation current;
+
+    private Generation previous;
+
+    private UpdateMetrics metrics;
+
+    private ItemIndex index;
+
+    private StockAggregates aggregates;
+
+    private DeltaSink deltaSink;
+
+    private DeltaBatch deltas;
+
+    Inventory(List<Item> items) {
+        this(items, NameTable.SHARED, RuleBook.STANDARD);
+    }
+
+    Inventory(List<Item> items, RuleBook rules) {
+        this(items, NameTable.SHARED, rules);
+    }
+
+    Inventory(List<Item> items, NameTable names, RuleBook rules) {
+        int size = items.size();
+        this.names = Objects.requireNonNull(names);
+        this.rules = Objects.requireNonNull(rules);
+        nameIds = new int[size];
+        kinds = new byte[size];
+        sellIn = new int[size];
+        active = new int[size];
+        recentlySettled = new int[size];
+        int[] quality = new int[size];
+
+        RuleBook.Resolver resolver = rules.resolver();
+        int i = 0;
+        for (Item item : items) {
+            Objects.requireNonNull(item);
+            Objects.requireNonNull(item.name);
+
+            int id = names.intern(item.name);
+            nameIds[i] = id;
+            kinds[i] = resolver.kindOf(id, item.name);
+            sellIn[i] = item.sellIn;
+            quality[i] = item.quality;
+            if (!rules.isSettled(kinds[i], item.sellIn, item.quality)) {
+                active[activeCount++] = i;
+            }
+            i++;
+        }
+        current = new Generation(0, quality);
+    }
+
+    /**
+     * Takes over columns whose name ids come from {@code names}, as built by
+     * {@link InventoryLoader}, without going through {@link Item}s.
+     */
+    Inventory(int[] nameIds, int[] sellIn, int[] quality, NameTable names, RuleBook rules) {
+        int size = nameIds.length;
+        if (sellIn.length != size || quality.length != size) {
+            throw new IllegalArgumentException("Columns differ in length");
+        }
+        this.names = Objects.requireNonNull(names);
+        this.rules = Objects.requireNonNull(rules);
+        this.nameIds = nameIds;
+        this.sellIn = sellIn;
+        kinds = new byte[size];
+        active = new int[size];
+        recentlySettled = new int[size];
+
+        RuleBook.Resolver resolver = rules.resolver();
+        for (int i = 0; i < size; i++) {
+            kinds[i] = resolver.kindOf(nameIds[i], names.name(nameIds[i]));
+            if (!rules.isSettled(kinds[i], sellIn[i], quality[i])) {
+                active[activeCount++] = i;
+            }
+        }
+        current = new Generation(0, quality);
+    }
+
+    @Override
+    public int size() {
+        return nameIds.length;
+    }
+
+    @Override
+    public NameTable names() {
+        return names;
+    }
+
+    @Override
+    public int nameId(int index) {
+        return nameIds[index];
+    }
+
+    @Override
+    public String name(int index) {
+        return names.name(nameIds[index]);
+    }
+
+    @Override
+    public int sellIn(int index) {
+        return sellInOn(index, current.day);
+    }
+
+    byte kind(int index) {
+        return kinds[index];
+    }
+
+    int sellInOn(int index, int day) {
+        return rules.sellInAfter(kinds[index], sellIn[index], day);
+    }
+
+    /**
+     * Copies the name ids and the sell-in on {@code day} of {@code count} rows
+     * starting at {@code from} into {@code batch}.
+     */
+    void read(int from, int count, int day, ItemBatch batch) {
+        System.arraycopy(nameIds, from, batch.nameIds(), 0, count);
+        RuleBook rules = this.rules;
+        byte[] kinds = this.kinds;
+        int[] sellIn = this.sellIn;
+        int[] out = batch.sellIns();
+        for (int j = 0; j < count; j++) {
+            int i = from + j;
+            out[j] = rules.sellInAfter(kinds[i], sellIn[i], day);
+        }
+    }
+
+    @Override
+    public int quality(int index) {
+        return current.quality[index];
+    }
+
+    /**
+     * Days elapsed since the inventory was created.
+     */
+    int day() {
+        return current.day;
+    }
+
+    /**
+     * Number of items whose quality may still change.
+     */
+    int activeCount() {
+        return activeCount;
+    }
+
+    /**
+     * A live view whose elements each come from a single generation, so an
+     * item's sell-in and quality always belong to the same day.
+     */
+    @Override
+    public List<Item> asList() {
+        class ItemView extends AbstractList<Item> implements RandomAccess {
+            @Override
+            public Item get(int index) {
+                Objects.checkIndex(index, nameIds.length);
+                Generation generation = pin();
+                try {
+                    return new Item(name(index), sellInOn(index, generation.day), generation.quality[index]);
+                } finally {
+                    generation.pins.decrementAndGet();
+                }
+            }
+
+            @Override
+            public int size() {
+                return nameIds.length;
+            }
+        }
+        return new ItemView();
+    }
+
+    @Override
+    public InventorySnapshot snapshot() {
+        Generation generation = pin();
+        return new InventorySnapshot(this, generation.day, generation.quality, generation.pins::decrementAndGet);
+    }
+
+    /**
+     * A cursor over the latest completed day, pinned until it is closed.
+     */
+    @Override
+    public ItemCursor cursor() {
+        InventorySnapshot snapshot = snapshot();
+        return new ItemCursor(snapshot.size(), names, snapshot::read, snapshot::close);
+    }
+
+    /**
+     * Pins the current generation so its buffer is not reused while it is read.
+     * A pin taken just as a new day is published is dropped and retried, so the
+     * writer never overwrites a buffer a reader went on to use.
+     */
+    private Generation pin() {
+        while (true) {
+            Generation generation = current;
+            generation.pins.incrementAndGet();
+            if (generation == current) {
+                return generation;
+            }
+            generation.pins.decrementAndGet();
+        }
+    }
+
+    /**
+     * Builds the secondary indexes on first use; from then on every rollover
+     * keeps them up to date. Call between rollovers.
+     */
+    @Override
+    public ItemIndex index() {
+        if (index == null) {
+            index = new ItemIndex(this, this::day, rules, kinds, sellIn, current.quality);
+        }
+        return index;
+    }
+
+    @Override
+    public StockAggregates aggregates() {
+        if (aggregates == null) {
+            aggregates = new StockAggregates(this::day, rules, kinds, sellIn, current.quality);
+        }
+        return aggregates;
+    }
+
+    @Override
+    public void setMetrics(UpdateMetrics metrics) {
+        this.metrics = metrics;
+    }
+
+    @Override
+    public void setDeltaSink(DeltaSink sink, int batchSize) {
+        deltas = sink == null ? null : new DeltaBatch(batchSize);
+        deltaSink = sink;
+    }
+
+    @Override
+    public void updateQuality(Parallelism parallelism) {
+        roll(1, parallelism);
+    }
+
+    @Override
+    public void advance(int days, Parallelism parallelism) {
+        if (days == 0) {
+            return;
+        }
+
+        roll(days, parallelism);
+    }
+
+    private void roll(int days, Parallelism parallelism) {
+        prepare(days, parallelism).commit();
+    }
+
+    /**
+     * Computes the next {@code days} days without making them visible, for
+     * callers that publish several inventories together. Exactly one of
+     * {@link PreparedRollover#commit()} or {@link PreparedRollover#abort()}
+     * must follow before the inventory is used again.
+     */
+    PreparedRollover prepare(int days, Parallelism parallelism) {
+        if (days < 1) {
+            throw new IllegalArgumentException("days must be positive: " + days);
+        }
+        Generation front = current;
+        int[] back = backBuffer(front);
+
+        if (days == 1) {
+            parallelism.run(activeCount, (from, to) -> updateQuality(front, back, from, to));
+        } else {
+            parallelism.run(activeCount, (from, to) -> advance(days, front, back, from, to));
+        }
+        return new PreparedRollover(front, back, days);
+    }
+
+    final class PreparedRollover {
+        private final Generation front;
+
+        private final int[] back;
+
+        private final int days;
+
+        private PreparedRollover(Generation front, int[] back, int days) {
+            this.front = front;
+            this.back = back;
+            this.days = days;
+        }
+
+        /**
+         * The day the inventory will be on once this rollover is committed.
+         */
+        int day() {
+            return front.day + days;
+        }
+
+        void commit() {
+            previous = front;
+            current = new Generation(front.day + days, back);
+            if (index != null) {
+                index.qualityChanged(front.quality, back, active, activeCount);
+            }
+            if (aggregates != null) {
+                aggregates.commit();
+            }
+            if (deltaSink != null) {
+                publishDeltas(front.day + days, days, front.quality, back);
+            }
+            removeSettled();
+        }
+
+        /**
+         * Drops the computed days, leaving the inventory as it was.
+         */
+        void abort() {
+            for (int j = 0; j < activeCount; j++) {
+                if (active[j] < 0) {
+                    active[j] = ~active[j];
+                }
+            }
+            settled = false;
+            if (aggregates != null) {
+                aggregates.abort();
+            }
+        }
+    }
+
+    /**
+     * The buffer the next generation is written into: the one from two days
+     * ago when no reader holds it, brought up to date for rows that settled
+     * since, or else a copy of the current one.
+     */
+    private int[] backBuffer(Generation front) {
+        Generation previous = this.previous;
+        this.previous = null;
+
+        if (previous == null || previous.pins.get() != 0) {
+            recentlySettledCount = 0;
+            return front.quality.clone();
+        }
+
+        int[] back = previous.quality;
+        for (int j = 0; j < recentlySettledCount; j++) {
+            int i = recentlySettled[j];
+            back[i] = front.quality[i];
+        }
+        recentlySettledCount = 0;
+        return back;
+    }
+
+    private void updateQuality(Generation front, int[] back, int from, int to) {
+        UpdateMetrics.Tally tally = metrics == null ? null : metrics.tally();
+        StockAggregates.Delta delta = aggregates == null ? null : aggregates.delta();
+        // the kernel does no per-item bookkeeping, so counting and totals use the scalar loop
+        DailyKernel kernel = tally == null && delta == null ? DailyKernel.AVAILABLE : null;
+        boolean settled = false;
+        int j = from;
+
+        if (kernel != null) {
+            int lanes = kernel.lanes();
+            int[] scratch = kernel.scratch();
+            for (; j + lanes <= to; j += lanes) {
+                int result = kernel.age(kinds, sellIn, front.quality, back, active, j, front.day, scratch);
+                if (result == DailyKernel.UNSUPPORTED) {
+                    settled |= updateQuality(front, back, j, j + lanes, null, null);
+                    continue;
+                }
+                if (result == DailyKernel.SETTLED) {
+                    settled = true;
+                }
+            }
+        }
+        settled |= updateQuality(front, back, j, to, tally, delta);
+
+        if (tally != null) {
+            tally.flush();
+        }
+        if (delta != null) {
+            delta.flush();
+        }
+        if (settled) {
+            this.settled = true;
+        }
+    }
+
+    /**
+     * The scalar daily loop, answering whether any row settled.
+     */
+    private boolean updateQuality(Generation front, int[] back, int from, int to, UpdateMetrics.Tally tally,
+            StockAggregates.Delta delta) {
+        RuleBook rules = this.rules;
+        byte[] kinds = this.kinds;
+        int[] sellIn = this.sellIn;
+        int[] quality = front.quality;
+        int[] active = this.active;
+        int day = front.day;
+        boolean settled = false;
+
+        for (int j = from; j < to; j++) {
+            int i = active[j];
+            byte kind = kinds[i];
+            int itemSellIn = rules.sellInAfter(kind, sellIn[i], day);
+            int itemQuality = rules.age(kind, itemSellIn, quality[i]);
+            back[i] = itemQuality;
+            if (tally != null) {
+                tally.record(kind, quality[i], itemQuality);
+            }
+            if (delta != null) {
+                delta.record(kind, quality[i], itemQuality);
+            }
+
+            if (rules.isSettled(kind, rules.sellInAfter(kind, itemSellIn, 1), itemQuality)) {
+                active[j] = ~i;
+                settled = true;
+            }
+        }
+        return settled;
+    }
+
+    private void advance(int days, Generation front, int[] back, int from, int to) {
+        RuleBook rules = this.rules;
+        byte[] kinds = this.kinds;
+        int[] sellIn = this.sellIn;
+        int[] quality = front.quality;
+        int[] active = this.active;
+        int day = front.day;
+        boolean settled = false;
+        UpdateMetrics.Tally tally = metrics == null ? null : metrics.tally();
+        StockAggregates.Delta delta = aggregates == null ? null : aggregates.delta();
+
+        for (int j = from; j < to; j++) {
+            int i = active[j];
+            byte kind = kinds[i];
+            int itemSellIn = rules.sellInAfter(kind, sellIn[i], day);
+            int itemQuality = rules.age(kind, itemSellIn, quality[i], days);
+            back[i] = itemQuality;
+            if (tally != null) {
+                tally.record(kind, quality[i], itemQuality);
+            }
+            if (delta != null) {
+                delta.record(kind, quality[i], itemQuality);
+            }
+
+            if (rules.isSettled(kind, rules.sellInAfter(kind, itemSellIn, days), itemQuality)) {
+                active[j] = ~i;
+                settled = true;
+            }
+        }
+
+        if (tally != null) {
+            tally.flush();
+        }
+        if (delta != null) {
+            delta.flush();
+        }
+        if (settled) {
+            this.settled = true;
+        }
+    }
+
+    /**
+     * Reports the rollover to the delta sink. Only rows that were active can
+     * have changed, so the comparison costs no more than the pass itself.
+     */
+    private void publishDeltas(int day, int days, int[] before, int[] after) {
+        DeltaSink sink = deltaSink;
+        DeltaBatch batch = deltas;
+        sink.dayAdvanced(day, days);
+
+        int[] active = this.active;
+        for (int j = 0; j < activeCount; j++) {
+            int i = active[j];
+            if (i < 0) {
+                i = ~i;
+            }
+            if (before[i] != after[i] && batch.add(i, before[i], after[i], sellInOn(i, day))) {
+                sink.accept(batch);
+                batch.clear();
+            }
+        }
+        if (batch.size() > 0) {
+            sink.accept(batch);
+            batch.clear();
+        }
+        sink.dayCompleted(day);
+    }
+
+    /**
+     * Compacts the active list after a pass that marked settled rows with the
+     * complement of their index, keeping the remaining rows in index order and
+     * remembering the settled ones for the next {@link #backBuffer}.
+     */
+    private void removeSettled() {
+        if (!settled) {
+            return;
+        }
+
+        int[] active = this.active;
+        int kept = 0;
+        for (int j = 0; j < activeCount; j++) {
+            int i = active[j];
+            if (i >= 0) {
+                active[kept++] = i;
+            } else {
+                recentlySettled[recentlySettledCount++] = ~i;
+            }
+        }
+        activeCount = kept;
+        settled = false;
+    }
+
+    private static final class Generation {
+        final int day;
+
+        final int[] quality;
+
+        final AtomicInteger pins = new AtomicInteger();
+
+        Generation(int day, int[] quality) {
+            this.day = day;
+            this.quality = quality;
+        }
+    }
+}
@@ -0,0 +1,379 @@
+package com.gildedrose;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.UncheckedIOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.Charset;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.Map;
+import java.util.Objects;
+import java.util.concurrent.ConcurrentSkipListMap;
+
+import static java.nio.charset.StandardCharsets.US_ASCII;
+
+/**
+ * Reads the "name, sellIn, quality" text that {@link TexttestFixture} and
+ * {@link ReportWriter} produce back into an {@link Inventory}.
+ * <p>
+ * Input is scanned a large buffer at a time. Each line is split on its last
+ * two commas, so names may contain commas themselves, and the two numbers are
+ * parsed straight from the bytes. Names are interned through a cache keyed by
+ * their bytes, so a name is only decoded the first time it is seen. Blank
+ * lines and the banner, day and column header lines are skipped; any other
+ * line without a name and two numbers is rejected. The loader expects a dump
+ * of a single day.
+ * <p>
+ * Files can be parsed by several threads: the {@link Parallelism} splits the
+ * file into ranges, counted in kibibytes, and each range parses the lines
+ * that start inside it.
+ */
+final class InventoryLoader {
+    static final int BUFFER_SIZE = 1 << 20;
+
+    private static final int UNIT = 1 << 10;
+
+    private static final byte[] HEADER = "name, sellIn, quality".getBytes(US_ASCII);
+
+    private static final byte[] BANNER = "OMGHAI!".getBytes(US_ASCII);
+
+    private static final byte[] DAY_PREFIX = "-------- day ".getBytes(US_ASCII);
+
+    private static final byte[] SYNTAX = "\r\n, -0123456789".getBytes(US_ASCII);
+
+    private static final long MALFORMED = Long.MIN_VALUE;
+
+    private final NameTable names;
+
+    private final RuleBook rules;
+
+    private final Charset charset;
+
+    private final Parallelism parallelism;
+
+    InventoryLoader() {
+        this(NameTable.SHARED, RuleBook.STANDARD, Charset.defaultCharset(), Parallelism.SEQUENTIAL);
+    }
+
+    /**
+     * @param charset the encoding of the input, which must write commas, line
+     *                breaks, spaces and digits as single ASCII bytes
+     */
+    InventoryLoader(NameTable names, RuleBook rules, Charset charset, Parallelism parallelism) {
+        this.names = Objects.requireNonNull(names);
+        this.rules = Objects.requireNonNull(rules);
+        this.charset = Objects.requireNonNull(charset);
+        this.parallelism = Objects.requireNonNull(parallelism);
+        if (!Arrays.equals(new String(SYNTAX, US_ASCII).getBytes(charset), SYNTAX)) {
+            throw new IllegalArgumentException(charset + " is not ASCII compatible");
+        }
+    }
+
+    /**
+     * A shop over the stock in {@code path}, sharing this loader's parallelism.
+     */
+    GildedRose load(Path path) throws IOException {
+        return new GildedRose(read(path), parallelism);
+    }
+
+    GildedRose load(InputStream in) throws IOException {
+        return new GildedRose(read(in), parallelism);
+    }
+
+    Inventory read(InputStream in) throws IOException {
+        Parser parser = new Parser();
+        parser.parse((buffer, offset, length, position) -> in.read(buffer, offset, length), 0, Long.MAX_VALUE);
+        return parser.rows.toInventory();
+    }
+
+    Inventory read(Path path) throws IOException {
+        try (FileChannel channel = FileChannel.open(path, StandardOpenOption.READ)) {
+            long size = channel.size();
+            long units = (size + UNIT - 1) / UNIT;
+            if (units > Integer.MAX_VALUE) {
+                throw new IOException(path + " is too large to load");
+            }
+
+            Source source = (buffer, offset, length, position) ->
+                    channel.read(ByteBuffer.wrap(buffer, offset, length), position);
+            Map<Integer, Rows> parts = new ConcurrentSkipListMap<>();
+            parallelism.run((int) units, (from, to) -> {
+                Parser parser = new Parser();
+                try {
+                    parser.parse(source, (long) from * UNIT, Math.min((long) to * UNIT, size));
+                } catch (IOException e) {
+                    throw new UncheckedIOException(e);
+                }
+                parts.put(from, parser.rows);
+            });
+            return concat(parts.values()).toInventory();
+        } catch (UncheckedIOException e) {
+            throw e.getCause();
+        }
+    }
+
+    private Rows concat(Collection<Rows> parts) {
+        if (parts.size() == 1) {
+            return parts.iterator().next();
+        }
+
+        Rows all = new Rows();
+        int size = 0;
+        for (Rows part : parts) {
+            size += part.size;
+        }
+        all.nameIds = new int[size];
+        all.sellIn = new int[size];
+        all.quality = new int[size];
+        for (Rows part : parts) {
+            System.arraycopy(part.nameIds, 0, all.nameIds, all.size, part.size);
+            System.arraycopy(part.sellIn, 0, all.sellIn, all.size, part.size);
+            System.arraycopy(part.quality, 0, all.quality, all.size, part.size);
+            all.size += part.size;
+        }
+        return all;
+    }
+
+    private interface Source {
+        int read(byte[] buffer, int offset, int length, long position) throws IOException;
+    }
+
+    /**
+     * Parses the lines of one range into columns. Not thread safe; parallel
+     * loads use one per range.
+     */
+    private final class Parser {
+        final Rows rows = new Rows();
+
+        private final NameCache names = new NameCache();
+
+        private byte[] buffer = new byte[BUFFER_SIZE];
+
+        /**
+         * Parses every line that starts at or after {@code start} and before
+         * {@code end}. A range that starts mid-file begins one byte early and
+         * drops everything up to the first line break, which belongs to the
+         * range before it.
+         */
+        void parse(Source source, long start, long end) throws IOException {
+            long position = start == 0 ? 0 : start - 1;
+            boolean skipping = start != 0;
+            int filled = 0;
+            int lineStart = 0;
+            int scan = 0;
+
+            while (true) {
+                int read = source.read(buffer, filled, buffer.length - filled, position + filled);
+                if (read < 0) {
+                    if (lineStart < filled && !skipping) {
+                        line(lineStart, filled);
+                    }
+                    return;
+                }
+                filled += read;
+
+                for (; scan < filled; scan++) {
+                    if (buffer[scan] != '\n') {
+                        continue;
+                    }
+                    if (skipping) {
+                        skipping = false;
+                    } else {
+                        line(lineStart, scan);
+                    }
+                    lineStart = scan + 1;
+                    if (position + lineStart >= end) {
+                        return;
+                    }
+                }
+
+                if (lineStart == 0 && filled == buffer.length) {
+                    buffer = Arrays.copyOf(buffer, buffer.length * 2);
+                } else {
+                    System.arraycopy(buffer, lineStart, buffer, 0, filled - lineStart);
+                    position += lineStart;
+                    filled -= lineStart;
+                    scan -= lineStart;
+                    lineStart = 0;
+                }
+            }
+        }
+
+        private void line(int from, int to) {
+            byte[] buffer = this.buffer;
+            if (to > from && buffer[to - 1] == '\r') {
+                to--;
+            }
+
+            if (isBlank(from, to) || Arrays.equals(buffer, from, to, BANNER, 0, BANNER.length)
+                    || to - from >= DAY_PREFIX.length
+                    && Arrays.equals(buffer, from, from + DAY_PREFIX.length, DAY_PREFIX, 0, DAY_PREFIX.length)) {
+                return;
+            }
+
+            int quality = lastComma(from, to);
+            int sellIn = quality < 0 ? -1 : lastComma(from, quality);
+            long sellInValue = sellIn < 0 ? MALFORMED : parseInt(buffer, sellIn + 1, quality);
+            long qualityValue = sellIn < 0 ? MALFORMED : parseInt(buffer, quality + 1, to);
+            if (sellInValue == MALFORMED || qualityValue == MALFORMED) {
+                if (Arrays.equals(buffer, from, to, HEADER, 0, HEADER.length)) {
+                    return;
+                }
+                throw new IllegalArgumentException("Malformed inventory line: "
+                        + new String(buffer, from, to - from, charset));
+            }
+
+            rows.add(names.id(buffer, from, sellIn), (int) sellInValue, (int) qualityValue);
+        }
+
+        private boolean isBlank(int from, int to) {
+            for (int i = from; i < to; i++) {
+                if (buffer[i] != ' ' && buffer[i] != '\t') {
+                    return false;
+                }
+            }
+            return true;
+        }
+
+        private int lastComma(int from, int to) {
+            for (int i = to - 1; i >= from; i--) {
+                if (buffer[i] == ',') {
+                    return i;
+                }
+            }
+            return -1;
+        }
+    }
+
+    /**
+     * An {@code int} parsed from ASCII digits with an optional minus sign and
+     * surrounding spaces, or {@link #MALFORMED}.
+     */
+    static long parseInt(byte[] bytes, int from, int to) {
+        while (from < to && bytes[from] == ' ') {
+            from++;
+        }
+        while (to > from && bytes[to - 1] == ' ') {
+            to--;
+        }
+
+        boolean negative = from < to && bytes[from] == '-';
+        if (negative) {
+            from++;
+        }
+        if (from == to || to - from > 10) {
+            return MALFORMED;
+        }
+
+        long value = 0;
+        for (int i = from; i < to; i++) {
+            int digit = bytes[i] - '0';
+            if (digit < 0 || digit > 9) {
+                return MALFORMED;
+            }
+            value = value * 10 + digit;
+        }
+        if (negative) {
+            value = -value;
+        }
+        return value < Integer.MIN_VALUE || value > Integer.MAX_VALUE ? MALFORMED : value;
+    }
+
+    /**
+     * Maps the bytes of a name to its {@link NameTable} id with open addressing,
+     * so repeated names cost a hash and a comparison rather than a decode.
+     */
+    private final class NameCache {
+        private byte[][] keys = new byte[64][];
+
+        private int[] ids = new int[64];
+
+        private int[] hashes = new int[64];
+
+        private int size;
+
+        int id(byte[] bytes, int from, int to) {
+            int hash = 1;
+            for (int i = from; i < to; i++) {
+                hash = 31 * hash + bytes[i];
+            }
+            hash ^= hash >>> 16;
+
+            int mask = keys.length - 1;
+            for (int slot = hash & mask; ; slot = (slot + 1) & mask) {
+                byte[] key = keys[slot];
+                if (key == null) {
+                    int id = names.intern(new String(bytes, from, to - from, charset));
+                    insert(Arrays.copyOfRange(bytes, from, to), hash, id);
+                    return id;
+                }
+                if (hashes[slot] == hash && Arrays.equals(key, 0, key.length, bytes, from, to)) {
+                    return ids[slot];
+                }
+            }
+        }
+
+        private void insert(byte[] key, int hash, int id) {
+            if (2 * (size + 1) > keys.length) {
+                byte[][] oldKeys = keys;
+                int[] oldIds = ids;
+                int[] oldHashes = hashes;
+                keys = new byte[oldKeys.length * 2][];
+                ids = new int[keys.length];
+                hashes = new int[keys.length];
+                for (int slot = 0; slot < oldKeys.length; slot++) {
+                    if (oldKeys[slot] != null) {
+                        put(oldKeys[slot], oldHashes[slot], oldIds[slot]);
+                    }
+                }
+            }
+            put(key, hash, id);
+            size++;
+        }
+
+        private void put(byte[] key, int hash, int id) {
+            int mask = keys.length - 1;
+            int slot = hash & mask;
+            while (keys[slot] != null) {
+                slot = (slot + 1) & mask;
+            }
+            keys[slot] = key;
+            ids[slot] = id;
+            hashes[slot] = hash;
+        }
+    }
+
+    /**
+     * Growable columns of parsed rows.
+     */
+    private final class Rows {
+        int[] nameIds = new int[1024];
+
+        int[] sellIn = new int[1024];
+
+        int[] quality = new int[1024];
+
+        int size;
+
+        void add(int nameId, int itemSellIn, int itemQuality) {
+            if (size == nameIds.length) {
+                nameIds = Arrays.copyOf(nameIds, size * 2);
+                sellIn = Arrays.copyOf(sellIn, size * 2);
+                quality = Arrays.copyOf(quality, size * 2);
+            }
+            nameIds[size] = nameId;
+            sellIn[size] = itemSellIn;
+            quality[size] = itemQuality;
+            size++;
+        }
+
+        Inventory toInventory() {
+            return new Inventory(Arrays.copyOf(nameIds, size), Arrays.copyOf(sellIn, size),
+                    Arrays.copyOf(quality, size), names, rules);
+        }
+    }
+}
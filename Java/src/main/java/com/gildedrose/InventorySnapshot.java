@@ -0,0 +1,153 @@
+package com.gildedrose;
+
+import java.util.AbstractList;
+import java.util.List;
+import java.util.Objects;
+import java.util.RandomAccess;
+
+/**
+ * The whole inventory as it stood at the end of one day, readable while later
+ * days are being computed. A snapshot keeps its day's buffer from being
+ * reused, so it should be closed as soon as the reader is done with it.
+ */
+final class InventorySnapshot implements AutoCloseable {
+    /**
+     * The rows of one day, as the store that took the snapshot lays them out.
+     */
+    interface Rows {
+        String name(int index);
+
+        int sellIn(int index);
+
+        int quality(int index);
+
+        /**
+         * Copies {@code count} rows starting at {@code from} into {@code batch}.
+         */
+        void read(int from, int count, ItemBatch batch);
+    }
+
+    private final Rows rows;
+
+    private final int day;
+
+    private final int size;
+
+    private Runnable release;
+
+    InventorySnapshot(Inventory inventory, int day, int[] quality, Runnable release) {
+        this(new Columns(inventory, day, quality), day, quality.length, release);
+    }
+
+    InventorySnapshot(Rows rows, int day, int size, Runnable release) {
+        this.rows = rows;
+        this.day = day;
+        this.size = size;
+        this.release = release;
+    }
+
+    /**
+     * Days elapsed between the creation of the inventory and this snapshot.
+     */
+    int day() {
+        return day;
+    }
+
+    int size() {
+        return size;
+    }
+
+    String name(int index) {
+        checkOpen();
+        return rows.name(index);
+    }
+
+    int sellIn(int index) {
+        checkOpen();
+        return rows.sellIn(index);
+    }
+
+    int quality(int index) {
+        checkOpen();
+        return rows.quality(index);
+    }
+
+    /**
+     * Copies {@code count} rows starting at {@code from} into {@code batch}.
+     */
+    void read(int from, int count, ItemBatch batch) {
+        checkOpen();
+        Objects.checkFromIndexSize(from, count, size);
+        rows.read(from, count, batch);
+    }
+
+    List<Item> items() {
+        class ItemView extends AbstractList<Item> implements RandomAccess {
+            @Override
+            public Item get(int index) {
+                Objects.checkIndex(index, size);
+                return new Item(name(index), sellIn(index), quality(index));
+            }
+
+            @Override
+            public int size() {
+                return size;
+            }
+        }
+        return new ItemView();
+    }
+
+    @Override
+    public void close() {
+        Runnable release = this.release;
+        if (release != null) {
+            this.release = null;
+            release.run();
+        }
+    }
+
+    private void checkOpen() {
+        if (release == null) {
+            throw new IllegalStateException("Snapshot has been closed");
+        }
+    }
+
+    /**
+     * The rows of an {@link Inventory} on one day, read from the quality
+     * buffer of that day's generation.
+     */
+    private static final class Columns implements Rows {
+        private final Inventory inventory;
+
+        private final int day;
+
+        private final int[] quality;
+
+        Columns(Inventory inventory, int day, int[] quality) {
+            this.inventory = inventory;
+            this.day = day;
+            this.quality = quality;
+        }
+
+        @Override
+        public String name(int index) {
+            return inventory.name(index);
+        }
+
+        @Override
+        public int sellIn(int index) {
+            return inventory.sellInOn(index, day);
+        }
+
+        @Override
+        public int quality(int index) {
+            return quality[index];
+        }
+
+        @Override
+        public void read(int from, int count, ItemBatch batch) {
+            System.arraycopy(quality, from, batch.qualities(), 0, count);
+            inventory.read(from, count, day, batch);
+        }
+    }
+}
@@ -0,0 +1,93 @@
+package com.gildedrose;
+
+/**
+ * A caller-owned block of consecutive rows in primitive columns, filled by an
+ * {@link ItemCursor}. Refilling a batch overwrites it, so one batch serves a
+ * whole scan without allocating per item.
+ */
+final class ItemBatch {
+    private final int[] nameIds;
+
+    private final int[] sellIn;
+
+    private final int[] quality;
+
+    private NameTable names;
+
+    private int start;
+
+    private int size;
+
+    ItemBatch(int capacity) {
+        if (capacity <= 0) {
+            throw new IllegalArgumentException("capacity must be positive: " + capacity);
+        }
+        nameIds = new int[capacity];
+        sellIn = new int[capacity];
+        quality = new int[capacity];
+    }
+
+    int capacity() {
+        return nameIds.length;
+    }
+
+    /**
+     * Number of rows filled in.
+     */
+    int size() {
+        return size;
+    }
+
+    /**
+     * Index in the stock of the first row.
+     */
+    int start() {
+        return start;
+    }
+
+    int nameId(int row) {
+        return nameIds[row];
+    }
+
+    String name(int row) {
+        return names.name(nameIds[row]);
+    }
+
+    int sellIn(int row) {
+        return sellIn[row];
+    }
+
+    int quality(int row) {
+        return quality[row];
+    }
+
+    /**
+     * The name id column, valid up to {@link #size()}, for loops that read it
+     * directly.
+     */
+    int[] nameIds() {
+        return nameIds;
+    }
+
+    int[] sellIns() {
+        return sellIn;
+    }
+
+    int[] qualities() {
+        return quality;
+    }
+
+    NameTable names() {
+        return names;
+    }
+
+    /**
+     * Marks the batch as holding {@code size} rows from index {@code start},
+     * which the caller then writes into the columns.
+     */
+    void reset(NameTable names, int start, int size) {
+        this.names = names;
+        this.start = start;
+        this.size = size;
+    }
+}
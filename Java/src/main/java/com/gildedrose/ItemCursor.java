@@ -0,0 +1,166 @@
+package com.gildedrose;
+
+import java.util.Objects;
+import java.util.Spliterator;
+import java.util.function.Consumer;
+import java.util.stream.Stream;
+import java.util.stream.StreamSupport;
+
+/**
+ * Scans the stock of a {@link GildedRose} in {@link ItemBatch}es rather than
+ * as one {@link Item} per element.
+ * <p>
+ * Stores that support snapshots are read as of the day the cursor was opened,
+ * however many rollovers run meanwhile; the cursor holds that day's buffer
+ * until it is closed. Rows are copied column by column, so a scan touches
+ * memory in order and allocates nothing per item. {@link #spliterator} splits
+ * on batch boundaries, for parallel streams in which each part fills its own
+ * batch.
+ */
+final class ItemCursor implements AutoCloseable {
+    static final int DEFAULT_BATCH_SIZE = 1024;
+
+    /**
+     * Copies {@code count} rows starting at {@code from} into a batch.
+     */
+    interface Reader {
+        void read(int from, int count, ItemBatch batch);
+    }
+
+    private final int size;
+
+    private final NameTable names;
+
+    private final Reader reader;
+
+    private Runnable release;
+
+    private boolean closed;
+
+    private int position;
+
+    ItemCursor(int size, NameTable names, Reader reader, Runnable release) {
+        this.size = size;
+        this.names = names;
+        this.reader = reader;
+        this.release = release;
+    }
+
+    int size() {
+        return size;
+    }
+
+    /**
+     * Fills {@code batch} with the next rows, as many as it holds, and answers
+     * whether there were any.
+     */
+    boolean next(ItemBatch batch) {
+        if (position >= size) {
+            return false;
+        }
+
+        int count = Math.min(batch.capacity(), size - position);
+        fill(position, count, batch);
+        position += count;
+        return true;
+    }
+
+    private void fill(int from, int count, ItemBatch batch) {
+        checkOpen();
+        batch.reset(names, from, count);
+        reader.read(from, count, batch);
+    }
+
+    /**
+     * All rows as batches of up to {@code batchSize}. Each part of a split
+     * reuses one batch of its own, which is only valid until its consumer
+     * returns.
+     */
+    Spliterator<ItemBatch> spliterator(int batchSize) {
+        if (batchSize <= 0) {
+            throw new IllegalArgumentException("batchSize must be positive: " + batchSize);
+        }
+        checkOpen();
+        return new Batches(0, size, batchSize);
+    }
+
+    Stream<ItemBatch> stream(int batchSize, boolean parallel) {
+        return StreamSupport.stream(spliterator(batchSize), parallel);
+    }
+
+    /**
+     * Releases the day being read. Batches already filled stay valid, but
+     * the cursor and its spliterators read no more.
+     */
+    @Override
+    public void close() {
+        Runnable release = this.release;
+        this.release = null;
+        closed = true;
+        if (release != null) {
+            release.run();
+        }
+    }
+
+    private void checkOpen() {
+        if (closed) {
+            throw new IllegalStateException("Cursor has been closed");
+        }
+    }
+
+    private final class Batches implements Spliterator<ItemBatch> {
+        private int from;
+
+        private final int to;
+
+        private final int batchSize;
+
+        private ItemBatch batch;
+
+        Batches(int from, int to, int batchSize) {
+            this.from = from;
+            this.to = to;
+            this.batchSize = batchSize;
+        }
+
+        @Override
+        public boolean tryAdvance(Consumer<? super ItemBatch> action) {
+            Objects.requireNonNull(action);
+            if (from >= to) {
+                return false;
+            }
+            if (batch == null) {
+                batch = new ItemBatch(batchSize);
+            }
+
+            int count = Math.min(batchSize, to - from);
+            fill(from, count, batch);
+            from += count;
+            action.accept(batch);
+            return true;
+        }
+
+        @Override
+        public Spliterator<ItemBatch> trySplit() {
+            int batches = (to - from + batchSize - 1) / batchSize;
+            if (batches < 2) {
+                return null;
+            }
+
+            int middle = from + batches / 2 * batchSize;
+            Batches prefix = new Batches(from, middle, batchSize);
+            from = middle;
+            return prefix;
+        }
+
+        @Override
+        public long estimateSize() {
+            return ((long) to - from + batchSize - 1) / batchSize;
+        }
+
+        @Override
+        public int characteristics() {
+            return ORDERED | SIZED | SUBSIZED | NONNULL;
+        }
+    }
+}
@@ -0,0 +1,282 @@
+package com.gildedrose;
+
+import java.util.Arrays;
+import java.util.function.IntSupplier;
+
+/**
+ * Secondary indexes over an {@link ItemStore} that answer range queries by
+ * category, sell-in and quality in time proportional to the answer rather
+ * than to the size of the stock.
+ * <p>
+ * The rows of each category are kept sorted by the sell-in they were loaded
+ * with. Every row of a category ages its sell-in by the same amount, so a
+ * sell-in range today is the loaded range shifted by the day counter and the
+ * order never has to be rebuilt. Quality is bucketed per category, one bucket
+ * for each value from 0 to 50 plus one either side, and the inventory moves
+ * the rows whose quality left their bucket after each rollover.
+ * <p>
+ * Rows are the store's positions and sell-ins are anchored to the day the
+ * store counts from, whichever tier or buffer holds them.
+ * <p>
+ * Queries return row indexes in no particular order and read the latest
+ * completed day. They must not run while a rollover is in progress.
+ */
+final class ItemIndex {
+    private static final int MAX_QUALITY = 50;
+
+    private static final int BELOW = 0;
+
+    private static final int ABOVE = MAX_QUALITY + 2;
+
+    private static final int BUCKETS = ABOVE + 1;
+
+    private final ItemStore store;
+
+    private final IntSupplier day;
+
+    private final RuleBook rules;
+
+    private final byte[] kinds;
+
+    private final int[][] sellInAnchors;
+
+    private final int[][] sellInRows;
+
+    private final int[][] bucketRows;
+
+    private final int[] bucketSizes;
+
+    private final int[] slots;
+
+    /**
+     * @param day   days elapsed since the store's day 0, which {@code sellIn}
+     *              holds the sell-ins of
+     * @param kinds kept by the index, so must not change afterwards
+     */
+    ItemIndex(ItemStore store, IntSupplier day, RuleBook rules, byte[] kinds, int[] sellIn, int[] quality) {
+        this.store = store;
+        this.day = day;
+        this.rules = rules;
+        this.kinds = kinds;
+
+        int categories = rules.ruleCount();
+        int[] categorySizes = new int[categories];
+        bucketSizes = new int[categories * BUCKETS];
+        for (int i = 0; i < kinds.length; i++) {
+            categorySizes[kinds[i] & 0xFF]++;
+            bucketSizes[bucket(kinds[i], quality[i])]++;
+        }
+
+        long[][] sorted = new long[categories][];
+        for (int k = 0; k < categories; k++) {
+            sorted[k] = new long[categorySizes[k]];
+            categorySizes[k] = 0;
+        }
+        bucketRows = new int[bucketSizes.length][];
+        for (int b = 0; b < bucketSizes.length; b++) {
+            bucketRows[b] = new int[bucketSizes[b]];
+            bucketSizes[b] = 0;
+        }
+
+        slots = new int[kinds.length];
+        for (int i = 0; i < kinds.length; i++) {
+            int k = kinds[i] & 0xFF;
+            sorted[k][categorySizes[k]++] = (long) sellIn[i] << 32 | i;
+            add(bucket(kinds[i], quality[i]), i);
+        }
+
+        sellInAnchors = new int[categories][];
+        sellInRows = new int[categories][];
+        for (int k = 0; k < categories; k++) {
+            long[] rows = sorted[k];
+            Arrays.sort(rows);
+            sellInAnchors[k] = new int[rows.length];
+            sellInRows[k] = new int[rows.length];
+            for (int j = 0; j < rows.length; j++) {
+                sellInAnchors[k][j] = (int) (rows[j] >> 32);
+                sellInRows[k][j] = (int) rows[j];
+            }
+        }
+    }
+
+    /**
+     * Rows whose items follow {@code rule}.
+     */
+    int[] category(QualityRule rule) {
+        return sellInRows[rules.kindOf(rule) & 0xFF].clone();
+    }
+
+    /**
+     * Rows whose sell-in today lies between {@code min} and {@code max} inclusive.
+     */
+    int[] sellInBetween(int min, int max) {
+        Rows result = new Rows();
+        for (int k = 0; k < sellInRows.length; k++) {
+            sellInBetween((byte) k, min, max, result);
+        }
+        return result.toArray();
+    }
+
+    /**
+     * Rows following {@code rule} whose sell-in today lies between {@code min}
+     * and {@code max} inclusive.
+     */
+    int[] sellInBetween(QualityRule rule, int min, int max) {
+        Rows result = new Rows();
+        sellInBetween(rules.kindOf(rule), min, max, result);
+        return result.toArray();
+    }
+
+    private void sellInBetween(byte kind, int min, int max, Rows result) {
+        int[] anchors = sellInAnchors[kind & 0xFF];
+        int[] rows = sellInRows[kind & 0xFF];
+        long offset = rules.agesSellIn(kind) ? day.getAsInt() : 0;
+        long high = max + offset;
+
+        int from = firstAtLeast(anchors, min + offset);
+        int to = from;
+        while (to < anchors.length && anchors[to] <= high) {
+            to++;
+        }
+        result.add(rows, from, to);
+    }
+
+    private static int firstAtLeast(int[] anchors, long key) {
+        int low = 0;
+        int high = anchors.length;
+        while (low < high) {
+            int mid = (low + high) >>> 1;
+            if (anchors[mid] < key) {
+                low = mid + 1;
+            } else {
+                high = mid;
+            }
+        }
+        return low;
+    }
+
+    /**
+     * Rows whose quality lies between {@code min} and {@code max} inclusive.
+     */
+    int[] qualityBetween(int min, int max) {
+        Rows result = new Rows();
+        for (int k = 0; k < sellInRows.length; k++) {
+            qualityBetween((byte) k, min, max, result);
+        }
+        return result.toArray();
+    }
+
+    /**
+     * Rows following {@code rule} whose quality lies between {@code min} and
+     * {@code max} inclusive.
+     */
+    int[] qualityBetween(QualityRule rule, int min, int max) {
+        Rows result = new Rows();
+        qualityBetween(rules.kindOf(rule), min, max, result);
+        return result.toArray();
+    }
+
+    private void qualityBetween(byte kind, int min, int max, Rows result) {
+        if (min > max) {
+            return;
+        }
+
+        int first = bucket(kind, min);
+        int last = bucket(kind, max);
+        for (int b = first; b <= last; b++) {
+            int[] rows = bucketRows[b];
+            int size = bucketSizes[b];
+            int offset = b % BUCKETS;
+            if (offset != BELOW && offset != ABOVE) {
+                result.add(rows, 0, size);
+                continue;
+            }
+            for (int j = 0; j < size; j++) {
+                int quality = store.quality(rows[j]);
+                if (quality >= min && quality <= max) {
+                    result.add(rows[j]);
+                }
+            }
+        }
+    }
+
+    /**
+     * Re-buckets the rows of {@code active} whose quality went from
+     * {@code before} to {@code after} in the rollover that just finished.
+     * Rows the rollover marked as settled are stored as their complement.
+     */
+    void qualityChanged(int[] before, int[] after, int[] active, int count) {
+        byte[] kinds = this.kinds;
+        for (int j = 0; j < count; j++) {
+            int i = active[j];
+            if (i < 0) {
+                i = ~i;
+            }
+            qualityChanged(i, before[i], after[i]);
+        }
+    }
+
+    /**
+     * Re-buckets {@code row}, whose quality went from {@code before} to
+     * {@code after} in the rollover that just finished.
+     */
+    void qualityChanged(int row, int before, int after) {
+        int from = bucket(kinds[row], before);
+        int to = bucket(kinds[row], after);
+        if (from != to) {
+            remove(from, row);
+            add(to, row);
+        }
+    }
+
+    private static int bucket(byte kind, int quality) {
+        int offset = quality < 0 ? BELOW : quality > MAX_QUALITY ? ABOVE : quality + 1;
+        return (kind & 0xFF) * BUCKETS + offset;
+    }
+
+    private void add(int bucket, int row) {
+        int[] rows = bucketRows[bucket];
+        int size = bucketSizes[bucket];
+        if (size == rows.length) {
+            rows = Arrays.copyOf(rows, Math.max(4, size * 2));
+            bucketRows[bucket] = rows;
+        }
+        rows[size] = row;
+        slots[row] = size;
+        bucketSizes[bucket] = size + 1;
+    }
+
+    private void remove(int bucket, int row) {
+        int[] rows = bucketRows[bucket];
+        int last = rows[--bucketSizes[bucket]];
+        int slot = slots[row];
+        rows[slot] = last;
+        slots[last] = slot;
+    }
+
+    private static final class Rows {
+        private int[] rows = new int[16];
+
+        private int size;
+
+        void add(int row) {
+            if (size == rows.length) {
+                rows = Arrays.copyOf(rows, size * 2);
+            }
+            rows[size++] = row;
+        }
+
+        void add(int[] source, int from, int to) {
+            int count = to - from;
+            if (size + count > rows.length) {
+                rows = Arrays.copyOf(rows, Math.max(size + count, rows.length * 2));
+            }
+            System.arraycopy(source, from, rows, size, count);
+            size += count;
+        }
+
+        int[] toArray() {
+            return Arrays.copyOf(rows, size);
+        }
+    }
+}
@@ -0,0 +1,161 @@
+package com.gildedrose;
+
+/**
+ * Byte tags of the built-in rules, and the rules themselves as static
+ * functions. Rules take the sell-in at the start of the day(s) being aged.
+ * {@link RuleBook} gives tags from {@link #FIRST_CUSTOM} onwards to rules it
+ * is extended with.
+ */
+final class ItemKind {
+    static final byte NORMAL = 0;
+
+    static final byte AGED_BRIE = 1;
+
+    static final byte BACKSTAGE_PASSES = 2;
+
+    static final byte SULFURAS = 3;
+
+    static final byte CONJURED = 4;
+
+    static final byte FIRST_CUSTOM = 5;
+
+    private ItemKind() {
+    }
+
+    static int sellInAfter(byte kind, int sellIn, int days) {
+        return kind == SULFURAS ? sellIn : sellIn - days;
+    }
+
+    /**
+     * Whether an item has reached a state its quality can never leave, however
+     * many more days pass: Sulfuras, normal and conjured items that have run
+     * out of quality, Aged Brie at 50 and passes for a concert that is over.
+     */
+    static boolean isSettled(byte kind, int sellIn, int quality) {
+        switch (kind) {
+            case AGED_BRIE:
+                return quality >= 50;
+            case BACKSTAGE_PASSES:
+                return sellIn <= 0 && quality == 0;
+            case SULFURAS:
+                return true;
+            default:
+                return quality <= 0;
+        }
+    }
+
+    /**
+     * Quality at the end of one day.
+     */
+    static int age(byte kind, int sellIn, int quality) {
+        switch (kind) {
+            case AGED_BRIE:
+                return agedBrie(sellIn - 1, quality);
+            case BACKSTAGE_PASSES:
+                return backstagePasses(sellIn, quality);
+            case SULFURAS:
+                return quality;
+            case CONJURED:
+                return degrade(sellIn - 1, quality, 2);
+            default:
+                return degrade(sellIn - 1, quality, 1);
+        }
+    }
+
+    /**
+     * Quality at the end of {@code days} days, evaluated in closed form. The
+     * result is the same as applying {@link #age(byte, int, int)} once per day.
+     */
+    static int age(byte kind, int sellIn, int quality, int days) {
+        switch (kind) {
+            case AGED_BRIE:
+                return agedBrie(sellIn, quality, days);
+            case BACKSTAGE_PASSES:
+                return backstagePasses(sellIn, quality, days);
+            case SULFURAS:
+                return quality;
+            case CONJURED:
+                return degrade(sellIn, quality, 2, days);
+            default:
+                return degrade(sellIn, quality, 1, days);
+        }
+    }
+
+    /**
+     * Number of the next {@code days} days that end with the sell-in below {@code threshold}.
+     */
+    private static long daysEndingBelow(int sellIn, int threshold, int days) {
+        return days - Math.min(days, Math.max(0L, (long) sellIn - threshold));
+    }
+
+    private static int agedBrie(int sellIn, int quality, int days) {
+        if (quality >= 50) {
+            return quality;
+        }
+        return (int) Math.min(50, quality + days + daysEndingBelow(sellIn, 0, days));
+    }
+
+    private static int backstagePasses(int sellIn, int quality, int days) {
+        if (daysEndingBelow(sellIn, 0, days) > 0) {
+            return 0;
+        }
+        if (quality >= 50) {
+            return quality;
+        }
+
+        // thresholds apply to the sell-in at the start of each day
+        long increase = days + daysEndingBelow(sellIn, 10, days) + daysEndingBelow(sellIn, 5, days);
+        return (int) Math.min(50, quality + increase);
+    }
+
+    private static int degrade(int sellIn, int quality, int rate, int days) {
+        if (quality <= 0) {
+            return quality;
+        }
+
+        long decrements = days + daysEndingBelow(sellIn, 0, days);
+        long needed = (quality + rate - 1) / rate;
+        return (int) (quality - rate * Math.min(decrements, needed));
+    }
+
+    private static int agedBrie(int sellIn, int quality) {
+        if (quality < 50) {
+            quality++;
+
+            if (sellIn < 0 && quality < 50) {
+                quality++;
+            }
+        }
+        return quality;
+    }
+
+    private static int backstagePasses(int sellIn, int quality) {
+        if (sellIn - 1 < 0) {
+            return 0;
+        }
+
+        if (quality < 50) {
+            quality++;
+
+            if (sellIn < 11 && quality < 50) {
+                quality++;
+            }
+
+            if (sellIn < 6 && quality < 50) {
+                quality++;
+            }
+        }
+        return quality;
+    }
+
+    private static int degrade(int sellIn, int quality, int rate) {
+        if (quality > 0) {
+            quality -= rate;
+
+            if (sellIn < 0 && quality > 0) {
+                quality -= rate;
+            }
+        }
+        return quality;
+    }
+}
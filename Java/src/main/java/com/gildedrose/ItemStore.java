@@ -0,0 +1,123 @@
+package com.gildedrose;
+
+import java.util.AbstractList;
+import java.util.List;
+import java.util.Objects;
+import java.util.RandomAccess;
+
+/**
+ * Where a {@link GildedRose} keeps its stock. Implementations hold items as
+ * rows of a name id, a sell-in and a quality and age them in place.
+ * <p>
+ * Features that not every store can offer are separate capabilities, such as
+ * {@link Snapshots} and {@link Aggregated}, which a store declares by
+ * implementing them alongside this interface.
+ */
+interface ItemStore {
+    int size();
+
+    NameTable names();
+
+    int nameId(int index);
+
+    int sellIn(int index);
+
+    int quality(int index);
+
+    void updateQuality(Parallelism parallelism);
+
+    /**
+     * Starts counting each item the store ages into {@code metrics}, or stops
+     * counting when given {@code null}. Call between rollovers.
+     */
+    void setMetrics(UpdateMetrics metrics);
+
+    /**
+     * Moves every item forward by {@code days} days at once. The outcome is the
+     * same as {@code days} calls to {@link #updateQuality(Parallelism)}.
+     */
+    void advance(int days, Parallelism parallelism);
+
+    /**
+     * A cursor that copies the stock out in batches. Stores without snapshots
+     * read each row live, so it should not run alongside a rollover.
+     */
+    default ItemCursor cursor() {
+        return new ItemCursor(size(), names(), (from, count, batch) -> {
+            int[] nameIds = batch.nameIds();
+            int[] sellIns = batch.sellIns();
+            int[] qualities = batch.qualities();
+            for (int j = 0; j < count; j++) {
+                nameIds[j] = nameId(from + j);
+                sellIns[j] = sellIn(from + j);
+                qualities[j] = quality(from + j);
+            }
+        }, null);
+    }
+
+    default String name(int index) {
+        return names().name(nameId(index));
+    }
+
+    /**
+     * A read-only list whose elements are materialised from the store on access.
+     */
+    default List<Item> asList() {
+        class ItemView extends AbstractList<Item> implements RandomAccess {
+            @Override
+            public Item get(int index) {
+                Objects.checkIndex(index, size());
+                return new Item(name(index), sellIn(index), quality(index));
+            }
+
+            @Override
+            public int size() {
+                return ItemStore.this.size();
+            }
+        }
+        return new ItemView();
+    }
+
+    /**
+     * A store that can keep a day's stock readable while later days run.
+     */
+    interface Snapshots {
+        /**
+         * A consistent view of the stock at the end of the latest day,
+         * unaffected by rollovers that run while it is open.
+         */
+        InventorySnapshot snapshot();
+    }
+
+    /**
+     * A store that keeps secondary indexes over its stock.
+     */
+    interface Indexed {
+        /**
+         * Indexes that answer range queries over the stock without a full scan.
+         */
+        ItemIndex index();
+    }
+
+    /**
+     * A store that keeps totals per category as it ages its stock.
+     */
+    interface Aggregated {
+        /**
+         * Totals per category kept current by every rollover.
+         */
+        StockAggregates aggregates();
+    }
+
+    /**
+     * A store that can report what each rollover changed.
+     */
+    interface ChangeCapture {
+        /**
+         * Starts reporting each rollover's changes to {@code sink} in batches
+         * of up to {@code batchSize} items, or stops when given {@code null}.
+         * Call between rollovers.
+         */
+        void setDeltaSink(DeltaSink sink, int batchSize);
+    }
+}
@@ -0,0 +1,321 @@
+package com.gildedrose;
+
+import java.io.Closeable;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.IntBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Objects;
+
+import static java.nio.charset.StandardCharsets.UTF_8;
+import static java.nio.file.StandardOpenOption.CREATE;
+import static java.nio.file.StandardOpenOption.READ;
+import static java.nio.file.StandardOpenOption.TRUNCATE_EXISTING;
+import static java.nio.file.StandardOpenOption.WRITE;
+
+/**
+ * An inventory file mapped into memory and aged in place.
+ * <p>
+ * The file is a header, a dictionary of the distinct item names and three
+ * fixed-width little-endian {@code int} columns: dictionary index, sell-in and
+ * quality. Opening a file only reads the dictionary; rows are read and written
+ * through the mapping, so updates land in the OS page cache and reach the disk
+ * when the kernel writes them back or when {@link #force()} is called.
+ *
+ * <pre>
+ * offset  size
+ *      0     4  magic "GRIF"
+ *      4     4  format version
+ *      8     4  item count
+ *     12     4  name count
+ *     16     8  offset of the first column
+ *     24     8  reserved
+ *     32        names: length-prefixed UTF-8, then padding to 8 bytes
+ *              name index column, sell-in column, quality column
+ * </pre>
+ */
+final class MappedInventory implements ItemStore, Closeable {
+    static final int MAGIC = 0x46495247;
+
+    static final int VERSION = 1;
+
+    private static final int HEADER_SIZE = 32;
+
+    /** Rows per mapped segment, keeping each mapping of an int column at 1 GiB. */
+    static final int SEGMENT_ITEMS = 1 << 28;
+
+    /** The most rows whose int column still fits in one mapping. */
+    static final int MAX_SEGMENT_ITEMS = Integer.MAX_VALUE / Integer.BYTES;
+
+    private final FileChannel channel;
+
+    private final NameTable names;
+
+    private final RuleBook rules;
+
+    private final int size;
+
+    private final int segmentItems;
+
+    private final int[] nameIds;
+
+    private final byte[] kinds;
+
+    private final IntBuffer[] localIds;
+
+    private final IntBuffer[] sellIn;
+
+    private final IntBuffer[] quality;
+
+    private final Columns columns = new Columns();
+
+    private UpdateMetrics metrics;
+
+    private MappedInventory(FileChannel channel, NameTable names, RuleBook rules, int segmentItems)
+            throws IOException {
+        this.channel = channel;
+        this.names = names;
+        this.rules = rules;
+        this.segmentItems = segmentItems;
+
+        ByteBuffer header = ByteBuffer.allocate(HEADER_SIZE).order(ByteOrder.LITTLE_ENDIAN);
+        readFully(header, 0);
+        header.flip();
+        if (header.getInt() != MAGIC) {
+            throw new IOException("Not an inventory file");
+        }
+        int version = header.getInt();
+        if (version != VERSION) {
+            throw new IOException("Unsupported inventory file version " + version);
+        }
+        size = header.getInt();
+        int nameCount = header.getInt();
+        long columns = header.getLong();
+        if (size < 0 || nameCount < 0 || columns < HEADER_SIZE || columns - HEADER_SIZE > Integer.MAX_VALUE) {
+            throw new IOException("Corrupt inventory header");
+        }
+        // a read-write mapping past the end would grow the file rather than fail
+        if (columns + 12L * size > channel.size()) {
+            throw new IOException("Truncated inventory file");
+        }
+
+        ByteBuffer dictionary = ByteBuffer.allocate((int) (columns - HEADER_SIZE)).order(ByteOrder.LITTLE_ENDIAN);
+        readFully(dictionary, HEADER_SIZE);
+        dictionary.flip();
+        nameIds = new int[nameCount];
+        kinds = new byte[nameCount];
+        for (int i = 0; i < nameCount; i++) {
+            int length = dictionary.remaining() < 4 ? -1 : dictionary.getInt();
+            if (length < 0 || length > dictionary.remaining()) {
+                throw new IOException("Corrupt inventory dictionary");
+            }
+            byte[] name = new byte[length];
+            dictionary.get(name);
+            String decoded = new String(name, UTF_8);
+            nameIds[i] = names.intern(decoded);
+            kinds[i] = rules.kindOf(decoded);
+        }
+
+        int segments = SegmentedRollover.segmentCount(size, segmentItems);
+        localIds = new IntBuffer[segments];
+        sellIn = new IntBuffer[segments];
+        quality = new IntBuffer[segments];
+        for (int segment = 0; segment < segments; segment++) {
+            localIds[segment] = map(columns, segment);
+            sellIn[segment] = map(columns + 4L * size, segment);
+            quality[segment] = map(columns + 8L * size, segment);
+        }
+    }
+
+    /**
+     * Maps an existing inventory file for reading and updating in place.
+     */
+    static MappedInventory open(Path path) throws IOException {
+        return open(path, NameTable.SHARED, RuleBook.STANDARD, SEGMENT_ITEMS);
+    }
+
+    static MappedInventory open(Path path, NameTable names, RuleBook rules, int segmentItems) throws IOException {
+        checkSegmentItems(segmentItems);
+        Objects.requireNonNull(names);
+        Objects.requireNonNull(rules);
+        FileChannel channel = FileChannel.open(path, READ, WRITE);
+        try {
+            return new MappedInventory(channel, names, rules, segmentItems);
+        } catch (IOException | RuntimeException e) {
+            channel.close();
+            throw e;
+        }
+    }
+
+    /**
+     * Writes {@code items} to a new inventory file at {@code path}, replacing any
+     * existing file, and returns it mapped.
+     */
+    static MappedInventory create(Path path, List<Item> items) throws IOException {
+        return create(path, items, NameTable.SHARED, RuleBook.STANDARD, SEGMENT_ITEMS);
+    }
+
+    static MappedInventory create(Path path, List<Item> items, NameTable names, RuleBook rules, int segmentItems)
+            throws IOException {
+        checkSegmentItems(segmentItems);
+        Objects.requireNonNull(names);
+        Objects.requireNonNull(rules);
+        Map<String, Integer> dictionary = new LinkedHashMap<>();
+        for (Item item : items) {
+            Objects.requireNonNull(item);
+            dictionary.putIfAbsent(Objects.requireNonNull(item.name), dictionary.size());
+        }
+
+        List<byte[]> encoded = new ArrayList<>(dictionary.size());
+        long columns = HEADER_SIZE;
+        for (String name : dictionary.keySet()) {
+            byte[] bytes = name.getBytes(UTF_8);
+            encoded.add(bytes);
+            columns += 4 + bytes.length;
+        }
+        columns = (columns + 7) & ~7L;
+
+        FileChannel channel = FileChannel.open(path, CREATE, TRUNCATE_EXISTING, READ, WRITE);
+        try {
+            ByteBuffer head = ByteBuffer.allocate((int) columns).order(ByteOrder.LITTLE_ENDIAN);
+            head.putInt(MAGIC).putInt(VERSION).putInt(items.size()).putInt(dictionary.size()).putLong(columns);
+            head.position(HEADER_SIZE);
+            for (byte[] bytes : encoded) {
+                head.putInt(bytes.length).put(bytes);
+            }
+            head.clear();
+            while (head.hasRemaining()) {
+                channel.write(head, head.position());
+            }
+            // extend the file to its full length so the columns can be mapped
+            channel.write(ByteBuffer.allocate(1), columns + 12L * items.size() - 1);
+
+            MappedInventory inventory = new MappedInventory(channel, names, rules, segmentItems);
+            int i = 0;
+            for (Item item : items) {
+                int segment = i / segmentItems;
+                int offset = i % segmentItems;
+                inventory.localIds[segment].put(offset, dictionary.get(item.name));
+                inventory.sellIn[segment].put(offset, item.sellIn);
+                inventory.quality[segment].put(offset, item.quality);
+                i++;
+            }
+            return inventory;
+        } catch (IOException | RuntimeException e) {
+            channel.close();
+            throw e;
+        }
+    }
+
+    private static void checkSegmentItems(int segmentItems) {
+        if (segmentItems < 1 || segmentItems > MAX_SEGMENT_ITEMS) {
+            throw new IllegalArgumentException(
+                    "segmentItems must be between 1 and " + MAX_SEGMENT_ITEMS + ": " + segmentItems);
+        }
+    }
+
+    @Override
+    public int size() {
+        return size;
+    }
+
+    @Override
+    public NameTable names() {
+        return names;
+    }
+
+    @Override
+    public int nameId(int index) {
+        Objects.checkIndex(index, size);
+        return nameIds[localIds[index / segmentItems].get(index % segmentItems)];
+    }
+
+    @Override
+    public int sellIn(int index) {
+        Objects.checkIndex(index, size);
+        return sellIn[index / segmentItems].get(index % segmentItems);
+    }
+
+    @Override
+    public int quality(int index) {
+        Objects.checkIndex(index, size);
+        return quality[index / segmentItems].get(index % segmentItems);
+    }
+
+    @Override
+    public void setMetrics(UpdateMetrics metrics) {
+        this.metrics = metrics;
+    }
+
+    @Override
+    public void updateQuality(Parallelism parallelism) {
+        parallelism.run(size, (from, to) -> SegmentedRollover.age(columns, segmentItems, rules, metrics, from, to, 1));
+    }
+
+    @Override
+    public void advance(int days, Parallelism parallelism) {
+        if (days == 0) {
+            return;
+        }
+
+        parallelism.run(size, (from, to) -> SegmentedRollover.age(columns, segmentItems, rules, metrics, from, to,
+                days));
+    }
+
+    /**
+     * Flushes changes made through the mapping to the storage device.
+     */
+    void force() throws IOException {
+        channel.force(false);
+    }
+
+    /**
+     * Closes the file. The mapping itself is released when it is garbage
+     * collected, and must not be used after this call.
+     */
+    @Override
+    public void close() throws IOException {
+        channel.close();
+    }
+
+    private final class Columns implements SegmentedRollover.Segments {
+        @Override
+        public SegmentedRollover.Kinds kinds(int segment) {
+            IntBuffer ids = localIds[segment];
+            return offset -> kinds[ids.get(offset)];
+        }
+
+        @Override
+        public IntBuffer sellIn(int segment) {
+            return sellIn[segment];
+        }
+
+        @Override
+        public IntBuffer quality(int segment) {
+            return quality[segment];
+        }
+    }
+
+    private IntBuffer map(long column, int segment) throws IOException {
+        long first = (long) segment * segmentItems;
+        int count = (int) Math.min(segmentItems, size - first);
+        return channel.map(FileChannel.MapMode.READ_WRITE, column + 4 * first, 4L * count)
+                .order(ByteOrder.LITTLE_ENDIAN)
+                .asIntBuffer();
+    }
+
+    private void readFully(ByteBuffer buffer, long position) throws IOException {
+        while (buffer.hasRemaining()) {
+            if (channel.read(buffer, position + buffer.position()) < 0) {
+                throw new IOException("Truncated inventory file");
+            }
+        }
+    }
+}
@@ -0,0 +1,242 @@
+package com.gildedrose;
+
+import java.lang.reflect.Field;
+import java.lang.reflect.Method;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.IntBuffer;
+import java.util.List;
+import java.util.Objects;
+
+/**
+ * Inventory columns kept in native memory, outside the garbage-collected heap.
+ * <p>
+ * Rows are split into segments, each one direct {@link ByteBuffer} holding a
+ * name id column, a sell-in column, a quality column and a column of rule
+ * tags. The heap holds only the handful of buffer objects, so a catalog of
+ * hundreds of millions of items adds nothing for the collector to trace.
+ * {@link #close()} hands the memory back to the operating system straight
+ * away; the inventory must not be used, from any thread, once it is closed.
+ */
+final class OffHeapInventory implements ItemStore, AutoCloseable {
+    /** Rows per segment, keeping each native allocation under 1 GiB. */
+    static final int SEGMENT_ITEMS = 1 << 26;
+
+    private static final int ROW_BYTES = 3 * Integer.BYTES + 1;
+
+    /** The most rows whose columns still fit in one buffer. */
+    static final int MAX_SEGMENT_ITEMS = Integer.MAX_VALUE / ROW_BYTES;
+
+    private static final Object UNSAFE;
+
+    private static final Method INVOKE_CLEANER;
+
+    static {
+        Object unsafe = null;
+        Method invokeCleaner = null;
+        try {
+            Class<?> unsafeClass = Class.forName("sun.misc.Unsafe");
+            Field theUnsafe = unsafeClass.getDeclaredField("theUnsafe");
+            theUnsafe.setAccessible(true);
+            unsafe = theUnsafe.get(null);
+            invokeCleaner = unsafeClass.getMethod("invokeCleaner", ByteBuffer.class);
+        } catch (ReflectiveOperationException | RuntimeException e) {
+            // without it, memory is released when the buffers are garbage collected
+        }
+        UNSAFE = unsafe;
+        INVOKE_CLEANER = invokeCleaner;
+    }
+
+    private final NameTable names;
+
+    private final RuleBook rules;
+
+    private final int size;
+
+    private final int segmentItems;
+
+    private ByteBuffer[] blocks;
+
+    private IntBuffer[] nameIds;
+
+    private IntBuffer[] sellIn;
+
+    private IntBuffer[] quality;
+
+    private ByteBuffer[] kinds;
+
+    private final Columns columns = new Columns();
+
+    private UpdateMetrics metrics;
+
+    OffHeapInventory(List<Item> items) {
+        this(items, NameTable.SHARED, RuleBook.STANDARD, SEGMENT_ITEMS);
+    }
+
+    OffHeapInventory(List<Item> items, NameTable names, RuleBook rules, int segmentItems) {
+        if (segmentItems < 1 || segmentItems > MAX_SEGMENT_ITEMS) {
+            throw new IllegalArgumentException(
+                    "segmentItems must be between 1 and " + MAX_SEGMENT_ITEMS + ": " + segmentItems);
+        }
+        this.names = Objects.requireNonNull(names);
+        this.rules = Objects.requireNonNull(rules);
+        this.size = items.size();
+        this.segmentItems = segmentItems;
+
+        int segments = SegmentedRollover.segmentCount(size, segmentItems);
+        blocks = new ByteBuffer[segments];
+        nameIds = new IntBuffer[segments];
+        sellIn = new IntBuffer[segments];
+        quality = new IntBuffer[segments];
+        kinds = new ByteBuffer[segments];
+        try {
+            for (int segment = 0; segment < segments; segment++) {
+                int rows = Math.min(segmentItems, size - segment * segmentItems);
+                ByteBuffer block = ByteBuffer.allocateDirect(rows * ROW_BYTES).order(ByteOrder.nativeOrder());
+                blocks[segment] = block;
+                nameIds[segment] = column(block, 0, rows).asIntBuffer();
+                sellIn[segment] = column(block, 1, rows).asIntBuffer();
+                quality[segment] = column(block, 2, rows).asIntBuffer();
+                kinds[segment] = column(block, 3, rows);
+            }
+            load(items);
+        } catch (RuntimeException | OutOfMemoryError e) {
+            close();
+            throw e;
+        }
+    }
+
+    private static ByteBuffer column(ByteBuffer block, int column, int rows) {
+        ByteBuffer view = block.duplicate().order(ByteOrder.nativeOrder());
+        view.position(column * Integer.BYTES * rows);
+        view.limit(column < 3 ? (column + 1) * Integer.BYTES * rows : block.capacity());
+        return view.slice().order(ByteOrder.nativeOrder());
+    }
+
+    private void load(List<Item> items) {
+        RuleBook.Resolver resolver = rules.resolver();
+        int i = 0;
+        for (Item item : items) {
+            Objects.requireNonNull(item);
+            Objects.requireNonNull(item.name);
+
+            int id = names.intern(item.name);
+
+            int segment = i / segmentItems;
+            int offset = i % segmentItems;
+            nameIds[segment].put(offset, id);
+            kinds[segment].put(offset, resolver.kindOf(id, item.name));
+            sellIn[segment].put(offset, item.sellIn);
+            quality[segment].put(offset, item.quality);
+            i++;
+        }
+    }
+
+    @Override
+    public int size() {
+        return size;
+    }
+
+    @Override
+    public NameTable names() {
+        return names;
+    }
+
+    @Override
+    public int nameId(int index) {
+        Objects.checkIndex(index, size);
+        return open(nameIds)[index / segmentItems].get(index % segmentItems);
+    }
+
+    @Override
+    public int sellIn(int index) {
+        Objects.checkIndex(index, size);
+        return open(sellIn)[index / segmentItems].get(index % segmentItems);
+    }
+
+    @Override
+    public int quality(int index) {
+        Objects.checkIndex(index, size);
+        return open(quality)[index / segmentItems].get(index % segmentItems);
+    }
+
+    @Override
+    public void setMetrics(UpdateMetrics metrics) {
+        this.metrics = metrics;
+    }
+
+    @Override
+    public void updateQuality(Parallelism parallelism) {
+        open(blocks);
+        parallelism.run(size, (from, to) -> SegmentedRollover.age(columns, segmentItems, rules, metrics, from, to, 1));
+    }
+
+    @Override
+    public void advance(int days, Parallelism parallelism) {
+        open(blocks);
+        if (days == 0) {
+            return;
+        }
+
+        parallelism.run(size, (from, to) -> SegmentedRollover.age(columns, segmentItems, rules, metrics, from, to,
+                days));
+    }
+
+    /**
+     * Releases the native memory. Further use of the inventory throws
+     * {@link IllegalStateException}.
+     */
+    @Override
+    public void close() {
+        ByteBuffer[] blocks = this.blocks;
+        if (blocks == null) {
+            return;
+        }
+
+        this.blocks = null;
+        nameIds = null;
+        sellIn = null;
+        quality = null;
+        kinds = null;
+        for (ByteBuffer block : blocks) {
+            if (block != null) {
+                free(block);
+            }
+        }
+    }
+
+    private static void free(ByteBuffer block) {
+        if (INVOKE_CLEANER == null) {
+            return;
+        }
+        try {
+            INVOKE_CLEANER.invoke(UNSAFE, block);
+        } catch (ReflectiveOperationException e) {
+            // left for the garbage collector
+        }
+    }
+
+    private static <T> T open(T columns) {
+        if (columns == null) {
+            throw new IllegalStateException("Inventory has been closed");
+        }
+        return columns;
+    }
+
+    private final class Columns implements SegmentedRollover.Segments {
+        @Override
+        public SegmentedRollover.Kinds kinds(int segment) {
+            return kinds[segment]::get;
+        }
+
+        @Override
+        public IntBuffer sellIn(int segment) {
+            return sellIn[segment];
+        }
+
+        @Override
+        public IntBuffer quality(int segment) {
+            return quality[segment];
+        }
+    }
+}
@@ -0,0 +1,87 @@
+package com.gildedrose;
+
+import java.util.Objects;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.RecursiveAction;
+
+/**
+ * How a pass over the inventory is spread across threads. Inventories smaller
+ * than the threshold are always processed on the calling thread; larger ones
+ * are cut into index ranges and run on a {@link ForkJoinPool}, whose own
+ * parallelism decides how many cores are used.
+ */
+final class Parallelism {
+    static final Parallelism SEQUENTIAL = new Parallelism(null, Integer.MAX_VALUE);
+
+    static final int DEFAULT_THRESHOLD = 1 << 16;
+
+    private final ForkJoinPool pool;
+
+    private final int threshold;
+
+    private Parallelism(ForkJoinPool pool, int threshold) {
+        this.pool = pool;
+        this.threshold = threshold;
+    }
+
+    static Parallelism of(ForkJoinPool pool, int threshold) {
+        Objects.requireNonNull(pool);
+        if (threshold < 1) {
+            throw new IllegalArgumentException("threshold must be positive: " + threshold);
+        }
+        return new Parallelism(pool, threshold);
+    }
+
+    static Parallelism of(ForkJoinPool pool) {
+        return of(pool, DEFAULT_THRESHOLD);
+    }
+
+    static Parallelism common() {
+        return of(ForkJoinPool.commonPool());
+    }
+
+    interface RangeAction {
+        void apply(int from, int to);
+    }
+
+    void run(int size, RangeAction action) {
+        if (size < threshold) {
+            action.apply(0, size);
+            return;
+        }
+
+        // a few chunks per worker so a slow core does not hold up the rest
+        int grain = Math.max(threshold / 2, size / (pool.getParallelism() * 4));
+        pool.invoke(new Chunk(action, 0, size, Math.max(1, grain)));
+    }
+
+    private static final class Chunk extends RecursiveAction {
+        private static final long serialVersionUID = 1L;
+
+        private final RangeAction action;
+
+        private final int from;
+
+        private final int to;
+
+        private final int grain;
+
+        Chunk(RangeAction action, int from, int to, int grain) {
+            this.action = action;
+            this.from = from;
+            this.to = to;
+            this.grain = grain;
+        }
+
+        @Override
+        protected void compute() {
+            if (to - from <= grain) {
+                action.apply(from, to);
+                return;
+            }
+
+            int middle = (from + to) >>> 1;
+            invokeAll(new Chunk(action, from, middle, grain), new Chunk(action, middle, to, grain));
+        }
+    }
+}
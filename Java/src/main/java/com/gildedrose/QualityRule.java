@@ -0,0 +1,43 @@
+package com.gildedrose;
+
+/**
+ * How one line of stock changes from day to day.
+ * <p>
+ * Rules are attached to item names through a {@link RuleBook} and resolved
+ * once when an item enters the shop. Each day the shop asks the rule for the
+ * new quality, passing the sell-in as it stood at the start of the day; the
+ * sell-in itself then counts down by one unless {@link #agesSellIn()} says
+ * otherwise.
+ */
+interface QualityRule {
+    /**
+     * Quality at the end of a day that started with the given sell-in and quality.
+     */
+    int age(int sellIn, int quality);
+
+    /**
+     * Quality at the end of {@code days} days. Rules that can do better than
+     * stepping one day at a time should override this.
+     */
+    default int age(int sellIn, int quality, int days) {
+        for (int day = 0; day < days; day++) {
+            quality = age(sellIn, quality);
+            if (agesSellIn()) {
+                sellIn--;
+            }
+        }
+        return quality;
+    }
+
+    default boolean agesSellIn() {
+        return true;
+    }
+
+    /**
+     * Whether the quality will never change again from this state, however many
+     * days pass. Settled items are no longer visited by the daily update.
+     */
+    default boolean isSettled(int sellIn, int quality) {
+        return false;
+    }
+}
@@ -0,0 +1,203 @@
+package com.gildedrose;
+
+import java.io.Flushable;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.nio.ByteBuffer;
+import java.nio.channels.WritableByteChannel;
+import java.nio.charset.Charset;
+import java.util.Arrays;
+import java.util.Objects;
+
+import static java.nio.charset.StandardCharsets.US_ASCII;
+
+/**
+ * Renders the "name, sellIn, quality" report straight into a reusable byte
+ * buffer and hands it to the underlying stream or channel in large chunks.
+ * <p>
+ * Each distinct name is encoded once and cached by its {@link NameTable} id,
+ * and numbers are formatted digit by digit, so writing a row allocates
+ * nothing. Names are encoded in the platform charset unless told otherwise,
+ * so the output is byte-for-byte what {@link java.io.PrintStream#println}
+ * produces for the same lines.
+ */
+final class ReportWriter implements Flushable {
+    static final int DEFAULT_BUFFER_SIZE = 1 << 16;
+
+    private static final byte[] LINE_SEPARATOR = System.lineSeparator().getBytes(US_ASCII);
+
+    private static final byte[] SEPARATOR = ", ".getBytes(US_ASCII);
+
+    private static final byte[] DAY_PREFIX = "-------- day ".getBytes(US_ASCII);
+
+    private static final byte[] DAY_SUFFIX = " --------".getBytes(US_ASCII);
+
+    private static final byte[] HEADER = "name, sellIn, quality".getBytes(US_ASCII);
+
+    private static final byte[] MIN_INT = Integer.toString(Integer.MIN_VALUE).getBytes(US_ASCII);
+
+    private final Charset charset;
+
+    private final OutputStream stream;
+
+    private final WritableByteChannel channel;
+
+    private byte[] buffer;
+
+    private int position;
+
+    private NameTable names;
+
+    private byte[][] encodedNames = new byte[0][];
+
+    private ReportWriter(OutputStream stream, WritableByteChannel channel, int bufferSize, Charset charset) {
+        this.charset = Objects.requireNonNull(charset);
+        this.stream = stream;
+        this.channel = channel;
+        this.buffer = new byte[bufferSize];
+    }
+
+    ReportWriter(OutputStream stream) {
+        this(Objects.requireNonNull(stream), null, DEFAULT_BUFFER_SIZE, Charset.defaultCharset());
+    }
+
+    ReportWriter(WritableByteChannel channel) {
+        this(channel, DEFAULT_BUFFER_SIZE, Charset.defaultCharset());
+    }
+
+    ReportWriter(WritableByteChannel channel, int bufferSize, Charset charset) {
+        this(null, Objects.requireNonNull(channel), bufferSize, charset);
+    }
+
+    ReportWriter line(String text) throws IOException {
+        byte[] bytes = text.getBytes(charset);
+        ensure(bytes.length + LINE_SEPARATOR.length);
+        put(bytes);
+        put(LINE_SEPARATOR);
+        return this;
+    }
+
+    ReportWriter newLine() throws IOException {
+        ensure(LINE_SEPARATOR.length);
+        put(LINE_SEPARATOR);
+        return this;
+    }
+
+    /**
+     * Writes the banner and column header that open each day of the report.
+     */
+    ReportWriter dayHeader(int day) throws IOException {
+        ensure(DAY_PREFIX.length + 11 + DAY_SUFFIX.length + HEADER.length + 2 * LINE_SEPARATOR.length);
+        put(DAY_PREFIX);
+        putInt(day);
+        put(DAY_SUFFIX);
+        put(LINE_SEPARATOR);
+        put(HEADER);
+        put(LINE_SEPARATOR);
+        return this;
+    }
+
+    ReportWriter items(GildedRose shop) throws IOException {
+        ItemStore inventory = shop.inventory();
+        NameTable names = inventory.names();
+        for (int i = 0, size = inventory.size(); i < size; i++) {
+            item(names, inventory.nameId(i), inventory.sellIn(i), inventory.quality(i));
+        }
+        return this;
+    }
+
+    ReportWriter item(NameTable names, int nameId, int sellIn, int quality) throws IOException {
+        byte[] name = encodedName(names, nameId);
+        ensure(name.length + 2 * SEPARATOR.length + 22 + LINE_SEPARATOR.length);
+        put(name);
+        put(SEPARATOR);
+        putInt(sellIn);
+        put(SEPARATOR);
+        putInt(quality);
+        put(LINE_SEPARATOR);
+        return this;
+    }
+
+    @Override
+    public void flush() throws IOException {
+        drain();
+        if (stream != null) {
+            stream.flush();
+        }
+    }
+
+    private byte[] encodedName(NameTable names, int nameId) {
+        if (this.names != names) {
+            this.names = names;
+            encodedNames = new byte[0][];
+        }
+        if (nameId >= encodedNames.length) {
+            encodedNames = Arrays.copyOf(encodedNames, Math.max(nameId + 1, encodedNames.length * 2));
+        }
+
+        byte[] encoded = encodedNames[nameId];
+        if (encoded == null) {
+            encoded = names.name(nameId).getBytes(charset);
+            encodedNames[nameId] = encoded;
+        }
+        return encoded;
+    }
+
+    private void ensure(int length) throws IOException {
+        if (buffer.length - position < length) {
+            drain();
+            if (buffer.length < length) {
+                buffer = new byte[length];
+            }
+        }
+    }
+
+    private void put(byte[] bytes) {
+        System.arraycopy(bytes, 0, buffer, position, bytes.length);
+        position += bytes.length;
+    }
+
+    private void putInt(int value) {
+        if (value == Integer.MIN_VALUE) {
+            put(MIN_INT);
+            return;
+        }
+        if (value < 0) {
+            buffer[position++] = '-';
+            value = -value;
+        }
+
+        int end = position + digits(value);
+        int index = end;
+        do {
+            buffer[--index] = (byte) ('0' + value % 10);
+            value /= 10;
+        } while (value != 0);
+        position = end;
+    }
+
+    private static int digits(int value) {
+        int digits = 1;
+        while (value >= 10) {
+            value /= 10;
+            digits++;
+        }
+        return digits;
+    }
+
+    private void drain() throws IOException {
+        if (position == 0) {
+            return;
+        }
+
+        if (stream != null) {
+            stream.write(buffer, 0, position);
+        } else {
+            ByteBuffer chunk = ByteBuffer.wrap(buffer, 0, position);
+            while (chunk.hasRemaining()) {
+                channel.write(chunk);
+            }
+        }
+        position = 0;
+    }
+}
@@ -0,0 +1,71 @@
+package com.gildedrose;
+
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * One element of a {@link RolloverPublisher} stream: either a batch of the
+ * stock as it stands after a day, or the signal that the day's batches are
+ * all out.
+ */
+final class RolloverEvent {
+    private final int day;
+
+    private final ItemBatch batch;
+
+    private RolloverEvent(int day, ItemBatch batch) {
+        this.day = day;
+        this.batch = batch;
+    }
+
+    static RolloverEvent items(int day, ItemBatch batch) {
+        return new RolloverEvent(day, batch);
+    }
+
+    static RolloverEvent dayCompleted(int day) {
+        return new RolloverEvent(day, null);
+    }
+
+    /**
+     * The day the event belongs to, counted from when the publisher was
+     * created.
+     */
+    int day() {
+        return day;
+    }
+
+    boolean isDayCompleted() {
+        return batch == null;
+    }
+
+    /**
+     * The rows of this event. Every subscriber sees the same batch, so it must
+     * be treated as read-only.
+     */
+    ItemBatch batch() {
+        if (batch == null) {
+            throw new IllegalStateException("Day completion carries no items");
+        }
+        return batch;
+    }
+
+    /**
+     * The rows of this event as new {@link Item}s, for subscribers that would
+     * rather not read columns.
+     */
+    List<Item> items() {
+        ItemBatch batch = batch();
+        List<Item> items = new ArrayList<>(batch.size());
+        for (int j = 0; j < batch.size(); j++) {
+            items.add(new Item(batch.name(j), batch.sellIn(j), batch.quality(j)));
+        }
+        return items;
+    }
+
+    @Override
+    public String toString() {
+        return isDayCompleted()
+                ? "day " + day + " completed"
+                : "day " + day + " rows " + batch.start() + ".." + (batch.start() + batch.size());
+    }
+}
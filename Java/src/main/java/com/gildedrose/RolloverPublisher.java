@@ -0,0 +1,139 @@
+package com.gildedrose;
+
+import java.util.Objects;
+import java.util.concurrent.Executor;
+import java.util.concurrent.Flow;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.SubmissionPublisher;
+
+/**
+ * Runs a {@link GildedRose} day by day and publishes each day's stock to
+ * {@link Flow.Subscriber}s, in place of polling {@link GildedRose#getItems()}.
+ * <p>
+ * After every rollover the stock is read through an {@link ItemCursor} and
+ * sent as {@link RolloverEvent}s of up to {@code batchSize} rows, in order,
+ * followed by a day completion. Each subscriber is delivered to on the
+ * executor with a buffer of its own; when a subscriber's buffer is full the
+ * rollover that is publishing waits for it to request more, so a slow
+ * subscriber holds the simulation back instead of letting days pile up.
+ * Nothing is read when there are no subscribers.
+ * <p>
+ * Subscribing and closing wait for a day being published, so every
+ * subscriber sees whole days only, from the next day on, and a day that has
+ * been rolled is always published in full.
+ */
+final class RolloverPublisher implements Flow.Publisher<RolloverEvent>, AutoCloseable {
+    private final GildedRose shop;
+
+    private final int batchSize;
+
+    private final SubmissionPublisher<RolloverEvent> publisher;
+
+    private volatile int day;
+
+    RolloverPublisher(GildedRose shop) {
+        this(shop, ItemCursor.DEFAULT_BATCH_SIZE, ForkJoinPool.commonPool(), Flow.defaultBufferSize());
+    }
+
+    /**
+     * @param bufferSize events buffered per subscriber before rollovers wait,
+     *                   rounded up to a power of two
+     */
+    RolloverPublisher(GildedRose shop, int batchSize, Executor executor, int bufferSize) {
+        if (batchSize <= 0) {
+            throw new IllegalArgumentException("batchSize must be positive: " + batchSize);
+        }
+        this.shop = Objects.requireNonNull(shop);
+        this.batchSize = batchSize;
+        this.publisher = new SubmissionPublisher<>(executor, bufferSize);
+    }
+
+    /**
+     * Subscribes from the next day on, waiting for a day being published.
+     */
+    @Override
+    public synchronized void subscribe(Flow.Subscriber<? super RolloverEvent> subscriber) {
+        publisher.subscribe(subscriber);
+    }
+
+    /**
+     * Days published since this publisher was created.
+     */
+    int day() {
+        return day;
+    }
+
+    /**
+     * Runs one day and returns once every subscriber has buffered it.
+     *
+     * @throws IllegalStateException if the publisher is closed, in which case
+     *                               the shop is left as it was
+     */
+    synchronized void updateQuality() {
+        checkOpen();
+        shop.updateQuality();
+        publish(1);
+    }
+
+    /**
+     * Runs {@code days} days at once and publishes only the stock at the end.
+     */
+    synchronized void advance(int days) {
+        if (days < 1) {
+            throw new IllegalArgumentException("days must be positive: " + days);
+        }
+        checkOpen();
+        shop.advance(days);
+        publish(days);
+    }
+
+    /**
+     * Runs and publishes {@code days} days one after another, going no faster
+     * than the slowest subscriber.
+     */
+    void run(int days) {
+        for (int i = 0; i < days; i++) {
+            synchronized (this) {
+                if (publisher.isClosed()) {
+                    return;
+                }
+                updateQuality();
+            }
+        }
+    }
+
+    private void checkOpen() {
+        if (publisher.isClosed()) {
+            throw new IllegalStateException("Publisher is closed");
+        }
+    }
+
+    private void publish(int days) {
+        day += days;
+        if (!publisher.hasSubscribers()) {
+            return;
+        }
+
+        try (ItemCursor cursor = shop.cursor()) {
+            int remaining = cursor.size();
+            while (remaining > 0) {
+                ItemBatch batch = new ItemBatch(Math.min(batchSize, remaining));
+                cursor.next(batch);
+                remaining -= batch.size();
+                publisher.submit(RolloverEvent.items(day, batch));
+            }
+        }
+        publisher.submit(RolloverEvent.dayCompleted(day));
+    }
+
+    /**
+     * Completes every subscription once it has received what was published,
+     * waiting for a day being published. Subscribers that want to stop should
+     * cancel their subscription instead, as closing from a subscriber that
+     * holds the day back never returns.
+     */
+    @Override
+    public synchronized void close() {
+        publisher.close();
+    }
+}
@@ -0,0 +1,213 @@
+package com.gildedrose;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Objects;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * Maps item names to the {@link QualityRule} that ages them.
+ * <p>
+ * A name is matched exactly first, then against registered prefixes, longest
+ * first, and anything unmatched is a normal item. The answer is a byte tag,
+ * cached per name, that the storage keeps next to each row. Tags of the
+ * built-in rules are the {@link ItemKind} constants and are dispatched with a
+ * switch the JIT can inline; added rules get the tags after them and are
+ * called through a table.
+ * <p>
+ * Books are immutable: {@link #withRule} and {@link #withPrefixRule} return a
+ * new book that keeps the tags of the existing rules.
+ */
+final class RuleBook {
+    static final RuleBook STANDARD = new RuleBook()
+            .withRule(GildedRose.AGED_BRIE, BuiltInRule.AGED_BRIE)
+            .withRule(GildedRose.BACKSTAGE_PASSES, BuiltInRule.BACKSTAGE_PASSES)
+            .withRule(GildedRose.SULFURAS, BuiltInRule.SULFURAS)
+            .withPrefixRule("Conjured ", BuiltInRule.CONJURED);
+
+    private static final int MAX_RULES = 256;
+
+    private final QualityRule[] rules;
+
+    private final boolean[] agesSellIn;
+
+    private final Map<String, Byte> names;
+
+    private final List<String> prefixes;
+
+    private final Map<String, Byte> prefixKinds;
+
+    private final ConcurrentHashMap<String, Byte> resolved = new ConcurrentHashMap<>();
+
+    private RuleBook() {
+        this(builtIns(), new HashMap<>(), new ArrayList<>(), new HashMap<>());
+    }
+
+    private RuleBook(QualityRule[] rules, Map<String, Byte> names, List<String> prefixes, Map<String, Byte> prefixKinds) {
+        this.rules = rules;
+        this.names = names;
+        this.prefixes = prefixes;
+        this.prefixKinds = prefixKinds;
+
+        agesSellIn = new boolean[rules.length];
+        for (int i = 0; i < rules.length; i++) {
+            agesSellIn[i] = rules[i].agesSellIn();
+        }
+    }
+
+    private static QualityRule[] builtIns() {
+        QualityRule[] rules = new QualityRule[BuiltInRule.values().length];
+        for (BuiltInRule rule : BuiltInRule.values()) {
+            rules[rule.kind] = rule;
+        }
+        return rules;
+    }
+
+    /**
+     * A book in which items called exactly {@code name} follow {@code rule}.
+     */
+    RuleBook withRule(String name, QualityRule rule) {
+        Objects.requireNonNull(name);
+        QualityRule[] rules = tagged(rule);
+        Map<String, Byte> names = new HashMap<>(this.names);
+        names.put(name, kind(rules, rule));
+        return new RuleBook(rules, names, prefixes, prefixKinds);
+    }
+
+    /**
+     * A book in which items whose name starts with {@code prefix} follow {@code rule},
+     * unless a longer prefix or an exact name says otherwise.
+     */
+    RuleBook withPrefixRule(String prefix, QualityRule rule) {
+        Objects.requireNonNull(prefix);
+        QualityRule[] rules = tagged(rule);
+        Map<String, Byte> prefixKinds = new HashMap<>(this.prefixKinds);
+        prefixKinds.put(prefix, kind(rules, rule));
+        List<String> prefixes = new ArrayList<>(prefixKinds.keySet());
+        prefixes.sort((a, b) -> Integer.compare(b.length(), a.length()));
+        return new RuleBook(rules, names, prefixes, prefixKinds);
+    }
+
+    private QualityRule[] tagged(QualityRule rule) {
+        Objects.requireNonNull(rule);
+        for (QualityRule existing : rules) {
+            if (existing == rule) {
+                return rules;
+            }
+        }
+        if (rules.length == MAX_RULES) {
+            throw new IllegalStateException("A rule book holds at most " + MAX_RULES + " rules");
+        }
+
+        QualityRule[] tagged = Arrays.copyOf(rules, rules.length + 1);
+        tagged[rules.length] = rule;
+        return tagged;
+    }
+
+    private static byte kind(QualityRule[] rules, QualityRule rule) {
+        for (int i = 0; i < rules.length; i++) {
+            if (rules[i] == rule) {
+                return (byte) i;
+            }
+        }
+        throw new IllegalArgumentException("Rule is not in this book");
+    }
+
+    byte kindOf(String name) {
+        Byte kind = resolved.get(name);
+        if (kind == null) {
+            kind = resolve(name);
+            resolved.putIfAbsent(name, kind);
+        }
+        return kind;
+    }
+
+    private byte resolve(String name) {
+        Byte kind = names.get(name);
+        if (kind != null) {
+            return kind;
+        }
+        for (String prefix : prefixes) {
+            if (name.startsWith(prefix)) {
+                return prefixKinds.get(prefix);
+            }
+        }
+        return ItemKind.NORMAL;
+    }
+
+    /**
+     * A cache in front of {@link #kindOf(String)} for loading many rows, keyed
+     * by {@link NameTable} id so each distinct name costs one lookup per load.
+     */
+    Resolver resolver() {
+        return new Resolver();
+    }
+
+    final class Resolver {
+        private byte[] kinds = new byte[0];
+
+        private boolean[] resolved = new boolean[0];
+
+        byte kindOf(int nameId, String name) {
+            if (nameId >= kinds.length) {
+                kinds = Arrays.copyOf(kinds, Math.max(nameId + 1, kinds.length * 2));
+                resolved = Arrays.copyOf(resolved, kinds.length);
+            }
+            if (!resolved[nameId]) {
+                kinds[nameId] = RuleBook.this.kindOf(name);
+                resolved[nameId] = true;
+            }
+            return kinds[nameId];
+        }
+    }
+
+    QualityRule rule(byte kind) {
+        return rules[kind & 0xFF];
+    }
+
+    /**
+     * The tag {@code rule} is stored under in this book.
+     */
+    byte kindOf(QualityRule rule) {
+        return kind(rules, Objects.requireNonNull(rule));
+    }
+
+    /**
+     * Number of rules in the book; every tag is below it.
+     */
+    int ruleCount() {
+        return rules.length;
+    }
+
+    boolean agesSellIn(byte kind) {
+        return agesSellIn[kind & 0xFF];
+    }
+
+    int age(byte kind, int sellIn, int quality) {
+        if (kind >= 0 && kind < ItemKind.FIRST_CUSTOM) {
+            return ItemKind.age(kind, sellIn, quality);
+        }
+        return rules[kind & 0xFF].age(sellIn, quality);
+    }
+
+    int age(byte kind, int sellIn, int quality, int days) {
+        if (kind >= 0 && kind < ItemKind.FIRST_CUSTOM) {
+            return ItemKind.age(kind, sellIn, quality, days);
+        }
+        return rules[kind & 0xFF].age(sellIn, quality, days);
+    }
+
+    int sellInAfter(byte kind, int sellIn, int days) {
+        return agesSellIn[kind & 0xFF] ? sellIn - days : sellIn;
+    }
+
+    boolean isSettled(byte kind, int sellIn, int quality) {
+        if (kind >= 0 && kind < ItemKind.FIRST_CUSTOM) {
+            return ItemKind.isSettled(kind, sellIn, quality);
+        }
+        return rules[kind & 0xFF].isSettled(sellIn, quality);
+    }
+}
@@ -0,0 +1,97 @@
+package com.gildedrose;
+
+import java.nio.IntBuffer;
+
+/**
+ * The daily pass of stores whose columns are split into buffers of a fixed
+ * number of rows, such as {@link MappedInventory} and {@link OffHeapInventory}.
+ * Sell-in and quality are aged in place, one segment at a time.
+ */
+final class SegmentedRollover {
+    /**
+     * The rule tag of each row of one segment.
+     */
+    interface Kinds {
+        byte kind(int offset);
+    }
+
+    /**
+     * The columns of each segment.
+     */
+    interface Segments {
+        Kinds kinds(int segment);
+
+        IntBuffer sellIn(int segment);
+
+        IntBuffer quality(int segment);
+    }
+
+    private SegmentedRollover() {
+    }
+
+    /**
+     * Segments needed for {@code size} rows, without overflowing near
+     * {@link Integer#MAX_VALUE}.
+     */
+    static int segmentCount(int size, int segmentItems) {
+        return size / segmentItems + (size % segmentItems == 0 ? 0 : 1);
+    }
+
+    /**
+     * Moves rows {@code from} to {@code to} on by {@code days} days, counting
+     * them into {@code metrics} when it is not {@code null}.
+     */
+    static void age(Segments segments, int segmentItems, RuleBook rules, UpdateMetrics metrics,
+                    int from, int to, int days) {
+        UpdateMetrics.Tally tally = metrics == null ? null : metrics.tally();
+        while (from < to) {
+            int segment = from / segmentItems;
+            int offset = from % segmentItems;
+            int count = Math.min(to - from, segmentItems - offset);
+            Kinds kinds = segments.kinds(segment);
+            IntBuffer sellIn = segments.sellIn(segment);
+            IntBuffer quality = segments.quality(segment);
+            // a single day is cheaper through the daily rules than the closed form
+            if (days == 1) {
+                updateQuality(rules, kinds, sellIn, quality, offset, offset + count, tally);
+            } else {
+                advance(rules, kinds, sellIn, quality, offset, offset + count, days, tally);
+            }
+            from += count;
+        }
+
+        if (tally != null) {
+            tally.flush();
+        }
+    }
+
+    private static void updateQuality(RuleBook rules, Kinds kinds, IntBuffer sellIn, IntBuffer quality,
+                                      int from, int to, UpdateMetrics.Tally tally) {
+        for (int i = from; i < to; i++) {
+            byte kind = kinds.kind(i);
+            int itemSellIn = sellIn.get(i);
+            int itemQuality = quality.get(i);
+            int aged = rules.age(kind, itemSellIn, itemQuality);
+            quality.put(i, aged);
+            if (tally != null) {
+                tally.record(kind, itemQuality, aged);
+            }
+            sellIn.put(i, rules.sellInAfter(kind, itemSellIn, 1));
+        }
+    }
+
+    private static void advance(RuleBook rules, Kinds kinds, IntBuffer sellIn, IntBuffer quality,
+                                int from, int to, int days, UpdateMetrics.Tally tally) {
+        for (int i = from; i < to; i++) {
+            byte kind = kinds.kind(i);
+            int itemSellIn = sellIn.get(i);
+            int itemQuality = quality.get(i);
+            int aged = rules.age(kind, itemSellIn, itemQuality, days);
+            quality.put(i, aged);
+            if (tally != null) {
+                tally.record(kind, itemQuality, aged);
+            }
+            sellIn.put(i, rules.sellInAfter(kind, itemSellIn, days));
+        }
+    }
+}
@@ -0,0 +1,437 @@
+package com.gildedrose;
+
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.Closeable;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.net.InetSocketAddress;
+import java.net.Socket;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Objects;
+
+/**
+ * Runs a shop whose stock is split across {@link ShardWorker}s, typically in
+ * other JVMs, so no single heap has to hold all of it.
+ * <p>
+ * Items keep their position in the list given to {@link #load} as their id,
+ * and a {@link Partitioning} decides which shard holds each. Every request is
+ * sent to all shards before any reply is read, so shards do their share of a
+ * rollover or a query at the same time.
+ * <p>
+ * Advancing is two-phase. Each shard first computes the new day without
+ * publishing it and confirms that it was on the day the coordinator expects;
+ * only when every shard has done so are they all told to commit, and if any
+ * refuses the others abort. A refusal therefore leaves every shard where it
+ * was. A shard that fails after agreeing, between the prepare and its commit,
+ * cannot be undone by the others: each shard reports the day it committed
+ * and, if they differ, the coordinator stops working rather than serve a
+ * stock split across days.
+ * <p>
+ * Every reply to a request is read before any failure is reported, so the
+ * connections stay in step with the shards. A connection that fails outright
+ * cannot be brought back in step; the coordinator then closes every
+ * connection and refuses further requests.
+ */
+final class ShardCoordinator implements Closeable {
+    /**
+     * How items are assigned to shards.
+     */
+    enum Partitioning {
+        /** Spreads items evenly by a hash of their id. */
+        BY_ID {
+            @Override
+            int shard(int id, String name, int shards) {
+                int hash = id * 0x9E3779B9;
+                return Math.floorMod(hash ^ (hash >>> 16), shards);
+            }
+        },
+
+        /**
+         * Keeps each category on one shard, so per-category work stays local;
+         * with few categories the shards can be uneven.
+         */
+        BY_CATEGORY {
+            @Override
+            int shard(int id, String name, int shards) {
+                return (RuleBook.STANDARD.kindOf(name) & 0xFF) % shards;
+            }
+        };
+
+        abstract int shard(int id, String name, int shards);
+    }
+
+    private final Shard[] shards;
+
+    private final Partitioning partitioning;
+
+    private int[] shardOf = new int[0];
+
+    private int[] localIndex = new int[0];
+
+    private int day;
+
+    /** Why the coordinator stopped working, or {@code null} while it works. */
+    private String broken;
+
+    private ShardCoordinator(Shard[] shards, Partitioning partitioning) {
+        this.shards = shards;
+        this.partitioning = partitioning;
+    }
+
+    static ShardCoordinator connect(List<InetSocketAddress> workers, Partitioning partitioning) throws IOException {
+        Objects.requireNonNull(partitioning);
+        if (workers.isEmpty()) {
+            throw new IllegalArgumentException("At least one worker is needed");
+        }
+
+        Shard[] shards = new Shard[workers.size()];
+        try {
+            for (int s = 0; s < shards.length; s++) {
+                shards[s] = new Shard(s, workers.get(s));
+            }
+        } catch (IOException e) {
+            for (Shard shard : shards) {
+                if (shard != null) {
+                    shard.socket.close();
+                }
+            }
+            throw e;
+        }
+        return new ShardCoordinator(shards, partitioning);
+    }
+
+    int shardCount() {
+        return shards.length;
+    }
+
+    int shardSize(int shard) {
+        return shards[shard].size;
+    }
+
+    int size() {
+        return shardOf.length;
+    }
+
+    /**
+     * Days since the stock was loaded.
+     */
+    int day() {
+        return day;
+    }
+
+    /**
+     * Replaces the stock of every shard with its part of {@code items}. If
+     * any shard fails to load, the coordinator holds no stock until a later
+     * load succeeds.
+     */
+    void load(List<Item> items) throws IOException {
+        checkWorking();
+        int size = items.size();
+        int[] shardOf = new int[size];
+        int[] localIndex = new int[size];
+        List<Map<String, Integer>> dictionaries = new ArrayList<>();
+        int[] sizes = new int[shards.length];
+        for (int s = 0; s < shards.length; s++) {
+            dictionaries.add(new LinkedHashMap<>());
+        }
+
+        int id = 0;
+        for (Item item : items) {
+            Objects.requireNonNull(item);
+            int s = partitioning.shard(id, Objects.requireNonNull(item.name), shards.length);
+            shardOf[id] = s;
+            localIndex[id] = sizes[s]++;
+            Map<String, Integer> dictionary = dictionaries.get(s);
+            dictionary.putIfAbsent(item.name, dictionary.size());
+            id++;
+        }
+
+        try {
+            for (int s = 0; s < shards.length; s++) {
+                DataOutputStream out = shards[s].out;
+                out.writeByte(ShardProtocol.LOAD);
+                out.writeInt(dictionaries.get(s).size());
+                for (String name : dictionaries.get(s).keySet()) {
+                    ShardProtocol.writeString(out, name);
+                }
+                out.writeInt(sizes[s]);
+            }
+            id = 0;
+            for (Item item : items) {
+                DataOutputStream out = shards[shardOf[id]].out;
+                out.writeInt(dictionaries.get(shardOf[id]).get(item.name));
+                out.writeInt(item.sellIn);
+                out.writeInt(item.quality);
+                id++;
+            }
+            flushAll();
+
+            this.shardOf = new int[0];
+            this.localIndex = new int[0];
+            day = 0;
+            readReplies("load", shard -> shard.size = shard.in.readInt());
+            this.shardOf = shardOf;
+            this.localIndex = localIndex;
+        } catch (IOException e) {
+            throw lost(e);
+        }
+    }
+
+    void updateQuality() throws IOException {
+        advance(1);
+    }
+
+    /**
+     * Moves every shard on by {@code days} days. If a shard refuses, none of
+     * them move. If a shard fails to commit after agreeing to, the others
+     * have already moved; the coordinator then closes and refuses further
+     * requests, as its shards are on different days.
+     *
+     * @throws IllegalStateException if a shard refused, in which case every
+     *                               shard is left on the day it was on, or if
+     *                               the shards no longer agree on the day
+     */
+    void advance(int days) throws IOException {
+        checkWorking();
+        if (days < 0) {
+            throw new IllegalArgumentException("days must not be negative: " + days);
+        }
+        if (days == 0) {
+            return;
+        }
+
+        try {
+            for (Shard shard : shards) {
+                shard.out.writeByte(ShardProtocol.PREPARE);
+                shard.out.writeInt(day);
+                shard.out.writeInt(days);
+                shard.out.flush();
+            }
+
+            List<String> refusals = new ArrayList<>();
+            boolean[] prepared = new boolean[shards.length];
+            for (Shard shard : shards) {
+                byte status = shard.in.readByte();
+                if (status == ShardProtocol.OK) {
+                    prepared[shard.number] = true;
+                } else {
+                    refusals.add("shard " + shard.number + ": " + ShardProtocol.readString(shard.in));
+                }
+            }
+
+            byte decision = refusals.isEmpty() ? ShardProtocol.COMMIT : ShardProtocol.ABORT;
+            for (Shard shard : shards) {
+                if (prepared[shard.number]) {
+                    shard.out.writeByte(decision);
+                    shard.out.flush();
+                }
+            }
+            List<String> failures = new ArrayList<>();
+            int[] shardDays = new int[shards.length];
+            Arrays.fill(shardDays, -1);
+            for (Shard shard : shards) {
+                if (prepared[shard.number]) {
+                    readReply(shard, failures, replying -> shardDays[replying.number] = replying.in.readInt());
+                }
+            }
+
+            if (!refusals.isEmpty()) {
+                throw new IllegalStateException("Advancing from day " + day + " was refused by " + refusals
+                        + (failures.isEmpty() ? "" : "; aborting failed on " + failures));
+            }
+            if (!failures.isEmpty()) {
+                throw stop("Advancing from day " + day + " failed on " + failures
+                        + " after other shards committed; shards are on days " + Arrays.toString(shardDays));
+            }
+            for (int shardDay : shardDays) {
+                if (shardDay != day + days) {
+                    throw stop("Advancing from day " + day + " by " + days
+                            + " left the shards on days " + Arrays.toString(shardDays));
+                }
+            }
+            day += days;
+        } catch (IOException e) {
+            throw lost(e);
+        }
+    }
+
+    /**
+     * Every item in load order, gathered from the shards' latest day.
+     */
+    List<Item> getItems() throws IOException {
+        checkWorking();
+        String[][] names = new String[shards.length][];
+        int[][] rows = new int[shards.length][];
+        try {
+            for (Shard shard : shards) {
+                shard.out.writeByte(ShardProtocol.ITEMS);
+            }
+            flushAll();
+
+            readReplies("read items", shard -> {
+                String[] dictionary = new String[shard.in.readInt()];
+                for (int n = 0; n < dictionary.length; n++) {
+                    dictionary[n] = ShardProtocol.readString(shard.in);
+                }
+                int[] shardRows = new int[3 * shard.in.readInt()];
+                for (int r = 0; r < shardRows.length; r++) {
+                    shardRows[r] = shard.in.readInt();
+                }
+                names[shard.number] = dictionary;
+                rows[shard.number] = shardRows;
+            });
+        } catch (IOException e) {
+            throw lost(e);
+        }
+
+        Item[] items = new Item[shardOf.length];
+        for (int id = 0; id < items.length; id++) {
+            int s = shardOf[id];
+            int row = 3 * localIndex[id];
+            items[id] = new Item(names[s][rows[s][row]], rows[s][row + 1], rows[s][row + 2]);
+        }
+        return Collections.unmodifiableList(Arrays.asList(items));
+    }
+
+    /**
+     * Counts and totals over the whole stock, added up from each shard's.
+     */
+    StockSummary summary() throws IOException {
+        checkWorking();
+        StockSummary total = new StockSummary();
+        try {
+            for (Shard shard : shards) {
+                shard.out.writeByte(ShardProtocol.SUMMARY);
+            }
+            flushAll();
+
+            readReplies("summarise", shard -> total.add(StockSummary.read(shard.in)));
+        } catch (IOException e) {
+            throw lost(e);
+        }
+        return total;
+    }
+
+    private void flushAll() throws IOException {
+        for (Shard shard : shards) {
+            shard.out.flush();
+        }
+    }
+
+    /**
+     * Reads every shard's reply to the request just sent, handing the rest of
+     * each successful one to {@code reply}, and only then reports the shards
+     * that failed.
+     */
+    private void readReplies(String action, Reply reply) throws IOException {
+        List<String> failures = new ArrayList<>();
+        for (Shard shard : shards) {
+            readReply(shard, failures, reply);
+        }
+        if (!failures.isEmpty()) {
+            throw new IllegalStateException("Could not " + action + " on " + failures);
+        }
+    }
+
+    private static void readReply(Shard shard, List<String> failures, Reply reply) throws IOException {
+        if (shard.in.readByte() == ShardProtocol.OK) {
+            reply.read(shard);
+        } else {
+            failures.add("shard " + shard.number + ": " + ShardProtocol.readString(shard.in));
+        }
+    }
+
+    private void checkWorking() {
+        if (broken != null) {
+            throw new IllegalStateException("Coordinator stopped: " + broken);
+        }
+    }
+
+    /**
+     * Stops the coordinator after a connection failed midway through a
+     * request, leaving replies that can no longer be matched to requests.
+     */
+    private IOException lost(IOException e) {
+        stop("lost a shard: " + e.getMessage());
+        return e;
+    }
+
+    private IllegalStateException stop(String reason) {
+        if (broken == null) {
+            broken = reason;
+        }
+        for (Shard shard : shards) {
+            try {
+                shard.socket.close();
+            } catch (IOException e) {
+                // already gone
+            }
+        }
+        return new IllegalStateException(reason);
+    }
+
+    /**
+     * Disconnects from the workers, which keep running.
+     */
+    @Override
+    public void close() throws IOException {
+        IOException failure = null;
+        for (Shard shard : shards) {
+            try {
+                if (broken == null) {
+                    shard.out.writeByte(ShardProtocol.CLOSE);
+                    shard.out.flush();
+                    if (shard.in.readByte() != ShardProtocol.OK) {
+                        failure = new IOException("Shard " + shard.number + " did not close cleanly");
+                    }
+                }
+            } catch (IOException e) {
+                failure = e;
+            } finally {
+                try {
+                    shard.socket.close();
+                } catch (IOException e) {
+                    failure = e;
+                }
+            }
+        }
+        broken = "closed";
+        if (failure != null) {
+            throw failure;
+        }
+    }
+
+    /**
+     * Reads the rest of a successful reply from one shard.
+     */
+    private interface Reply {
+        void read(Shard shard) throws IOException;
+    }
+
+    private static final class Shard {
+        final int number;
+
+        final Socket socket;
+
+        final DataInputStream in;
+
+        final DataOutputStream out;
+
+        int size;
+
+        Shard(int number, InetSocketAddress address) throws IOException {
+            this.number = number;
+            socket = new Socket(address.getAddress(), address.getPort());
+            socket.setTcpNoDelay(true);
+            in = new DataInputStream(new BufferedInputStream(socket.getInputStream(), 1 << 16));
+            out = new DataOutputStream(new BufferedOutputStream(socket.getOutputStream(), 1 << 16));
+        }
+    }
+}
@@ -0,0 +1,64 @@
+package com.gildedrose;
+
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+
+import static java.nio.charset.StandardCharsets.UTF_8;
+
+/**
+ * The messages a {@link ShardCoordinator} and its {@link ShardWorker}s
+ * exchange over a socket. Each request is an opcode byte followed by its
+ * arguments and answered by a status byte and a result; integers are
+ * big-endian as {@link DataOutputStream} writes them.
+ * <p>
+ * Stock travels as a dictionary of the distinct names followed by one
+ * {@code (name index, sell-in, quality)} triple per item, so a name is sent
+ * once per message rather than once per item.
+ *
+ * <pre>
+ * LOAD      names, rows                 -&gt; OK size
+ * PREPARE   from day, days              -&gt; OK | REFUSED message
+ * COMMIT                                -&gt; OK day
+ * ABORT                                 -&gt; OK day
+ * ITEMS                                 -&gt; OK names, rows
+ * SUMMARY                               -&gt; OK summary
+ * CLOSE                                 -&gt; OK
+ * </pre>
+ */
+final class ShardProtocol {
+    static final byte LOAD = 1;
+
+    static final byte PREPARE = 2;
+
+    static final byte COMMIT = 3;
+
+    static final byte ABORT = 4;
+
+    static final byte ITEMS = 5;
+
+    static final byte SUMMARY = 6;
+
+    static final byte CLOSE = 7;
+
+    static final byte OK = 0;
+
+    static final byte REFUSED = 1;
+
+    static final byte FAILED = 2;
+
+    private ShardProtocol() {
+    }
+
+    static void writeString(DataOutputStream out, String value) throws IOException {
+        byte[] bytes = value.getBytes(UTF_8);
+        out.writeInt(bytes.length);
+        out.write(bytes);
+    }
+
+    static String readString(DataInputStream in) throws IOException {
+        byte[] bytes = new byte[in.readInt()];
+        in.readFully(bytes);
+        return new String(bytes, UTF_8);
+    }
+}
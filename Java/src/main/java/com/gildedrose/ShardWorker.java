@@ -0,0 +1,307 @@
+package com.gildedrose;
+
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.BufferedReader;
+import java.io.Closeable;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.EOFException;
+import java.io.IOException;
+import java.io.InputStreamReader;
+import java.net.InetAddress;
+import java.net.InetSocketAddress;
+import java.net.ServerSocket;
+import java.net.Socket;
+import java.nio.file.Paths;
+import java.util.Arrays;
+import java.util.Objects;
+
+import static java.nio.charset.StandardCharsets.UTF_8;
+
+/**
+ * Holds one shard of a partitioned shop and serves a {@link ShardCoordinator}
+ * over a local socket, speaking the {@link ShardProtocol}.
+ * <p>
+ * A rollover is two-phase: {@code PREPARE} computes the next day into the
+ * inventory's back buffer without publishing it, and {@code COMMIT} or
+ * {@code ABORT} then publishes or drops it. Workers can run inside the
+ * coordinator's JVM, which is how the tests use them, or on their own via
+ * {@link #main}, which prints the port it listens on and stops when its
+ * standard input is closed.
+ */
+final class ShardWorker implements Closeable {
+    static final String LISTENING = "listening on ";
+
+    private final ServerSocket server;
+
+    private final Parallelism parallelism;
+
+    private final Thread acceptor;
+
+    private Inventory inventory;
+
+    private Inventory.PreparedRollover prepared;
+
+    private ShardWorker(ServerSocket server, Parallelism parallelism) {
+        this.server = server;
+        this.parallelism = parallelism;
+        acceptor = new Thread(this::accept, "shard-worker-" + server.getLocalPort());
+        acceptor.setDaemon(true);
+    }
+
+    /**
+     * Listens on {@code port} of the loopback interface, or on any free port
+     * when given 0.
+     */
+    static ShardWorker start(int port, Parallelism parallelism) throws IOException {
+        Objects.requireNonNull(parallelism);
+        ServerSocket server = new ServerSocket(port, 50, InetAddress.getLoopbackAddress());
+        ShardWorker worker = new ShardWorker(server, parallelism);
+        worker.acceptor.start();
+        return worker;
+    }
+
+    InetSocketAddress address() {
+        return (InetSocketAddress) server.getLocalSocketAddress();
+    }
+
+    /**
+     * Starts a worker in a new JVM with this JVM's class path and returns once
+     * it is listening. Closing the process's standard input stops it.
+     */
+    static Process launch(String... jvmArgs) throws IOException {
+        String java = Paths.get(System.getProperty("java.home"), "bin", "java").toString();
+        String[] command = new String[jvmArgs.length + 5];
+        command[0] = java;
+        System.arraycopy(jvmArgs, 0, command, 1, jvmArgs.length);
+        command[jvmArgs.length + 1] = "-cp";
+        command[jvmArgs.length + 2] = System.getProperty("java.class.path");
+        command[jvmArgs.length + 3] = ShardWorker.class.getName();
+        command[jvmArgs.length + 4] = "0";
+        return new ProcessBuilder(command).redirectError(ProcessBuilder.Redirect.INHERIT).start();
+    }
+
+    /**
+     * The address a process started by {@link #launch} listens on, read from
+     * the line it prints at startup.
+     */
+    static InetSocketAddress addressOf(Process process) throws IOException {
+        BufferedReader out = new BufferedReader(new InputStreamReader(process.getInputStream(), UTF_8));
+        String line = out.readLine();
+        if (line == null || !line.startsWith(LISTENING)) {
+            throw new IOException("Worker did not start: " + line);
+        }
+        return new InetSocketAddress(InetAddress.getLoopbackAddress(),
+                Integer.parseInt(line.substring(LISTENING.length())));
+    }
+
+    public static void main(String[] args) throws IOException {
+        int port = args.length > 0 ? Integer.parseInt(args[0]) : 0;
+        try (ShardWorker worker = start(port, Parallelism.common())) {
+            System.out.println(LISTENING + worker.address().getPort());
+            System.out.flush();
+            while (System.in.read() >= 0) {
+                // run until the launching process closes our input
+            }
+        }
+    }
+
+    private void accept() {
+        while (!server.isClosed()) {
+            try {
+                Socket socket = server.accept();
+                Thread connection = new Thread(() -> serve(socket), acceptor.getName() + "-connection");
+                connection.setDaemon(true);
+                connection.start();
+            } catch (IOException e) {
+                return;
+            }
+        }
+    }
+
+    private void serve(Socket socket) {
+        try {
+            socket.setTcpNoDelay(true);
+            DataInputStream in = new DataInputStream(new BufferedInputStream(socket.getInputStream(), 1 << 16));
+            DataOutputStream out = new DataOutputStream(new BufferedOutputStream(socket.getOutputStream(), 1 << 16));
+            while (true) {
+                byte request = in.readByte();
+                synchronized (this) {
+                    // requests are read in full before they are checked, so
+                    // a failed one leaves the stream at the next request
+                    try {
+                        handle(request, in, out);
+                    } catch (RuntimeException e) {
+                        out.writeByte(ShardProtocol.FAILED);
+                        ShardProtocol.writeString(out, String.valueOf(e.getMessage()));
+                    }
+                }
+                out.flush();
+                if (request == ShardProtocol.CLOSE) {
+                    return;
+                }
+            }
+        } catch (EOFException e) {
+            // the coordinator went away
+        } catch (IOException e) {
+            // drop the connection; the coordinator sees it fail
+        } finally {
+            try {
+                socket.close();
+            } catch (IOException e) {
+                // already gone
+            }
+        }
+    }
+
+    private void handle(byte request, DataInputStream in, DataOutputStream out) throws IOException {
+        switch (request) {
+            case ShardProtocol.LOAD:
+                load(in, out);
+                break;
+            case ShardProtocol.PREPARE:
+                prepare(in.readInt(), in.readInt(), out);
+                break;
+            case ShardProtocol.COMMIT:
+                if (prepared == null) {
+                    throw new IllegalStateException("No rollover is prepared");
+                }
+                prepared.commit();
+                prepared = null;
+                out.writeByte(ShardProtocol.OK);
+                out.writeInt(inventory.day());
+                break;
+            case ShardProtocol.ABORT:
+                abort();
+                out.writeByte(ShardProtocol.OK);
+                out.writeInt(inventory == null ? 0 : inventory.day());
+                break;
+            case ShardProtocol.ITEMS:
+                items(out);
+                break;
+            case ShardProtocol.SUMMARY:
+                try (InventorySnapshot snapshot = loaded().snapshot()) {
+                    StockSummary summary = StockSummary.of(snapshot, inventory);
+                    out.writeByte(ShardProtocol.OK);
+                    summary.write(out);
+                }
+                break;
+            case ShardProtocol.CLOSE:
+                out.writeByte(ShardProtocol.OK);
+                break;
+            default:
+                throw new IOException("Unknown request " + request);
+        }
+    }
+
+    private void load(DataInputStream in, DataOutputStream out) throws IOException {
+        NameTable names = NameTable.SHARED;
+        int count = in.readInt();
+        if (count < 0) {
+            throw new IOException("Corrupt LOAD request: " + count + " names");
+        }
+        int[] ids = new int[count];
+        for (int n = 0; n < ids.length; n++) {
+            ids[n] = names.intern(ShardProtocol.readString(in));
+        }
+
+        int size = in.readInt();
+        if (size < 0) {
+            throw new IOException("Corrupt LOAD request: " + size + " rows");
+        }
+        int[] nameIds = new int[size];
+        int[] sellIn = new int[size];
+        int[] quality = new int[size];
+        for (int i = 0; i < size; i++) {
+            nameIds[i] = in.readInt();
+            sellIn[i] = in.readInt();
+            quality[i] = in.readInt();
+        }
+        for (int i = 0; i < size; i++) {
+            int local = nameIds[i];
+            if (local < 0 || local >= ids.length) {
+                throw new IllegalArgumentException("Row " + i + " names entry " + local + " of " + ids.length);
+            }
+            nameIds[i] = ids[local];
+        }
+
+        abort();
+        inventory = new Inventory(nameIds, sellIn, quality, names, RuleBook.STANDARD);
+        out.writeByte(ShardProtocol.OK);
+        out.writeInt(size);
+    }
+
+    private void prepare(int fromDay, int days, DataOutputStream out) throws IOException {
+        String refusal = null;
+        if (inventory == null) {
+            refusal = "no stock is loaded";
+        } else if (prepared != null) {
+            refusal = "a rollover is already prepared";
+        } else if (inventory.day() != fromDay) {
+            refusal = "shard is on day " + inventory.day() + ", not " + fromDay;
+        } else if (days < 1) {
+            refusal = "days must be positive: " + days;
+        }
+
+        if (refusal != null) {
+            out.writeByte(ShardProtocol.REFUSED);
+            ShardProtocol.writeString(out, refusal);
+            return;
+        }
+        prepared = inventory.prepare(days, parallelism);
+        out.writeByte(ShardProtocol.OK);
+    }
+
+    private void abort() {
+        if (prepared != null) {
+            prepared.abort();
+            prepared = null;
+        }
+    }
+
+    private void items(DataOutputStream out) throws IOException {
+        try (InventorySnapshot snapshot = loaded().snapshot()) {
+            NameTable names = inventory.names();
+            int[] local = new int[names.size()];
+            Arrays.fill(local, -1);
+            int[] dictionary = new int[Math.min(local.length, snapshot.size())];
+            int count = 0;
+            for (int i = 0; i < snapshot.size(); i++) {
+                int id = inventory.nameId(i);
+                if (local[id] < 0) {
+                    local[id] = count;
+                    dictionary[count++] = id;
+                }
+            }
+
+            out.writeByte(ShardProtocol.OK);
+            out.writeInt(count);
+            for (int n = 0; n < count; n++) {
+                ShardProtocol.writeString(out, names.name(dictionary[n]));
+            }
+            out.writeInt(snapshot.size());
+            for (int i = 0; i < snapshot.size(); i++) {
+                out.writeInt(local[inventory.nameId(i)]);
+                out.writeInt(snapshot.sellIn(i));
+                out.writeInt(snapshot.quality(i));
+            }
+        }
+    }
+
+    private Inventory loaded() {
+        if (inventory == null) {
+            throw new IllegalStateException("No stock is loaded");
+        }
+        return inventory;
+    }
+
+    /**
+     * Stops accepting connections. Connections already open are served until
+     * their coordinator closes them.
+     */
+    @Override
+    public void close() throws IOException {
+        server.close();
+    }
+}
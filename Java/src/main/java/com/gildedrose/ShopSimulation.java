@@ -0,0 +1,210 @@
+package com.gildedrose;
+
+import java.lang.reflect.Method;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Objects;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicReference;
+
+/**
+ * Rolls many independent shops over together.
+ * <p>
+ * Registered shops are grouped into batches of roughly {@code batchItems}
+ * items, so a thousand tiny shops cost a handful of tasks rather than a
+ * thousand, and each batch runs as one task on the executor. At most
+ * {@code maxConcurrency} batches are in flight at a time. By default the
+ * executor starts a virtual thread per task when the runtime offers them
+ * and otherwise falls back to one platform thread per core.
+ */
+final class ShopSimulation implements AutoCloseable {
+    static final int DEFAULT_BATCH_ITEMS = 1 << 14;
+
+    /**
+     * Told about progress from the threads running the rollover, so
+     * implementations must be thread-safe.
+     */
+    interface Listener {
+        Listener NONE = new Listener() {
+        };
+
+        default void shopCompleted(String id, GildedRose shop) {
+        }
+
+        default void progress(int shopsCompleted, int shopsTotal) {
+        }
+    }
+
+    private final ExecutorService executor;
+
+    private final boolean ownsExecutor;
+
+    private final int maxConcurrency;
+
+    private final int batchItems;
+
+    private final List<String> ids = new ArrayList<>();
+
+    private final List<GildedRose> shops = new ArrayList<>();
+
+    ShopSimulation() {
+        this(defaultExecutor(), true, Runtime.getRuntime().availableProcessors() * 4, DEFAULT_BATCH_ITEMS);
+    }
+
+    /**
+     * Runs on a caller-supplied executor, which is left running on {@link #close()}.
+     */
+    ShopSimulation(ExecutorService executor, int maxConcurrency, int batchItems) {
+        this(executor, false, maxConcurrency, batchItems);
+    }
+
+    private ShopSimulation(ExecutorService executor, boolean ownsExecutor, int maxConcurrency, int batchItems) {
+        if (maxConcurrency < 1) {
+            throw new IllegalArgumentException("maxConcurrency must be positive: " + maxConcurrency);
+        }
+        if (batchItems < 1) {
+            throw new IllegalArgumentException("batchItems must be positive: " + batchItems);
+        }
+        this.executor = Objects.requireNonNull(executor);
+        this.ownsExecutor = ownsExecutor;
+        this.maxConcurrency = maxConcurrency;
+        this.batchItems = batchItems;
+    }
+
+    private static ExecutorService defaultExecutor() {
+        try {
+            Method virtualThreads = Executors.class.getMethod("newVirtualThreadPerTaskExecutor");
+            return (ExecutorService) virtualThreads.invoke(null);
+        } catch (ReflectiveOperationException e) {
+            return Executors.newFixedThreadPool(Runtime.getRuntime().availableProcessors(), task -> {
+                Thread thread = new Thread(task, "shop-simulation");
+                thread.setDaemon(true);
+                return thread;
+            });
+        }
+    }
+
+    synchronized void register(String id, GildedRose shop) {
+        ids.add(Objects.requireNonNull(id));
+        shops.add(Objects.requireNonNull(shop));
+    }
+
+    synchronized int shopCount() {
+        return shops.size();
+    }
+
+    /**
+     * Advances every registered shop by {@code days} days and waits for all of
+     * them to finish. If any shop or its listener calls fail, the others still
+     * complete and the first failure is rethrown.
+     */
+    void rollover(int days, Listener listener) throws InterruptedException {
+        if (days < 0) {
+            throw new IllegalArgumentException("days must not be negative: " + days);
+        }
+        Objects.requireNonNull(listener);
+
+        List<String> ids;
+        List<GildedRose> shops;
+        synchronized (this) {
+            ids = new ArrayList<>(this.ids);
+            shops = new ArrayList<>(this.shops);
+        }
+
+        List<int[]> batches = batches(shops);
+        CountDownLatch done = new CountDownLatch(batches.size());
+        Semaphore inFlight = new Semaphore(maxConcurrency);
+        AtomicInteger completed = new AtomicInteger();
+        AtomicReference<RuntimeException> failure = new AtomicReference<>();
+
+        for (int[] batch : batches) {
+            inFlight.acquire();
+            try {
+                executor.execute(() -> {
+                    try {
+                        for (int i = batch[0]; i < batch[1]; i++) {
+                            try {
+                                roll(shops.get(i), days);
+                                listener.shopCompleted(ids.get(i), shops.get(i));
+                                listener.progress(completed.incrementAndGet(), shops.size());
+                            } catch (Throwable e) {
+                                failure.compareAndSet(null,
+                                        new IllegalStateException("Rollover failed for shop " + ids.get(i), e));
+                            }
+                        }
+                    } finally {
+                        inFlight.release();
+                        done.countDown();
+                    }
+                });
+            } catch (RejectedExecutionException e) {
+                inFlight.release();
+                done.countDown();
+                failure.compareAndSet(null, new IllegalStateException(
+                        "Rollover was not started for shops " + ids.get(batch[0]) + " to " + ids.get(batch[1] - 1), e));
+            }
+        }
+        done.await();
+
+        if (failure.get() != null) {
+            throw failure.get();
+        }
+    }
+
+    private static void roll(GildedRose shop, int days) {
+        if (days == 1) {
+            shop.updateQuality();
+        } else {
+            shop.advance(days);
+        }
+    }
+
+    /**
+     * Consecutive runs of shops holding about {@code batchItems} items between them.
+     */
+    private List<int[]> batches(List<GildedRose> shops) {
+        List<int[]> batches = new ArrayList<>();
+        int start = 0;
+        long items = 0;
+        for (int i = 0; i < shops.size(); i++) {
+            items += shops.get(i).inventory().size();
+            if (items >= batchItems) {
+                batches.add(new int[]{start, i + 1});
+                start = i + 1;
+                items = 0;
+            }
+        }
+        if (start < shops.size()) {
+            batches.add(new int[]{start, shops.size()});
+        }
+        return batches;
+    }
+
+    /**
+     * Shuts down the executor if this simulation created it, waiting up to a
+     * minute for running batches. Batches still running after that are
+     * interrupted, as they are if the calling thread is.
+     */
+    @Override
+    public void close() {
+        if (!ownsExecutor) {
+            return;
+        }
+        executor.shutdown();
+        try {
+            if (!executor.awaitTermination(1, TimeUnit.MINUTES)) {
+                executor.shutdownNow();
+                throw new IllegalStateException("Shop rollovers were still running a minute after close");
+            }
+        } catch (InterruptedException e) {
+            executor.shutdownNow();
+            Thread.currentThread().interrupt();
+        }
+    }
+}
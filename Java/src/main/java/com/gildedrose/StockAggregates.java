@@ -0,0 +1,218 @@
+package com.gildedrose;
+
+import java.util.Arrays;
+import java.util.function.IntSupplier;
+
+/**
+ * Totals per {@link UpdateMetrics} category that a store keeps current as
+ * part of each rollover, so dashboards read them without a pass over the
+ * stock.
+ * <p>
+ * Quality totals and the counts of items at 0 and at 50 only move when an
+ * item's quality does. The daily loop records each change into a
+ * {@link Delta} local to its range of rows; the deltas are folded in when
+ * the rollover commits and dropped if it aborts. Sell-in needs no upkeep at
+ * all: every item that ages loses the same day, so each category keeps the
+ * sell-ins it was loaded with in sorted order and counts today's sell-in
+ * range by binary search, shifted by the day counter.
+ * <p>
+ * Queries read the latest committed day and must not run while a rollover is
+ * in progress.
+ */
+final class StockAggregates {
+    private static final int CATEGORIES = UpdateMetrics.CATEGORIES;
+
+    private static final int MAX_QUALITY = 50;
+
+    private final IntSupplier day;
+
+    private final long[] counts = new long[CATEGORIES];
+
+    private final long[] quality = new long[CATEGORIES];
+
+    private final long[] atZero = new long[CATEGORIES];
+
+    private final long[] atMax = new long[CATEGORIES];
+
+    private final long[] pendingQuality = new long[CATEGORIES];
+
+    private final long[] pendingAtZero = new long[CATEGORIES];
+
+    private final long[] pendingAtMax = new long[CATEGORIES];
+
+    /** Sorted day 0 sell-ins of items that age, per category. */
+    private final int[][] agingSellIns;
+
+    /** Sorted sell-ins of items that never age, per category. */
+    private final int[][] fixedSellIns;
+
+    /**
+     * @param day days elapsed since the store's day 0, which {@code sellIn}
+     *            holds the sell-ins of
+     */
+    StockAggregates(IntSupplier day, RuleBook rules, byte[] kinds, int[] sellIn, int[] quality) {
+        this.day = day;
+        int[] aging = new int[CATEGORIES];
+        int[] fixed = new int[CATEGORIES];
+        for (int i = 0; i < kinds.length; i++) {
+            int c = UpdateMetrics.category(kinds[i]);
+            counts[c]++;
+            this.quality[c] += quality[i];
+            atZero[c] += quality[i] == 0 ? 1 : 0;
+            atMax[c] += quality[i] == MAX_QUALITY ? 1 : 0;
+            if (rules.agesSellIn(kinds[i])) {
+                aging[c]++;
+            } else {
+                fixed[c]++;
+            }
+        }
+
+        agingSellIns = new int[CATEGORIES][];
+        fixedSellIns = new int[CATEGORIES][];
+        for (int c = 0; c < CATEGORIES; c++) {
+            agingSellIns[c] = new int[aging[c]];
+            fixedSellIns[c] = new int[fixed[c]];
+            aging[c] = 0;
+            fixed[c] = 0;
+        }
+        for (int i = 0; i < kinds.length; i++) {
+            int c = UpdateMetrics.category(kinds[i]);
+            if (rules.agesSellIn(kinds[i])) {
+                agingSellIns[c][aging[c]++] = sellIn[i];
+            } else {
+                fixedSellIns[c][fixed[c]++] = sellIn[i];
+            }
+        }
+        for (int c = 0; c < CATEGORIES; c++) {
+            Arrays.sort(agingSellIns[c]);
+            Arrays.sort(fixedSellIns[c]);
+        }
+    }
+
+    long count(int category) {
+        return counts[category];
+    }
+
+    long totalQuality(int category) {
+        return quality[category];
+    }
+
+    long atZero(int category) {
+        return atZero[category];
+    }
+
+    long atMax(int category) {
+        return atMax[category];
+    }
+
+    /**
+     * Items in {@code category} whose sell-in today is below 0.
+     */
+    long expired(int category) {
+        return sellInBelow(category, 0);
+    }
+
+    /**
+     * Items in {@code category} whose sell-in today lies between {@code min}
+     * and {@code max} inclusive.
+     */
+    long sellInBetween(int category, int min, int max) {
+        if (min > max) {
+            return 0;
+        }
+        return sellInBelow(category, max + 1L) - sellInBelow(category, min);
+    }
+
+    /**
+     * Counts items in {@code category} by today's sell-in: the first bucket
+     * holds those below {@code bounds[0]}, bucket {@code b} those from
+     * {@code bounds[b - 1]} up to but not including {@code bounds[b]}, and
+     * the last those at or above the final bound. Bounds must be ascending.
+     */
+    long[] expiryHistogram(int category, int... bounds) {
+        long[] histogram = new long[bounds.length + 1];
+        long below = 0;
+        for (int b = 0; b < bounds.length; b++) {
+            if (b > 0 && bounds[b] < bounds[b - 1]) {
+                throw new IllegalArgumentException("Bounds must be ascending: " + Arrays.toString(bounds));
+            }
+            long next = sellInBelow(category, bounds[b]);
+            histogram[b] = next - below;
+            below = next;
+        }
+        histogram[bounds.length] = counts[category] - below;
+        return histogram;
+    }
+
+    private long sellInBelow(int category, long sellIn) {
+        return firstAtLeast(agingSellIns[category], sellIn + day.getAsInt())
+                + firstAtLeast(fixedSellIns[category], sellIn);
+    }
+
+    private static int firstAtLeast(int[] sellIns, long key) {
+        int low = 0;
+        int high = sellIns.length;
+        while (low < high) {
+            int mid = (low + high) >>> 1;
+            if (sellIns[mid] < key) {
+                low = mid + 1;
+            } else {
+                high = mid;
+            }
+        }
+        return low;
+    }
+
+    Delta delta() {
+        return new Delta();
+    }
+
+    /**
+     * Folds the changes recorded since the last commit into the totals.
+     */
+    synchronized void commit() {
+        for (int c = 0; c < CATEGORIES; c++) {
+            quality[c] += pendingQuality[c];
+            atZero[c] += pendingAtZero[c];
+            atMax[c] += pendingAtMax[c];
+        }
+        abort();
+    }
+
+    /**
+     * Drops the changes recorded since the last commit.
+     */
+    synchronized void abort() {
+        Arrays.fill(pendingQuality, 0);
+        Arrays.fill(pendingAtZero, 0);
+        Arrays.fill(pendingAtMax, 0);
+    }
+
+    /**
+     * Quality changes for a run of rows aged by one thread, held as the
+     * quality, at-0 and at-50 changes of each category side by side.
+     */
+    final class Delta {
+        private final long[] changes = new long[3 * CATEGORIES];
+
+        void record(byte kind, int before, int after) {
+            if (before == after) {
+                return;
+            }
+            int c = 3 * UpdateMetrics.category(kind);
+            changes[c] += after - before;
+            changes[c + 1] += (after == 0 ? 1 : 0) - (before == 0 ? 1 : 0);
+            changes[c + 2] += (after == MAX_QUALITY ? 1 : 0) - (before == MAX_QUALITY ? 1 : 0);
+        }
+
+        void flush() {
+            synchronized (StockAggregates.this) {
+                for (int c = 0; c < CATEGORIES; c++) {
+                    pendingQuality[c] += changes[3 * c];
+                    pendingAtZero[c] += changes[3 * c + 1];
+                    pendingAtMax[c] += changes[3 * c + 2];
+                }
+            }
+        }
+    }
+}
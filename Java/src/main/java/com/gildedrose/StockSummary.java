@@ -0,0 +1,85 @@
+package com.gildedrose;
+
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+
+/**
+ * Item counts, total quality and expired items per category, as the
+ * {@link UpdateMetrics} categories group them. Summaries of separate parts of
+ * the stock add up to the summary of the whole.
+ */
+final class StockSummary {
+    private final long[] counts = new long[UpdateMetrics.CATEGORIES];
+
+    private final long[] quality = new long[UpdateMetrics.CATEGORIES];
+
+    private final long[] expired = new long[UpdateMetrics.CATEGORIES];
+
+    static StockSummary of(InventorySnapshot snapshot, Inventory inventory) {
+        StockSummary summary = new StockSummary();
+        for (int i = 0; i < snapshot.size(); i++) {
+            int category = UpdateMetrics.category(inventory.kind(i));
+            summary.counts[category]++;
+            summary.quality[category] += snapshot.quality(i);
+            if (snapshot.sellIn(i) < 0) {
+                summary.expired[category]++;
+            }
+        }
+        return summary;
+    }
+
+    long count(int category) {
+        return counts[category];
+    }
+
+    long totalQuality(int category) {
+        return quality[category];
+    }
+
+    long expired(int category) {
+        return expired[category];
+    }
+
+    long count() {
+        long total = 0;
+        for (long count : counts) {
+            total += count;
+        }
+        return total;
+    }
+
+    long totalQuality() {
+        long total = 0;
+        for (long value : quality) {
+            total += value;
+        }
+        return total;
+    }
+
+    void add(StockSummary other) {
+        for (int c = 0; c < UpdateMetrics.CATEGORIES; c++) {
+            counts[c] += other.counts[c];
+            quality[c] += other.quality[c];
+            expired[c] += other.expired[c];
+        }
+    }
+
+    void write(DataOutputStream out) throws IOException {
+        for (int c = 0; c < UpdateMetrics.CATEGORIES; c++) {
+            out.writeLong(counts[c]);
+            out.writeLong(quality[c]);
+            out.writeLong(expired[c]);
+        }
+    }
+
+    static StockSummary read(DataInputStream in) throws IOException {
+        StockSummary summary = new StockSummary();
+        for (int c = 0; c < UpdateMetrics.CATEGORIES; c++) {
+            summary.counts[c] = in.readLong();
+            summary.quality[c] = in.readLong();
+            summary.expired[c] = in.readLong();
+        }
+        return summary;
+    }
+}
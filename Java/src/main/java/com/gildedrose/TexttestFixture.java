@@ -1,6 +1,8 @@
 package com.gildedrose;
 
+import java.io.IOException;
 import java.io.PrintStream;
+import java.io.UncheckedIOException;
 import java.util.Arrays;
 
 public class TexttestFixture {
@@ -30,14 +32,15 @@ public class TexttestFixture {
             days = Integer.parseInt(args[0]) + 1;
         }
 
-        for (int i = 0; i < days; i++) {
-            printStream.println("-------- day " + i + " --------");
-            printStream.println("name, sellIn, quality");
-            for (Item item : items) {
-                printStream.println(item);
+        try {
+            ReportWriter report = new ReportWriter(printStream);
+            for (int i = 0; i < days; i++) {
+                report.dayHeader(i).items(app).newLine();
+                app.updateQuality();
             }
-            printStream.println();
-            app.updateQuality();
+            report.flush();
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
         }
     }
 
@@ -0,0 +1,513 @@
+package com.gildedrose;
+
+import java.util.Arrays;
+import java.util.List;
+import java.util.Objects;
+
+/**
+ * Stock split into a hot tier of items that still change and a cold tier of
+ * items that never will again.
+ * <p>
+ * Expired items at quality 0, backstage passes after the concert, Aged Brie
+ * at 50 and Sulfuras are only ever read. They are packed into a
+ * {@link ColdStock}, a few bytes each, while the rest sit in a small
+ * {@link Inventory} that the daily pass scans. A bitmap records which tier
+ * each position is in, with a running count per word, so items keep their
+ * places and every read finds its row in constant time.
+ * <p>
+ * Items that settle stay in the hot tier until they make up a quarter of it,
+ * or {@code minSpill} rows if that is more; the next rollover then rebuilds
+ * both tiers with them moved across. Each rebuild is published as one
+ * immutable set of tiers, so reads never see an item in neither tier.
+ * <p>
+ * Snapshots pin a day of the hot tier alongside the cold tier it was built
+ * with. Indexes and aggregates cover both tiers by position: cold rows never
+ * change, so they are counted once when these are built, and the hot tier's
+ * changes reach them and any delta sink through a sink of its own that maps
+ * hot rows back to positions.
+ */
+final class TieredInventory implements ItemStore, ItemStore.Snapshots, ItemStore.Indexed, ItemStore.Aggregated,
+        ItemStore.ChangeCapture {
+    static final int MIN_SPILL = 4096;
+
+    private final NameTable names;
+
+    private final RuleBook rules;
+
+    private final int size;
+
+    private final int minSpill;
+
+    private volatile Tiers tiers;
+
+    private UpdateMetrics metrics;
+
+    private final HotChanges hotChanges = new HotChanges();
+
+    private ItemIndex index;
+
+    private StockAggregates aggregates;
+
+    private DeltaSink deltaSink;
+
+    private DeltaBatch deltas;
+
+    private static final class Tiers {
+        /** Bit {@code i} is set when item {@code i} is in the hot tier. */
+        final long[] hotBits;
+
+        /** Hot items before each word of {@link #hotBits}. */
+        final int[] ranks;
+
+        /** The position of each hot row. */
+        final int[] hotPositions;
+
+        final Inventory hot;
+
+        /** The day {@link #hot} was built on, which is its day 0. */
+        final int hotSince;
+
+        final ColdStock cold;
+
+        Tiers(long[] hotBits, Inventory hot, int hotSince, ColdStock cold) {
+            this.hotBits = hotBits;
+            this.hot = hot;
+            this.hotSince = hotSince;
+            this.cold = cold;
+            ranks = new int[hotBits.length];
+            hotPositions = new int[hot.size()];
+            int rank = 0;
+            for (int w = 0; w < hotBits.length; w++) {
+                ranks[w] = rank;
+                for (long bits = hotBits[w]; bits != 0; bits &= bits - 1) {
+                    hotPositions[rank++] = (w << 6) + Long.numberOfTrailingZeros(bits);
+                }
+            }
+        }
+
+        boolean isHot(int index) {
+            return (hotBits[index >>> 6] & (1L << index)) != 0;
+        }
+
+        /** Hot items before {@code index}; its row in whichever tier holds it follows from this. */
+        int rank(int index) {
+            return ranks[index >>> 6] + Long.bitCount(hotBits[index >>> 6] & ((1L << index) - 1));
+        }
+
+        int day() {
+            return hotSince + hot.day();
+        }
+    }
+
+    TieredInventory(List<Item> items) {
+        this(items, NameTable.SHARED, RuleBook.STANDARD, MIN_SPILL);
+    }
+
+    TieredInventory(List<Item> items, NameTable names, RuleBook rules, int minSpill) {
+        if (minSpill < 1) {
+            throw new IllegalArgumentException("minSpill must be positive: " + minSpill);
+        }
+        this.names = Objects.requireNonNull(names);
+        this.rules = Objects.requireNonNull(rules);
+        this.minSpill = minSpill;
+        size = items.size();
+
+        long[] hotBits = new long[(size + 63) >>> 6];
+        int[] nameIds = new int[size];
+        int[] sellIn = new int[size];
+        int[] quality = new int[size];
+        int hotCount = 0;
+        ColdStock.Builder cold = new ColdStock.Builder();
+        RuleBook.Resolver resolver = rules.resolver();
+        int i = 0;
+        for (Item item : items) {
+            Objects.requireNonNull(item);
+            Objects.requireNonNull(item.name);
+
+            int id = names.intern(item.name);
+            byte kind = resolver.kindOf(id, item.name);
+            if (rules.isSettled(kind, item.sellIn, item.quality)) {
+                cold.add(id, kind, item.sellIn, item.quality);
+            } else {
+                hotBits[i >>> 6] |= 1L << i;
+                nameIds[hotCount] = id;
+                sellIn[hotCount] = item.sellIn;
+                quality[hotCount] = item.quality;
+                hotCount++;
+            }
+            i++;
+        }
+        tiers = new Tiers(hotBits, hotTier(nameIds, sellIn, quality, hotCount), 0, cold.build());
+    }
+
+    private Inventory hotTier(int[] nameIds, int[] sellIn, int[] quality, int count) {
+        return new Inventory(Arrays.copyOf(nameIds, count), Arrays.copyOf(sellIn, count),
+                Arrays.copyOf(quality, count), names, rules);
+    }
+
+    @Override
+    public int size() {
+        return size;
+    }
+
+    @Override
+    public NameTable names() {
+        return names;
+    }
+
+    int hotSize() {
+        return tiers.hot.size();
+    }
+
+    int coldSize() {
+        return tiers.cold.size();
+    }
+
+    /**
+     * Bytes the cold tier takes up.
+     */
+    long coldBytes() {
+        return tiers.cold.bytes();
+    }
+
+    int day() {
+        return tiers.day();
+    }
+
+    @Override
+    public int nameId(int index) {
+        Objects.checkIndex(index, size);
+        Tiers t = tiers;
+        if (t.isHot(index)) {
+            return t.hot.nameId(t.rank(index));
+        }
+        return cold(t, index).nameId;
+    }
+
+    @Override
+    public int sellIn(int index) {
+        Objects.checkIndex(index, size);
+        Tiers t = tiers;
+        if (t.isHot(index)) {
+            return t.hot.sellIn(t.rank(index));
+        }
+        ColdStock.Reader row = cold(t, index);
+        return rules.sellInAfter(row.kind, row.sellIn, t.day());
+    }
+
+    @Override
+    public int quality(int index) {
+        Objects.checkIndex(index, size);
+        Tiers t = tiers;
+        if (t.isHot(index)) {
+            return t.hot.quality(t.rank(index));
+        }
+        return cold(t, index).quality;
+    }
+
+    private static ColdStock.Reader cold(Tiers t, int index) {
+        ColdStock.Reader row = t.cold.reader();
+        t.cold.read(index - t.rank(index), row);
+        return row;
+    }
+
+    /**
+     * Pins a day of the hot tier together with the cold tier beside it. A
+     * spill that runs meanwhile builds a new hot tier and leaves the pinned
+     * one alone.
+     */
+    @Override
+    public InventorySnapshot snapshot() {
+        Tiers t = tiers;
+        InventorySnapshot hot = t.hot.snapshot();
+        int day = t.hotSince + hot.day();
+        return new InventorySnapshot(new TierRows(t, hot, day), day, size, hot::close);
+    }
+
+    /**
+     * A cursor over the latest completed day, pinned until it is closed.
+     */
+    @Override
+    public ItemCursor cursor() {
+        InventorySnapshot snapshot = snapshot();
+        return new ItemCursor(snapshot.size(), names, snapshot::read, snapshot::close);
+    }
+
+    /**
+     * Builds the secondary indexes over both tiers on first use; from then on
+     * every rollover keeps them up to date. Call between rollovers.
+     */
+    @Override
+    public ItemIndex index() {
+        if (index == null) {
+            Columns columns = new Columns(tiers);
+            index = new ItemIndex(this, this::day, rules, columns.kinds, columns.sellIn, columns.quality);
+            listen(tiers.hot);
+        }
+        return index;
+    }
+
+    @Override
+    public StockAggregates aggregates() {
+        if (aggregates == null) {
+            Columns columns = new Columns(tiers);
+            aggregates = new StockAggregates(this::day, rules, columns.kinds, columns.sellIn, columns.quality);
+            listen(tiers.hot);
+        }
+        return aggregates;
+    }
+
+    /**
+     * Reports changes by position, with days counted from when this store was
+     * created.
+     */
+    @Override
+    public void setDeltaSink(DeltaSink sink, int batchSize) {
+        deltas = sink == null ? null : new DeltaBatch(batchSize);
+        deltaSink = sink;
+        listen(tiers.hot);
+    }
+
+    @Override
+    public void setMetrics(UpdateMetrics metrics) {
+        this.metrics = metrics;
+        tiers.hot.setMetrics(metrics);
+    }
+
+    /**
+     * Has {@code hot} report its changes while anything needs them.
+     */
+    private void listen(Inventory hot) {
+        boolean listening = index != null || aggregates != null || deltaSink != null;
+        hot.setDeltaSink(listening ? hotChanges : null, DeltaBatch.DEFAULT_CAPACITY);
+    }
+
+    @Override
+    public void updateQuality(Parallelism parallelism) {
+        tiers.hot.updateQuality(parallelism);
+        spillIfDue();
+    }
+
+    @Override
+    public void advance(int days, Parallelism parallelism) {
+        if (days < 0) {
+            throw new IllegalArgumentException("days must not be negative: " + days);
+        }
+        tiers.hot.advance(days, parallelism);
+        spillIfDue();
+    }
+
+    private void spillIfDue() {
+        Inventory hot = tiers.hot;
+        int settled = hot.size() - hot.activeCount();
+        if (settled > 0 && settled >= Math.max(minSpill, hot.size() >> 2)) {
+            spill();
+        }
+    }
+
+    /**
+     * Rebuilds both tiers with the hot tier's settled items moved to the cold
+     * one, merging them in by position so cold rows stay in item order.
+     */
+    private void spill() {
+        Tiers t = tiers;
+        Inventory hot = t.hot;
+        int day = t.day();
+        int hotSize = hot.size();
+
+        long[] hotBits = t.hotBits.clone();
+        int[] nameIds = new int[hotSize];
+        int[] sellIn = new int[hotSize];
+        int[] quality = new int[hotSize];
+        int hotCount = 0;
+        ColdStock.Builder cold = new ColdStock.Builder();
+        ColdStock.Reader stale = t.cold.reader();
+        int hotRow = 0;
+        for (int i = 0; i < size; i++) {
+            if (!t.isHot(i)) {
+                stale.next();
+                cold.add(stale.nameId, stale.kind, stale.sellIn, stale.quality);
+                continue;
+            }
+            byte kind = hot.kind(hotRow);
+            int s = hot.sellIn(hotRow);
+            int q = hot.quality(hotRow);
+            if (rules.isSettled(kind, s, q)) {
+                hotBits[i >>> 6] &= ~(1L << i);
+                cold.add(hot.nameId(hotRow), kind, rules.agesSellIn(kind) ? s + day : s, q);
+            } else {
+                nameIds[hotCount] = hot.nameId(hotRow);
+                sellIn[hotCount] = s;
+                quality[hotCount] = q;
+                hotCount++;
+            }
+            hotRow++;
+        }
+
+        Inventory rebuilt = hotTier(nameIds, sellIn, quality, hotCount);
+        rebuilt.setMetrics(metrics);
+        listen(rebuilt);
+        tiers = new Tiers(hotBits, rebuilt, day, cold.build());
+    }
+
+    /**
+     * Every item's kind, sell-in as of day 0 and latest quality, in position
+     * order, to build indexes and aggregates from.
+     */
+    private final class Columns {
+        final byte[] kinds = new byte[size];
+
+        final int[] sellIn = new int[size];
+
+        final int[] quality = new int[size];
+
+        Columns(Tiers t) {
+            int day = t.day();
+            ColdStock.Reader cold = t.cold.reader();
+            int hotRow = 0;
+            for (int i = 0; i < size; i++) {
+                if (t.isHot(i)) {
+                    byte kind = t.hot.kind(hotRow);
+                    int s = t.hot.sellIn(hotRow);
+                    kinds[i] = kind;
+                    sellIn[i] = rules.agesSellIn(kind) ? s + day : s;
+                    quality[i] = t.hot.quality(hotRow);
+                    hotRow++;
+                } else {
+                    cold.next();
+                    kinds[i] = cold.kind;
+                    sellIn[i] = cold.sellIn;
+                    quality[i] = cold.quality;
+                }
+            }
+        }
+    }
+
+    /**
+     * One day of both tiers: the hot tier through its snapshot, and cold rows
+     * read in sequence rather than found afresh.
+     */
+    private final class TierRows implements InventorySnapshot.Rows {
+        private final Tiers t;
+
+        private final InventorySnapshot hot;
+
+        private final int day;
+
+        TierRows(Tiers t, InventorySnapshot hot, int day) {
+            this.t = t;
+            this.hot = hot;
+            this.day = day;
+        }
+
+        @Override
+        public String name(int index) {
+            if (t.isHot(index)) {
+                return names.name(t.hot.nameId(t.rank(index)));
+            }
+            return names.name(cold(t, index).nameId);
+        }
+
+        @Override
+        public int sellIn(int index) {
+            if (t.isHot(index)) {
+                return hot.sellIn(t.rank(index));
+            }
+            ColdStock.Reader row = cold(t, index);
+            return rules.sellInAfter(row.kind, row.sellIn, day);
+        }
+
+        @Override
+        public int quality(int index) {
+            if (t.isHot(index)) {
+                return hot.quality(t.rank(index));
+            }
+            return cold(t, index).quality;
+        }
+
+        @Override
+        public void read(int from, int count, ItemBatch batch) {
+            int hotRow = t.rank(from);
+            int coldRow = from - hotRow;
+            ColdStock.Reader cold = t.cold.reader();
+            if (coldRow < t.cold.size()) {
+                t.cold.read(coldRow, cold);
+            }
+            int[] nameIds = batch.nameIds();
+            int[] sellIns = batch.sellIns();
+            int[] qualities = batch.qualities();
+            boolean pending = true;
+            for (int j = 0; j < count; j++) {
+                if (t.isHot(from + j)) {
+                    nameIds[j] = t.hot.nameId(hotRow);
+                    sellIns[j] = hot.sellIn(hotRow);
+                    qualities[j] = hot.quality(hotRow);
+                    hotRow++;
+                } else {
+                    if (!pending) {
+                        cold.next();
+                    }
+                    pending = false;
+                    nameIds[j] = cold.nameId;
+                    sellIns[j] = rules.sellInAfter(cold.kind, cold.sellIn, day);
+                    qualities[j] = cold.quality;
+                }
+            }
+        }
+    }
+
+    /**
+     * Receives the hot tier's changes and passes them on by position to the
+     * indexes, the aggregates and the delta sink.
+     */
+    private final class HotChanges implements DeltaSink {
+        private StockAggregates.Delta delta;
+
+        @Override
+        public void dayAdvanced(int day, int days) {
+            if (aggregates != null) {
+                delta = aggregates.delta();
+            }
+            if (deltaSink != null) {
+                deltaSink.dayAdvanced(tiers.hotSince + day, days);
+            }
+        }
+
+        @Override
+        public void accept(DeltaBatch batch) {
+            Tiers t = tiers;
+            for (int e = 0; e < batch.size(); e++) {
+                int hotRow = batch.id(e);
+                int position = t.hotPositions[hotRow];
+                int before = batch.oldQuality(e);
+                int after = batch.newQuality(e);
+                if (index != null) {
+                    index.qualityChanged(position, before, after);
+                }
+                if (delta != null) {
+                    delta.record(t.hot.kind(hotRow), before, after);
+                }
+                if (deltaSink != null && deltas.add(position, before, after, batch.sellIn(e))) {
+                    deltaSink.accept(deltas);
+                    deltas.clear();
+                }
+            }
+        }
+
+        @Override
+        public void dayCompleted(int day) {
+            if (delta != null) {
+                delta.flush();
+                delta = null;
+                aggregates.commit();
+            }
+            if (deltaSink != null) {
+                if (deltas.size() > 0) {
+                    deltaSink.accept(deltas);
+                    deltas.clear();
+                }
+                deltaSink.dayCompleted(tiers.hotSince + day);
+            }
+        }
+    }
+}
@@ -0,0 +1,216 @@
+package com.gildedrose;
+
+import java.lang.management.ManagementFactory;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.logging.Logger;
+import javax.management.JMException;
+import javax.management.MBeanServer;
+import javax.management.ObjectName;
+
+/**
+ * Counters for the daily update of one shop.
+ * <p>
+ * The update loop counts into a {@link Tally} local to the range of items it
+ * is working on and adds it to the shared {@link LongAdder}s once the range is
+ * done, so parallel workers do not contend on the counters. Shops without
+ * metrics skip the tally altogether.
+ */
+final class UpdateMetrics implements UpdateMetricsMXBean {
+    static final int CATEGORIES = ItemKind.FIRST_CUSTOM + 1;
+
+    private static final String[] CATEGORY_NAMES = {
+            "normal", "agedBrie", "backstagePasses", "sulfuras", "conjured", "custom"
+    };
+
+    private static final Logger LOGGER = Logger.getLogger(UpdateMetrics.class.getName());
+
+    private final LongAdder[] processed = new LongAdder[CATEGORIES];
+
+    private final LongAdder rolloverItems = new LongAdder();
+
+    private final LongAdder floorEvents = new LongAdder();
+
+    private final LongAdder ceilingEvents = new LongAdder();
+
+    private final LongAdder backstageDrops = new LongAdder();
+
+    private final LongAdder rollovers = new LongAdder();
+
+    private final LongAdder totalNanos = new LongAdder();
+
+    private volatile long lastNanos;
+
+    private volatile long lastItems;
+
+    private ObjectName objectName;
+
+    UpdateMetrics() {
+        for (int i = 0; i < CATEGORIES; i++) {
+            processed[i] = new LongAdder();
+        }
+    }
+
+    static int category(byte kind) {
+        return kind >= 0 && kind < ItemKind.FIRST_CUSTOM ? kind : ItemKind.FIRST_CUSTOM;
+    }
+
+    Tally tally() {
+        return new Tally();
+    }
+
+    /**
+     * Counts for a run of items processed by one thread.
+     */
+    final class Tally {
+        private final long[] processed = new long[CATEGORIES];
+
+        private long floor;
+
+        private long ceiling;
+
+        private long backstageDrops;
+
+        void record(byte kind, int before, int after) {
+            processed[category(kind)]++;
+            if (kind == ItemKind.BACKSTAGE_PASSES && after == 0 && before > 0) {
+                backstageDrops++;
+            } else if (after <= 0 && before > 0) {
+                floor++;
+            } else if (after >= 50 && before < 50) {
+                ceiling++;
+            }
+        }
+
+        void flush() {
+            long items = 0;
+            for (int i = 0; i < CATEGORIES; i++) {
+                if (processed[i] != 0) {
+                    UpdateMetrics.this.processed[i].add(processed[i]);
+                    items += processed[i];
+                }
+            }
+            rolloverItems.add(items);
+            floorEvents.add(floor);
+            ceilingEvents.add(ceiling);
+            UpdateMetrics.this.backstageDrops.add(backstageDrops);
+        }
+    }
+
+    void rolloverCompleted(long nanos) {
+        rollovers.increment();
+        totalNanos.add(nanos);
+        lastItems = rolloverItems.sumThenReset();
+        lastNanos = nanos;
+    }
+
+    @Override
+    public long getRollovers() {
+        return rollovers.sum();
+    }
+
+    @Override
+    public long getTotalRolloverNanos() {
+        return totalNanos.sum();
+    }
+
+    @Override
+    public long getLastRolloverNanos() {
+        return lastNanos;
+    }
+
+    @Override
+    public long getLastRolloverItems() {
+        return lastItems;
+    }
+
+    @Override
+    public double getLastItemsPerSecond() {
+        long nanos = lastNanos;
+        return nanos == 0 ? 0 : lastItems * 1e9 / nanos;
+    }
+
+    @Override
+    public Map<String, Long> getItemsProcessed() {
+        Map<String, Long> items = new LinkedHashMap<>();
+        for (int i = 0; i < CATEGORIES; i++) {
+            items.put(CATEGORY_NAMES[i], processed[i].sum());
+        }
+        return items;
+    }
+
+    @Override
+    public long getQualityFloorEvents() {
+        return floorEvents.sum();
+    }
+
+    @Override
+    public long getQualityCeilingEvents() {
+        return ceilingEvents.sum();
+    }
+
+    @Override
+    public long getBackstageDropEvents() {
+        return backstageDrops.sum();
+    }
+
+    @Override
+    public void reset() {
+        for (LongAdder adder : processed) {
+            adder.reset();
+        }
+        floorEvents.reset();
+        ceilingEvents.reset();
+        backstageDrops.reset();
+        rollovers.reset();
+        totalNanos.reset();
+        lastNanos = 0;
+        lastItems = 0;
+    }
+
+    /**
+     * Registers these metrics with the platform MBean server as
+     * {@code com.gildedrose:type=UpdateMetrics,name=<name>}.
+     */
+    synchronized ObjectName register(String name) throws JMException {
+        unregister();
+        ObjectName objectName = ObjectName.getInstance("com.gildedrose:type=UpdateMetrics,name=" + ObjectName.quote(name));
+        ManagementFactory.getPlatformMBeanServer().registerMBean(this, objectName);
+        this.objectName = objectName;
+        return objectName;
+    }
+
+    synchronized void unregister() throws JMException {
+        if (objectName != null) {
+            MBeanServer server = ManagementFactory.getPlatformMBeanServer();
+            if (server.isRegistered(objectName)) {
+                server.unregisterMBean(objectName);
+            }
+            objectName = null;
+        }
+    }
+
+    /**
+     * Logs a summary line every {@code period} until the returned handle is closed.
+     */
+    AutoCloseable logEvery(long period, TimeUnit unit) {
+        ScheduledExecutorService scheduler = Executors.newSingleThreadScheduledExecutor(task -> {
+            Thread thread = new Thread(task, "update-metrics-log");
+            thread.setDaemon(true);
+            return thread;
+        });
+        scheduler.scheduleAtFixedRate(() -> LOGGER.info(this::summary), period, period, unit);
+        return scheduler::shutdownNow;
+    }
+
+    String summary() {
+        return String.format("rollovers=%d lastRolloverMs=%.3f lastItems=%d itemsPerSecond=%.0f"
+                        + " floorEvents=%d ceilingEvents=%d backstageDrops=%d processed=%s",
+                getRollovers(), lastNanos / 1e6, lastItems, getLastItemsPerSecond(),
+                getQualityFloorEvents(), getQualityCeilingEvents(), getBackstageDropEvents(), getItemsProcessed());
+    }
+}
@@ -0,0 +1,41 @@
+package com.gildedrose;
+
+import java.util.Map;
+
+/**
+ * What a {@link GildedRose} has spent on rollovers, as seen over JMX.
+ */
+public interface UpdateMetricsMXBean {
+    long getRollovers();
+
+    long getTotalRolloverNanos();
+
+    long getLastRolloverNanos();
+
+    long getLastRolloverItems();
+
+    double getLastItemsPerSecond();
+
+    /**
+     * Items visited by rollovers so far, keyed by category. Items that have
+     * settled are no longer visited and so no longer counted.
+     */
+    Map<String, Long> getItemsProcessed();
+
+    /**
+     * Times an item's quality fell to zero or below.
+     */
+    long getQualityFloorEvents();
+
+    /**
+     * Times an item's quality rose to 50 or above.
+     */
+    long getQualityCeilingEvents();
+
+    /**
+     * Times a backstage pass lost all its quality because its concert had passed.
+     */
+    long getBackstageDropEvents();
+
+    void reset();
+}
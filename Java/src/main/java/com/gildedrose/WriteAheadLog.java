@@ -0,0 +1,326 @@
+package com.gildedrose;
+
+import java.io.Closeable;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.channels.FileChannel;
+import java.nio.file.Path;
+import java.util.concurrent.locks.Condition;
+import java.util.concurrent.locks.ReentrantLock;
+import java.util.zip.CRC32C;
+
+import static java.nio.file.StandardOpenOption.CREATE_NEW;
+import static java.nio.file.StandardOpenOption.READ;
+import static java.nio.file.StandardOpenOption.WRITE;
+
+/**
+ * An append-only file of shop mutations with group commit.
+ * <p>
+ * {@link #append} only copies a record into a memory buffer. {@link #sync}
+ * makes everything appended so far durable: the first caller to arrive swaps
+ * the buffer out, writes it and forces the file while later appends fill the
+ * other buffer, and callers that arrive meanwhile wait for that write or the
+ * next one. However many threads append, there is at most one write and one
+ * {@code fsync} in flight at a time.
+ * <p>
+ * Records are little-endian. Each is numbered from one and checked with a
+ * CRC-32C, so reading stops cleanly at a torn or stale tail.
+ *
+ * <pre>
+ * size
+ *    4  payload length
+ *    8  sequence number
+ *    1  record type
+ *    n  payload
+ *    4  CRC-32C of the fields above
+ * </pre>
+ */
+final class WriteAheadLog implements Closeable {
+    /** A rollover; the payload is the number of days as an {@code int}. */
+    static final byte ROLLOVER = 1;
+
+    private static final int HEADER_SIZE = 4 + 8 + 1;
+
+    private static final int TRAILER_SIZE = 4;
+
+    private static final int BUFFER_SIZE = 1 << 16;
+
+    private final FileChannel channel;
+
+    private final ReentrantLock lock = new ReentrantLock();
+
+    private final Condition synced = lock.newCondition();
+
+    private final CRC32C crc = new CRC32C();
+
+    private ByteBuffer pending = newBuffer(BUFFER_SIZE);
+
+    private ByteBuffer spare = newBuffer(BUFFER_SIZE);
+
+    private long appended;
+
+    private long durable;
+
+    private boolean syncing;
+
+    private long syncs;
+
+    private IOException failure;
+
+    private boolean closed;
+
+    private WriteAheadLog(FileChannel channel, long lastSequence) {
+        this.channel = channel;
+        appended = lastSequence;
+        durable = lastSequence;
+    }
+
+    /**
+     * Starts a new, empty log at {@code path}.
+     */
+    static WriteAheadLog create(Path path) throws IOException {
+        return new WriteAheadLog(FileChannel.open(path, CREATE_NEW, WRITE), 0);
+    }
+
+    /**
+     * Replays an existing log and reopens it for appending after its last
+     * intact record, discarding anything beyond.
+     */
+    static WriteAheadLog open(Path path, Replayer replayer) throws IOException {
+        FileChannel channel = FileChannel.open(path, READ, WRITE);
+        try {
+            long[] last = new long[1];
+            long end = scan(channel, replayer, last);
+            channel.truncate(end);
+            channel.position(end);
+            channel.force(false);
+            return new WriteAheadLog(channel, last[0]);
+        } catch (IOException | RuntimeException e) {
+            channel.close();
+            throw e;
+        }
+    }
+
+    /**
+     * Hands every intact record in {@code path} to {@code replayer}, in order.
+     */
+    static void replay(Path path, Replayer replayer) throws IOException {
+        try (FileChannel channel = FileChannel.open(path, READ)) {
+            scan(channel, replayer, new long[1]);
+        }
+    }
+
+    interface Replayer {
+        void apply(byte type, ByteBuffer payload) throws IOException;
+    }
+
+    private static long scan(FileChannel channel, Replayer replayer, long[] last) throws IOException {
+        CRC32C crc = new CRC32C();
+        ByteBuffer buffer = newBuffer(BUFFER_SIZE).flip();
+        long fileSize = channel.size();
+        long position = 0;
+
+        while (fileSize - position >= HEADER_SIZE + TRAILER_SIZE) {
+            if (buffer.remaining() < HEADER_SIZE) {
+                fill(channel, buffer, position);
+            }
+
+            int length = buffer.getInt(buffer.position());
+            long sequence = buffer.getLong(buffer.position() + 4);
+            long size = (long) HEADER_SIZE + length + TRAILER_SIZE;
+            if (length < 0 || position + size > fileSize || sequence != last[0] + 1) {
+                break;
+            }
+            if (buffer.remaining() < size) {
+                if (size > buffer.capacity()) {
+                    buffer = newBuffer((int) size).put(buffer).flip();
+                }
+                fill(channel, buffer, position);
+            }
+
+            int start = buffer.position();
+            ByteBuffer record = buffer.duplicate();
+            record.limit(start + HEADER_SIZE + length);
+            crc.reset();
+            crc.update(record);
+            if ((int) crc.getValue() != buffer.getInt(start + HEADER_SIZE + length)) {
+                break;
+            }
+
+            ByteBuffer payload = buffer.duplicate();
+            payload.position(start + HEADER_SIZE).limit(start + HEADER_SIZE + length);
+            replayer.apply(buffer.get(start + 12), payload.slice().order(ByteOrder.LITTLE_ENDIAN));
+
+            last[0] = sequence;
+            buffer.position(start + (int) size);
+            position += size;
+        }
+        return position;
+    }
+
+    /**
+     * Moves the unread bytes, which start at file offset {@code position}, to
+     * the front of {@code buffer} and reads as much as fits after them.
+     */
+    private static void fill(FileChannel channel, ByteBuffer buffer, long position) throws IOException {
+        int unread = buffer.remaining();
+        buffer.compact();
+        long next = position + unread;
+        while (buffer.hasRemaining()) {
+            int read = channel.read(buffer, next);
+            if (read < 0) {
+                break;
+            }
+            next += read;
+        }
+        buffer.flip();
+    }
+
+    private static ByteBuffer newBuffer(int capacity) {
+        return ByteBuffer.allocate(capacity).order(ByteOrder.LITTLE_ENDIAN);
+    }
+
+    /**
+     * Adds a record to the log, not yet durable, and returns its sequence
+     * number for {@link #sync}.
+     */
+    long append(byte type, ByteBuffer payload) throws IOException {
+        lock.lock();
+        try {
+            checkWritable();
+            int length = payload.remaining();
+            int size = HEADER_SIZE + length + TRAILER_SIZE;
+            if (pending.remaining() < size) {
+                pending = newBuffer(Math.max(pending.capacity() * 2, pending.position() + size)).put(pending.flip());
+            }
+
+            int start = pending.position();
+            long sequence = ++appended;
+            pending.putInt(length).putLong(sequence).put(type).put(payload);
+            ByteBuffer record = pending.duplicate();
+            record.flip().position(start);
+            crc.reset();
+            crc.update(record);
+            pending.putInt((int) crc.getValue());
+            return sequence;
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    long append(byte type, int value) throws IOException {
+        return append(type, newBuffer(4).putInt(0, value));
+    }
+
+    /**
+     * Returns once the record numbered {@code sequence}, and every one before
+     * it, is on disk.
+     */
+    void sync(long sequence) throws IOException {
+        lock.lock();
+        try {
+            while (durable < sequence) {
+                if (failure != null) {
+                    throw new IOException("Write-ahead log failed", failure);
+                }
+                if (syncing) {
+                    synced.awaitUninterruptibly();
+                    continue;
+                }
+                flush();
+            }
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    /**
+     * Makes every record appended so far durable.
+     */
+    void sync() throws IOException {
+        long sequence;
+        lock.lock();
+        try {
+            sequence = appended;
+        } finally {
+            lock.unlock();
+        }
+        sync(sequence);
+    }
+
+    /**
+     * Writes and forces the pending buffer with the lock released, so appends
+     * carry on into the spare buffer meanwhile. Called with the lock held.
+     */
+    private void flush() {
+        ByteBuffer batch = pending;
+        pending = spare;
+        long target = appended;
+        syncing = true;
+        lock.unlock();
+
+        IOException error = null;
+        try {
+            batch.flip();
+            while (batch.hasRemaining()) {
+                channel.write(batch);
+            }
+            channel.force(false);
+        } catch (IOException e) {
+            error = e;
+        } finally {
+            lock.lock();
+            batch.clear();
+            spare = batch;
+            syncing = false;
+            if (error == null) {
+                durable = target;
+                syncs++;
+            } else {
+                failure = error;
+            }
+            synced.signalAll();
+        }
+    }
+
+    /**
+     * Number of times the file has been forced to disk.
+     */
+    long syncs() {
+        lock.lock();
+        try {
+            return syncs;
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    private void checkWritable() throws IOException {
+        if (failure != null) {
+            throw new IOException("Write-ahead log failed", failure);
+        }
+        if (closed) {
+            throw new IllegalStateException("Write-ahead log is closed");
+        }
+    }
+
+    /**
+     * Syncs every appended record and closes the file. Waiting
+     * {@link #sync} calls return normally.
+     */
+    @Override
+    public void close() throws IOException {
+        try {
+            sync();
+        } finally {
+            lock.lock();
+            try {
+                closed = true;
+            } finally {
+                lock.unlock();
+            }
+            channel.close();
+        }
+    }
+}
@@ -0,0 +1,81 @@
+package com.gildedrose;
+
+import org.assertj.core.api.JUnitSoftAssertions;
+import org.junit.Rule;
+import org.junit.Test;
+
+import java.util.ArrayList;
+import java.util.List;
+
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+
+public class AdvanceTest {
+
+    private static final String[] NAMES = {
+            "Normal Item",
+            GildedRose.AGED_BRIE,
+            GildedRose.BACKSTAGE_PASSES,
+            GildedRose.SULFURAS,
+            GildedRose.CONJURED
+    };
+
+    @Rule
+    public final JUnitSoftAssertions softly = new JUnitSoftAssertions();
+
+    /**
+     * Covers in-range and out-of-range starting values, including negative
+     * quality and quality above 50, for every kind of item.
+     */
+    private static List<Item> everyCombination() {
+        List<Item> items = new ArrayList<>();
+        for (String name : NAMES) {
+            for (int sellIn = -3; sellIn <= 16; sellIn++) {
+                for (int quality = -3; quality <= 53; quality++) {
+                    items.add(new Item(name, sellIn, quality));
+                }
+            }
+        }
+        return items;
+    }
+
+    /**
+     * Compares whole lists, as a field by field assertion per item costs
+     * seconds across the grid.
+     */
+    @Test
+    public void matchesDailyUpdates() {
+        for (int days : new int[]{0, 1, 2, 3, 5, 6, 10, 11, 15, 17, 30, 60}) {
+            GildedRose daily = new GildedRose(everyCombination());
+            for (int i = 0; i < days; i++) {
+                daily.updateQuality();
+            }
+
+            GildedRose advanced = new GildedRose(everyCombination());
+            advanced.advance(days);
+
+            softly.assertThat(advanced.getItems().toString())
+                    .as("after %d days", days)
+                    .isEqualTo(daily.getItems().toString());
+        }
+    }
+
+    @Test
+    public void advancesInSteps() {
+        GildedRose daily = new GildedRose(everyCombination());
+        for (int i = 0; i < 20; i++) {
+            daily.updateQuality();
+        }
+
+        GildedRose advanced = new GildedRose(everyCombination());
+        advanced.advance(7);
+        advanced.advance(13);
+
+        softly.assertThat(advanced.getItems().toString()).isEqualTo(daily.getItems().toString());
+    }
+
+    @Test
+    public void rejectsNegativeDays() {
+        assertThatThrownBy(() -> new GildedRose(everyCombination()).advance(-1))
+                .isInstanceOf(IllegalArgumentException.class);
+    }
+}
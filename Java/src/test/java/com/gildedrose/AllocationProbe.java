@@ -0,0 +1,199 @@
+package com.gildedrose;
+
+import jdk.jfr.Recording;
+import jdk.jfr.consumer.RecordedEvent;
+import jdk.jfr.consumer.RecordedFrame;
+import jdk.jfr.consumer.RecordedStackTrace;
+import jdk.jfr.consumer.RecordingFile;
+
+import java.io.PrintWriter;
+import java.lang.management.ManagementFactory;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Measures what a piece of code costs the calling thread: bytes allocated,
+ * from the JVM's per-thread counter, and the latency of each call. With
+ * {@link #profile} it also records the code under JFR and summarises where
+ * the samples and allocations landed.
+ */
+final class AllocationProbe {
+    private static final com.sun.management.ThreadMXBean THREADS = threads();
+
+    private static final String PROJECT_PACKAGE = AllocationProbe.class.getPackage().getName() + ".";
+
+    private AllocationProbe() {
+    }
+
+    private static com.sun.management.ThreadMXBean threads() {
+        java.lang.management.ThreadMXBean threads = ManagementFactory.getThreadMXBean();
+        if (!(threads instanceof com.sun.management.ThreadMXBean)) {
+            return null;
+        }
+        com.sun.management.ThreadMXBean sun = (com.sun.management.ThreadMXBean) threads;
+        if (!sun.isThreadAllocatedMemorySupported()) {
+            return null;
+        }
+        sun.setThreadAllocatedMemoryEnabled(true);
+        return sun;
+    }
+
+    static boolean supported() {
+        return THREADS != null;
+    }
+
+    /**
+     * A budget read from the system property {@code name}, so a build can
+     * tighten or relax it with {@code -D}.
+     */
+    static double budget(String name, double defaultValue) {
+        String value = System.getProperty(name);
+        return value == null || value.isEmpty() ? defaultValue : Double.parseDouble(value);
+    }
+
+    /**
+     * Runs {@code call} {@code calls} times on this thread, after
+     * {@code warmups} untimed runs.
+     */
+    static Measurement measure(int warmups, int calls, Call call) throws Exception {
+        for (int i = 0; i < warmups; i++) {
+            call.run(i);
+        }
+
+        long[] nanos = new long[calls];
+        long id = Thread.currentThread().getId();
+        long before = THREADS.getThreadAllocatedBytes(id);
+        for (int i = 0; i < calls; i++) {
+            long start = System.nanoTime();
+            call.run(i);
+            nanos[i] = System.nanoTime() - start;
+        }
+        long allocated = THREADS.getThreadAllocatedBytes(id) - before;
+        Arrays.sort(nanos);
+        return new Measurement(allocated, nanos);
+    }
+
+    interface Call {
+        void run(int call) throws Exception;
+    }
+
+    static final class Measurement {
+        private final long bytes;
+
+        private final long[] nanos;
+
+        Measurement(long bytes, long[] nanos) {
+            this.bytes = bytes;
+            this.nanos = nanos;
+        }
+
+        long bytes() {
+            return bytes;
+        }
+
+        double bytesPerCall() {
+            return (double) bytes / nanos.length;
+        }
+
+        /**
+         * Latency of the call at {@code fraction} of the way through the
+         * sorted timings; 0.5 is the median.
+         */
+        long percentile(double fraction) {
+            return nanos[(int) Math.min(nanos.length - 1, Math.round(fraction * (nanos.length - 1)))];
+        }
+
+        @Override
+        public String toString() {
+            return String.format("%,d bytes over %d calls (%.1f per call), p50 %,d ns, p99 %,d ns, max %,d ns",
+                    bytes, nanos.length, bytesPerCall(), percentile(0.5), percentile(0.99), percentile(1));
+        }
+    }
+
+    /**
+     * Runs {@code workload} under a JFR recording saved as {@code name}.jfr in
+     * {@code directory}, and writes {@code name}.txt beside it listing the
+     * methods most often on CPU and the frames that allocated most.
+     */
+    static Path profile(Path directory, String name, Call workload) throws Exception {
+        Files.createDirectories(directory);
+        Path recordingFile = directory.resolve(name + ".jfr");
+        try (Recording recording = new Recording()) {
+            recording.enable("jdk.ExecutionSample").withPeriod(Duration.ofMillis(1));
+            recording.enable("jdk.ObjectAllocationSample");
+            recording.enable("jdk.ObjectAllocationInNewTLAB");
+            recording.enable("jdk.ObjectAllocationOutsideTLAB");
+            recording.start();
+            workload.run(0);
+            recording.stop();
+            recording.dump(recordingFile);
+        }
+
+        Map<String, Long> samples = new HashMap<>();
+        Map<String, Long> allocations = new HashMap<>();
+        for (RecordedEvent event : RecordingFile.readAllEvents(recordingFile)) {
+            String type = event.getEventType().getName();
+            String frame = topFrame(event.getStackTrace());
+            if (frame == null) {
+                continue;
+            }
+            if (type.equals("jdk.ExecutionSample")) {
+                samples.merge(frame, 1L, Long::sum);
+            } else if (type.equals("jdk.ObjectAllocationSample")) {
+                allocations.merge(frame, event.getLong("weight"), Long::sum);
+            } else if (type.startsWith("jdk.ObjectAllocation")) {
+                allocations.merge(frame, event.getLong("allocationSize"), Long::sum);
+            }
+        }
+
+        Path report = directory.resolve(name + ".txt");
+        try (PrintWriter out = new PrintWriter(Files.newBufferedWriter(report))) {
+            out.println("Hot methods (execution samples)");
+            top(samples, out);
+            out.println();
+            out.println("Allocating frames (bytes)");
+            top(allocations, out);
+        }
+        return report;
+    }
+
+    /**
+     * The innermost Java frame, followed by the innermost frame of this
+     * project's code when that is further down, so time and allocation in
+     * library code is charged to the line that called it.
+     */
+    private static String topFrame(RecordedStackTrace stackTrace) {
+        if (stackTrace == null) {
+            return null;
+        }
+        String top = null;
+        for (RecordedFrame frame : stackTrace.getFrames()) {
+            if (!frame.isJavaFrame()) {
+                continue;
+            }
+            String type = frame.getMethod().getType().getName();
+            String name = type + "." + frame.getMethod().getName() + ":" + frame.getLineNumber();
+            if (type.startsWith(PROJECT_PACKAGE)) {
+                return top == null ? name : top + " <- " + name;
+            }
+            if (top == null) {
+                top = name;
+            }
+        }
+        return top;
+    }
+
+    private static void top(Map<String, Long> counts, PrintWriter out) {
+        List<Map.Entry<String, Long>> entries = new ArrayList<>(counts.entrySet());
+        entries.sort(Map.Entry.<String, Long>comparingByValue().reversed());
+        for (Map.Entry<String, Long> entry : entries.subList(0, Math.min(20, entries.size()))) {
+            out.printf("%,14d  %s%n", entry.getValue(), entry.getKey());
+        }
+    }
+}
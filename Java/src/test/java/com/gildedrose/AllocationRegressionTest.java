@@ -0,0 +1,128 @@
+package com.gildedrose;
+
+import org.junit.BeforeClass;
+import org.junit.Test;
+
+import java.io.OutputStream;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.util.List;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.junit.Assume.assumeTrue;
+
+/**
+ * Fails the build when the daily update or report output starts allocating
+ * per item or slows down, as a stray boxing, capturing lambda or string
+ * concatenation in the loop would make it.
+ * <p>
+ * Budgets come from system properties, e.g.
+ * {@code mvn test -Dtest=AllocationRegressionTest -Dgildedrose.budget.nanosPerItem=20}:
+ * <ul>
+ * <li>{@code gildedrose.budget.bytesPerDay}: bytes one rollover or report of
+ * a day may allocate whatever the stock size</li>
+ * <li>{@code gildedrose.budget.bytesPerItem}: bytes per item on top of that</li>
+ * <li>{@code gildedrose.budget.nanosPerItem}: median time per item, only
+ * checked when given, as timings on shared build machines are too noisy to
+ * gate every build</li>
+ * </ul>
+ * The daily update is held to the same budgets with or without the
+ * {@link DailyKernel}.
+ * Run with {@code -Dgildedrose.profile=true} to also record the workloads
+ * under JFR and write hot-method and allocation reports to
+ * {@code target/profile}.
+ */
+public class AllocationRegressionTest {
+    private static final int SIZE = 20_000;
+
+    private static final int WARMUP_ROUNDS = 50;
+
+    private static final int DAYS = 200;
+
+    private static final int DAYS_PER_SHOP = 5;
+
+    private static final double BYTES_PER_DAY = AllocationProbe.budget("gildedrose.budget.bytesPerDay", 1_024);
+
+    private static final double BYTES_PER_ITEM = AllocationProbe.budget("gildedrose.budget.bytesPerItem", 0);
+
+    private static final double NANOS_PER_ITEM = AllocationProbe.budget("gildedrose.budget.nanosPerItem", 0);
+
+    private static final Path PROFILE_DIRECTORY = Paths.get("target", "profile");
+
+    private static List<Item> stock;
+
+    @BeforeClass
+    public static void createStock() {
+        assumeTrue("per-thread allocation counters unavailable", AllocationProbe.supported());
+        stock = Inventories.random(SIZE, 17);
+    }
+
+    /**
+     * A fresh shop for every few days, so each call updates stock that has
+     * not yet settled. Every shop has already run one day, which allocates
+     * the buffer that later days reuse.
+     */
+    private static final class Rollovers implements AllocationProbe.Call {
+        private final GildedRose[] shops;
+
+        Rollovers(int days) {
+            shops = new GildedRose[(days + DAYS_PER_SHOP - 1) / DAYS_PER_SHOP];
+            for (int s = 0; s < shops.length; s++) {
+                shops[s] = new GildedRose(Inventories.copy(stock));
+                shops[s].updateQuality();
+            }
+        }
+
+        @Override
+        public void run(int call) {
+            shops[call / DAYS_PER_SHOP].updateQuality();
+        }
+    }
+
+    private static void assertWithinBudget(String workload, AllocationProbe.Measurement measurement) {
+        assertThat(measurement.bytesPerCall())
+                .as("%s allocated %s", workload, measurement)
+                .isLessThanOrEqualTo(BYTES_PER_DAY + BYTES_PER_ITEM * SIZE);
+        if (NANOS_PER_ITEM <= 0) {
+            return;
+        }
+        assertThat((double) measurement.percentile(0.5) / SIZE)
+                .as("%s median nanoseconds per item, %s", workload, measurement)
+                .isLessThanOrEqualTo(NANOS_PER_ITEM);
+    }
+
+    @Test
+    public void dailyUpdateStaysWithinBudget() throws Exception {
+        for (int round = 0; round < WARMUP_ROUNDS; round++) {
+            Rollovers warmup = new Rollovers(DAYS / 5);
+            for (int day = 0; day < DAYS / 5; day++) {
+                warmup.run(day);
+            }
+        }
+
+        assertWithinBudget("updateQuality", AllocationProbe.measure(0, DAYS, new Rollovers(DAYS)));
+        profileIfRequested("updateQuality", new Rollovers(DAYS));
+    }
+
+    @Test
+    public void reportOutputStaysWithinBudget() throws Exception {
+        GildedRose shop = new GildedRose(Inventories.copy(stock));
+        ReportWriter report = new ReportWriter(OutputStream.nullOutputStream());
+        AllocationProbe.Call day = call -> report.dayHeader(call).items(shop).newLine().flush();
+
+        assertWithinBudget("report", AllocationProbe.measure(DAYS, DAYS, day));
+        profileIfRequested("report", day);
+    }
+
+    private static void profileIfRequested(String name, AllocationProbe.Call call) throws Exception {
+        if (!Boolean.getBoolean("gildedrose.profile")) {
+            return;
+        }
+        Path report = AllocationProbe.profile(PROFILE_DIRECTORY, name, ignored -> {
+            for (int i = 0; i < DAYS; i++) {
+                call.run(i);
+            }
+        });
+        System.out.println("Profile of " + name + " written to " + report.toAbsolutePath());
+    }
+}
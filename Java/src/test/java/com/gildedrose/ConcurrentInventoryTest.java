@@ -0,0 +1,181 @@
+package com.gildedrose;
+
+import org.junit.Test;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.FutureTask;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+
+public class ConcurrentInventoryTest {
+
+    @Test
+    public void idsStayValidUntilTheItemIsSold() {
+        ConcurrentInventory inventory = new ConcurrentInventory(NameTable.SHARED, RuleBook.STANDARD, 4);
+        long vest = inventory.add("+5 Dexterity Vest", 10, 20);
+        long brie = inventory.add(new Item(GildedRose.AGED_BRIE, 2, 0));
+
+        assertThat(inventory.size()).isEqualTo(2);
+        assertThat(inventory.get(vest)).hasToString("+5 Dexterity Vest, 10, 20");
+        assertThat(inventory.remove(vest)).isTrue();
+        assertThat(inventory.remove(vest)).isFalse();
+        assertThat(inventory.get(vest)).isNull();
+
+        long elixir = inventory.add("Elixir of the Mongoose", 5, 7);
+        assertThat(inventory.segmentOf(elixir)).isEqualTo(inventory.segmentOf(vest));
+        assertThat(elixir).isNotEqualTo(vest);
+        assertThat(inventory.get(vest)).isNull();
+        assertThat(inventory.get(elixir)).hasToString("Elixir of the Mongoose, 5, 7");
+        assertThat(inventory.get(brie)).hasToString("Aged Brie, 2, 0");
+        assertThat(inventory.size()).isEqualTo(2);
+    }
+
+    @Test
+    public void rolloversAgeLikeTheOriginalRules() throws Exception {
+        List<Item> expected = Inventories.random(2_000, 21);
+        ConcurrentInventory inventory = new ConcurrentInventory(NameTable.SHARED, RuleBook.STANDARD, 8);
+        ExecutorService threads = Executors.newFixedThreadPool(4);
+        List<Future<long[]>> added = new ArrayList<>();
+        for (int t = 0; t < 4; t++) {
+            int first = t * 500;
+            added.add(threads.submit(() -> {
+                long[] ids = new long[500];
+                for (int i = 0; i < ids.length; i++) {
+                    ids[i] = inventory.add(expected.get(first + i));
+                }
+                return ids;
+            }));
+        }
+        List<Long> ids = new ArrayList<>();
+        for (Future<long[]> future : added) {
+            for (long id : future.get()) {
+                ids.add(id);
+            }
+        }
+        threads.shutdown();
+
+        for (int day = 1; day <= 20; day++) {
+            inventory.updateQuality(Parallelism.common());
+            Inventories.updateQuality(expected);
+        }
+        inventory.advance(7, Parallelism.SEQUENTIAL);
+        for (int day = 0; day < 7; day++) {
+            Inventories.updateQuality(expected);
+        }
+
+        assertThat(inventory.day()).isEqualTo(27);
+        for (int i = 0; i < expected.size(); i++) {
+            assertThat(inventory.get(ids.get(i))).hasToString(expected.get(i).toString());
+        }
+    }
+
+    @Test
+    public void writersCarryOnWhileAnotherSegmentRollsOver() throws Exception {
+        CountDownLatch aging = new CountDownLatch(1);
+        CountDownLatch release = new CountDownLatch(1);
+        RuleBook rules = RuleBook.STANDARD.withRule("Slow", (sellIn, quality) -> {
+            aging.countDown();
+            try {
+                release.await();
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+            }
+            return quality;
+        });
+        ConcurrentInventory inventory = new ConcurrentInventory(NameTable.SHARED, rules, 64);
+        ExecutorService writers = Executors.newCachedThreadPool();
+        try {
+            long slow = writers.submit(() -> inventory.add("Slow", 1, 1)).get();
+            Thread rollover = new Thread(() -> inventory.updateQuality(Parallelism.SEQUENTIAL));
+            rollover.start();
+            assertThat(aging.await(10, TimeUnit.SECONDS)).isTrue();
+
+            // each attempt runs on a new thread, so lands on another segment
+            // unless the thread hashes to the one being aged
+            long other = -1;
+            for (int attempt = 0; attempt < 100 && other < 0; attempt++) {
+                FutureTask<Long> add = new FutureTask<>(() -> inventory.add("+5 Dexterity Vest", 10, 20));
+                new Thread(add).start();
+                try {
+                    other = add.get(1, TimeUnit.SECONDS);
+                } catch (TimeoutException e) {
+                    // blocked behind the rollover
+                }
+            }
+            assertThat(other).isNotNegative();
+            assertThat(inventory.segmentOf(other)).isNotEqualTo(inventory.segmentOf(slow));
+            Future<?> remove = writers.submit(() -> inventory.remove(slow));
+            assertThatThrownBy(() -> remove.get(200, TimeUnit.MILLISECONDS))
+                    .isInstanceOf(TimeoutException.class);
+
+            release.countDown();
+            rollover.join(10_000);
+            // the remove only runs once the rollover lets go of the segment
+            remove.get(10, TimeUnit.SECONDS);
+            assertThat(inventory.get(slow)).isNull();
+        } finally {
+            release.countDown();
+            writers.shutdownNow();
+        }
+    }
+
+    @Test
+    public void concurrentSalesAndRolloversKeepCountsStraight() throws Exception {
+        ConcurrentInventory inventory = new ConcurrentInventory();
+        int threads = 4;
+        int perThread = 5_000;
+        ExecutorService pos = Executors.newFixedThreadPool(threads);
+        Thread nightly = new Thread(() -> {
+            for (int day = 0; day < 50; day++) {
+                inventory.updateQuality(Parallelism.SEQUENTIAL);
+            }
+        });
+        nightly.start();
+
+        List<Future<long[]>> kept = new ArrayList<>();
+        for (int t = 0; t < threads; t++) {
+            kept.add(pos.submit(() -> {
+                long[] ids = new long[perThread];
+                int size = 0;
+                for (int i = 0; i < perThread; i++) {
+                    long id = inventory.add(GildedRose.SULFURAS, i, 80);
+                    if (i % 2 == 0) {
+                        assertThat(inventory.remove(id)).isTrue();
+                    } else {
+                        ids[size++] = id;
+                    }
+                }
+                return Arrays.copyOf(ids, size);
+            }));
+        }
+        nightly.join();
+
+        int total = 0;
+        for (Future<long[]> future : kept) {
+            for (long id : future.get()) {
+                assertThat(inventory.get(id).quality).isEqualTo(80);
+                total++;
+            }
+        }
+        pos.shutdown();
+        assertThat(inventory.size()).isEqualTo(total).isEqualTo(threads * perThread / 2);
+        assertThat(inventory.items()).hasSize(total);
+        assertThat(inventory.day()).isEqualTo(50);
+    }
+
+    @Test
+    public void segmentCountMustBeAPowerOfTwo() {
+        assertThatThrownBy(() -> new ConcurrentInventory(NameTable.SHARED, RuleBook.STANDARD, 3))
+                .isInstanceOf(IllegalArgumentException.class);
+        assertThat(new ConcurrentInventory().segmentCount()).isGreaterThanOrEqualTo(4);
+    }
+}
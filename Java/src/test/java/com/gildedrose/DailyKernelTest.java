@@ -0,0 +1,131 @@
+package com.gildedrose;
+
+import org.junit.Before;
+import org.junit.Test;
+
+import java.util.Random;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.junit.Assume.assumeNotNull;
+
+public class DailyKernelTest {
+
+    private static final int[] SELL_INS = {
+            Integer.MIN_VALUE, Integer.MIN_VALUE + 1, -11, -1, 0, 1, 2, 5, 6, 7, 10, 11, 12, Integer.MAX_VALUE
+    };
+
+    private static final int[] QUALITIES = {
+            Integer.MIN_VALUE, -3, -1, 0, 1, 2, 3, 47, 48, 49, 50, 51, 80, Integer.MAX_VALUE
+    };
+
+    private static final int[] DAYS = {0, 1, 9, Integer.MAX_VALUE};
+
+    private DailyKernel kernel;
+
+    @Before
+    public void requireKernel() {
+        kernel = DailyKernel.Loader.create();
+        assumeNotNull(kernel);
+    }
+
+    /**
+     * Runs every full block of {@code active} through the kernel and checks
+     * each row against the scalar rules.
+     */
+    private void check(byte[] kinds, int[] sellIn, int[] quality, int[] active, int day) {
+        int[] back = new int[quality.length];
+        int[] marked = active.clone();
+        int lanes = kernel.lanes();
+        int[] scratch = kernel.scratch();
+
+        for (int j = 0; j + lanes <= active.length; j += lanes) {
+            int result = kernel.age(kinds, sellIn, quality, back, marked, j, day, scratch);
+            assertThat(result).isNotEqualTo(DailyKernel.UNSUPPORTED);
+
+            boolean anySettled = false;
+            for (int lane = 0; lane < lanes; lane++) {
+                int i = active[j + lane];
+                byte kind = kinds[i];
+                int start = ItemKind.sellInAfter(kind, sellIn[i], day);
+                int expected = ItemKind.age(kind, start, quality[i]);
+                boolean settled = ItemKind.isSettled(kind, ItemKind.sellInAfter(kind, start, 1), expected);
+
+                assertThat(back[i]).as("kind %d sellIn %d quality %d", kind, start, quality[i]).isEqualTo(expected);
+                assertThat(marked[j + lane]).isEqualTo(settled ? ~i : i);
+                anySettled |= settled;
+            }
+            assertThat(result).isEqualTo(anySettled ? DailyKernel.SETTLED : DailyKernel.AGED);
+        }
+    }
+
+    @Test
+    public void matchesTheScalarRulesAtTheEdges() {
+        int size = ItemKind.FIRST_CUSTOM * SELL_INS.length * QUALITIES.length;
+        size += kernel.lanes() - size % kernel.lanes();
+        byte[] kinds = new byte[size];
+        int[] sellIn = new int[size];
+        int[] quality = new int[size];
+        int i = 0;
+        for (byte kind = 0; kind < ItemKind.FIRST_CUSTOM; kind++) {
+            for (int s : SELL_INS) {
+                for (int q : QUALITIES) {
+                    kinds[i] = kind;
+                    sellIn[i] = s;
+                    quality[i] = q;
+                    i++;
+                }
+            }
+        }
+
+        int[] consecutive = new int[size];
+        for (int j = 0; j < size; j++) {
+            consecutive[j] = j;
+        }
+        int[] gaps = new int[size / 2];
+        for (int j = 0; j < gaps.length; j++) {
+            gaps[j] = 2 * j + (j % 3 == 0 ? 1 : 0);
+        }
+
+        for (int day : DAYS) {
+            check(kinds, sellIn, quality, consecutive, day);
+            check(kinds, sellIn, quality, gaps, day);
+        }
+    }
+
+    @Test
+    public void matchesTheScalarRulesOnRandomStock() {
+        Random random = new Random(18);
+        int size = 64 * kernel.lanes();
+        byte[] kinds = new byte[size];
+        int[] sellIn = new int[size];
+        int[] quality = new int[size];
+        for (int i = 0; i < size; i++) {
+            kinds[i] = (byte) random.nextInt(ItemKind.FIRST_CUSTOM);
+            sellIn[i] = random.nextInt(40) - 10;
+            quality[i] = random.nextInt(60) - 5;
+        }
+        int[] active = random.ints(0, size).distinct().limit(size / 2).sorted().toArray();
+
+        for (int day = 0; day < 20; day++) {
+            check(kinds, sellIn, quality, active, day);
+        }
+    }
+
+    @Test
+    public void leavesBlocksWithAddedRulesAlone() {
+        int lanes = kernel.lanes();
+        byte[] kinds = new byte[lanes];
+        kinds[lanes - 1] = ItemKind.FIRST_CUSTOM;
+        int[] active = new int[lanes];
+        for (int j = 0; j < lanes; j++) {
+            active[j] = j;
+        }
+        int[] back = new int[lanes];
+
+        assertThat(kernel.age(kinds, new int[lanes], new int[lanes], back, active, 0, 0, kernel.scratch()))
+                .isEqualTo(DailyKernel.UNSUPPORTED);
+        kinds[lanes - 1] = (byte) 200;
+        assertThat(kernel.age(kinds, new int[lanes], new int[lanes], back, active, 0, 0, kernel.scratch()))
+                .isEqualTo(DailyKernel.UNSUPPORTED);
+    }
+}
@@ -0,0 +1,95 @@
+package com.gildedrose;
+
+import org.junit.Test;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+public class DeltaSinkTest {
+
+    /**
+     * Keeps a copy of the stock up to date from deltas alone.
+     */
+    private static final class Mirror implements DeltaSink {
+        final List<Item> items;
+
+        final List<Integer> changed = new ArrayList<>();
+
+        int batches;
+
+        int lastCompleted = -1;
+
+        Mirror(List<Item> items) {
+            this.items = Inventories.copy(items);
+        }
+
+        @Override
+        public void dayAdvanced(int day, int days) {
+            for (Item item : items) {
+                if (RuleBook.STANDARD.agesSellIn(RuleBook.STANDARD.kindOf(item.name))) {
+                    item.sellIn -= days;
+                }
+            }
+        }
+
+        @Override
+        public void accept(DeltaBatch batch) {
+            batches++;
+            for (int j = 0; j < batch.size(); j++) {
+                Item item = items.get(batch.id(j));
+                assertThat(item.quality).isEqualTo(batch.oldQuality(j));
+                item.quality = batch.newQuality(j);
+                item.sellIn = batch.sellIn(j);
+                changed.add(batch.id(j));
+            }
+        }
+
+        @Override
+        public void dayCompleted(int day) {
+            lastCompleted = day;
+        }
+    }
+
+    @Test
+    public void mirrorFollowsTheShop() {
+        List<Item> items = Inventories.random(5_000, 15);
+        GildedRose shop = new GildedRose(Inventories.copy(items));
+        Mirror mirror = new Mirror(items);
+        shop.setDeltaSink(mirror, 100);
+
+        for (int day = 1; day <= 30; day++) {
+            if (day % 4 == 0) {
+                shop.advance(2);
+            } else {
+                shop.updateQuality();
+            }
+            assertThat(mirror.items.toString()).isEqualTo(shop.getItems().toString());
+        }
+        assertThat(mirror.batches).isGreaterThan(30);
+    }
+
+    @Test
+    public void leavesOutUnchangedItems() {
+        GildedRose shop = new GildedRose(Arrays.asList(
+                new Item(GildedRose.SULFURAS, 0, 80),
+                new Item("+5 Dexterity Vest", 10, 20),
+                new Item(GildedRose.AGED_BRIE, 2, 50),
+                new Item("Elixir of the Mongoose", 5, 0)
+        ));
+        Mirror mirror = new Mirror(shop.getItems());
+        shop.setDeltaSink(mirror);
+
+        shop.updateQuality();
+
+        assertThat(mirror.changed).containsExactly(1);
+        assertThat(mirror.lastCompleted).isEqualTo(1);
+        assertThat(mirror.items.get(3).sellIn).isEqualTo(4);
+
+        shop.setDeltaSink(null);
+        shop.updateQuality();
+        assertThat(mirror.lastCompleted).isEqualTo(1);
+    }
+}
@@ -0,0 +1,249 @@
+package com.gildedrose;
+
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.FileAlreadyExistsException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.stream.Collectors;
+import java.util.stream.Stream;
+
+import static java.nio.file.StandardOpenOption.APPEND;
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+
+public class DurableShopTest {
+
+    @Rule
+    public final TemporaryFolder folder = new TemporaryFolder();
+
+    private static List<Item> afterDays(List<Item> items, int days) {
+        List<Item> expected = Inventories.copy(items);
+        for (int day = 0; day < days; day++) {
+            Inventories.updateQuality(expected);
+        }
+        return expected;
+    }
+
+    private static List<String> files(Path directory) throws IOException {
+        try (Stream<Path> files = Files.list(directory)) {
+            return files.map(path -> path.getFileName().toString()).sorted().collect(Collectors.toList());
+        }
+    }
+
+    private static DurableShop open(Path directory) throws IOException {
+        return DurableShop.open(directory, RuleBook.STANDARD, Parallelism.SEQUENTIAL);
+    }
+
+    @Test
+    public void recoversRolloversWithoutAClose() throws IOException {
+        Path directory = folder.getRoot().toPath();
+        List<Item> items = Inventories.random(2_000, 17);
+        DurableShop shop = DurableShop.create(directory, Inventories.copy(items), RuleBook.STANDARD,
+                Parallelism.SEQUENTIAL);
+        shop.updateQuality();
+        shop.advance(4);
+        shop.updateQuality();
+
+        // the first shop is abandoned as if the process had died
+        try (DurableShop recovered = open(directory)) {
+            assertThat(recovered.getItems().toString()).isEqualTo(afterDays(items, 6).toString());
+
+            recovered.advance(3);
+        }
+        try (DurableShop recovered = open(directory)) {
+            assertThat(recovered.getItems().toString()).isEqualTo(afterDays(items, 9).toString());
+        }
+    }
+
+    @Test
+    public void ignoresATornTail() throws IOException {
+        Path directory = folder.getRoot().toPath();
+        List<Item> items = Inventories.random(100, 18);
+        try (DurableShop shop = DurableShop.create(directory, Inventories.copy(items), RuleBook.STANDARD,
+                Parallelism.SEQUENTIAL)) {
+            shop.updateQuality();
+            shop.updateQuality();
+        }
+        try (FileChannel log = FileChannel.open(directory.resolve("wal-0000000000000000"), APPEND)) {
+            log.write(ByteBuffer.wrap(new byte[]{4, 0, 0, 0, 3, 0, 0, 0, 0, 0, 0, 0, 1, 7}));
+        }
+
+        try (DurableShop shop = open(directory)) {
+            assertThat(shop.getItems().toString()).isEqualTo(afterDays(items, 2).toString());
+            shop.updateQuality();
+        }
+        try (DurableShop shop = open(directory)) {
+            assertThat(shop.getItems().toString()).isEqualTo(afterDays(items, 3).toString());
+        }
+    }
+
+    @Test
+    public void checkpointsBoundTheLog() throws IOException {
+        Path directory = folder.getRoot().toPath();
+        List<Item> items = Inventories.random(500, 19);
+        try (DurableShop shop = DurableShop.create(directory, Inventories.copy(items), RuleBook.STANDARD,
+                Parallelism.SEQUENTIAL)) {
+            shop.checkpointEvery(5);
+            for (int day = 0; day < 12; day++) {
+                shop.updateQuality();
+            }
+
+            assertThat(files(directory)).containsExactly("checkpoint-0000000000000002", "wal-0000000000000002");
+        }
+        Files.createFile(directory.resolve("checkpoint-0000000000000003.tmp"));
+
+        try (DurableShop shop = open(directory)) {
+            assertThat(shop.getItems().toString()).isEqualTo(afterDays(items, 12).toString());
+        }
+        assertThat(files(directory)).containsExactly("checkpoint-0000000000000002", "wal-0000000000000002");
+    }
+
+    @Test
+    public void replaysLogsWrittenBeforeAnUnfinishedCheckpoint() throws IOException {
+        Path directory = folder.newFolder().toPath();
+        Path crashed = folder.newFolder().toPath();
+        List<Item> items = Inventories.random(500, 20);
+        try (DurableShop shop = DurableShop.create(directory, Inventories.copy(items), RuleBook.STANDARD,
+                Parallelism.SEQUENTIAL)) {
+            shop.advance(3);
+            for (String name : files(directory)) {
+                Files.copy(directory.resolve(name), crashed.resolve(name));
+            }
+            shop.checkpoint();
+            shop.advance(2);
+        }
+
+        // as if the process died while checkpoint 1 was being written
+        Files.copy(directory.resolve("wal-0000000000000001"), crashed.resolve("wal-0000000000000001"));
+        Files.copy(directory.resolve("checkpoint-0000000000000001"),
+                crashed.resolve("checkpoint-0000000000000001.tmp"));
+
+        try (DurableShop shop = open(crashed)) {
+            assertThat(shop.getItems().toString()).isEqualTo(afterDays(items, 5).toString());
+        }
+        assertThat(files(crashed)).containsExactly(
+                "checkpoint-0000000000000000", "wal-0000000000000000", "wal-0000000000000001");
+    }
+
+    @Test
+    public void concurrentRolloversShareSyncs() throws Exception {
+        Path directory = folder.getRoot().toPath();
+        List<Item> items = Inventories.random(200, 21);
+        ExecutorService executor = Executors.newFixedThreadPool(8);
+        try (DurableShop shop = DurableShop.create(directory, Inventories.copy(items), RuleBook.STANDARD,
+                Parallelism.SEQUENTIAL)) {
+            List<Future<?>> rollovers = new ArrayList<>();
+            for (int i = 0; i < 200; i++) {
+                rollovers.add(executor.submit(() -> {
+                    shop.updateQuality();
+                    return null;
+                }));
+            }
+            for (Future<?> rollover : rollovers) {
+                rollover.get();
+            }
+        } finally {
+            executor.shutdown();
+        }
+
+        try (DurableShop shop = open(directory)) {
+            assertThat(shop.getItems().toString()).isEqualTo(afterDays(items, 200).toString());
+        }
+    }
+
+    @Test
+    public void groupsAppendsIntoOneSync() throws IOException {
+        Path file = folder.getRoot().toPath().resolve("log");
+        try (WriteAheadLog log = WriteAheadLog.create(file)) {
+            long last = 0;
+            for (int i = 0; i < 1_000; i++) {
+                last = log.append(WriteAheadLog.ROLLOVER, i);
+            }
+            log.sync(last);
+            log.sync(last);
+
+            assertThat(log.syncs()).isEqualTo(1);
+        }
+
+        List<Integer> replayed = new ArrayList<>();
+        WriteAheadLog.replay(file, (type, payload) -> replayed.add(payload.getInt(0)));
+        assertThat(replayed).hasSize(1_000).startsWith(0, 1, 2).endsWith(999);
+    }
+
+    @Test
+    public void refusesToOverwriteAShop() throws IOException {
+        Path directory = folder.getRoot().toPath();
+        DurableShop.create(directory, Inventories.random(10, 22), RuleBook.STANDARD, Parallelism.SEQUENTIAL).close();
+
+        assertThatThrownBy(() -> DurableShop.create(directory, Inventories.random(10, 22), RuleBook.STANDARD,
+                Parallelism.SEQUENTIAL)).isInstanceOf(FileAlreadyExistsException.class);
+    }
+
+    @Test
+    public void failedCheckpointKeepsTheRolloverAndRetries() throws IOException {
+        Path directory = folder.getRoot().toPath();
+        List<Item> items = Inventories.random(300, 22);
+        Path blocker = directory.resolve("checkpoint-0000000000000001.tmp");
+        try (DurableShop shop = DurableShop.create(directory, Inventories.copy(items), RuleBook.STANDARD,
+                Parallelism.SEQUENTIAL)) {
+            shop.checkpointEvery(1);
+            Files.createDirectories(blocker.resolve("in-the-way"));
+
+            shop.updateQuality();
+            assertThat(shop.checkpointFailure()).isNotNull();
+            assertThat(shop.getItems().toString()).isEqualTo(afterDays(items, 1).toString());
+
+            Files.delete(blocker.resolve("in-the-way"));
+            Files.delete(blocker);
+            shop.updateQuality();
+            assertThat(shop.checkpointFailure()).isNull();
+            assertThat(files(directory)).containsExactly("checkpoint-0000000000000002", "wal-0000000000000002");
+        }
+        try (DurableShop shop = open(directory)) {
+            assertThat(shop.getItems().toString()).isEqualTo(afterDays(items, 2).toString());
+        }
+    }
+
+    @Test
+    public void closedShopRefusesRolloversWithoutAgingTheStock() throws IOException {
+        Path directory = folder.getRoot().toPath();
+        DurableShop shop = DurableShop.create(directory, Inventories.random(100, 24), RuleBook.STANDARD,
+                Parallelism.SEQUENTIAL);
+        shop.updateQuality();
+        String before = shop.getItems().toString();
+        shop.close();
+
+        for (int attempt = 0; attempt < 3; attempt++) {
+            assertThatThrownBy(shop::updateQuality).isInstanceOf(IllegalStateException.class);
+        }
+        assertThat(shop.getItems().toString()).isEqualTo(before);
+    }
+
+    @Test
+    public void skipsStrayFiles() throws IOException {
+        Path directory = folder.getRoot().toPath();
+        List<Item> items = Inventories.random(50, 23);
+        try (DurableShop shop = DurableShop.create(directory, Inventories.copy(items), RuleBook.STANDARD,
+                Parallelism.SEQUENTIAL)) {
+            shop.updateQuality();
+        }
+        Files.createFile(directory.resolve("wal-old"));
+        Files.createFile(directory.resolve("checkpoint-backup"));
+
+        try (DurableShop shop = open(directory)) {
+            assertThat(shop.getItems().toString()).isEqualTo(afterDays(items, 1).toString());
+        }
+        assertThat(files(directory)).contains("wal-old", "checkpoint-backup");
+    }
+}
@@ -0,0 +1,82 @@
+package com.gildedrose;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+
+/**
+ * Generates reproducible stock for tests that compare update strategies, and
+ * ages plain {@link Item} lists with the original rules as a reference.
+ */
+final class Inventories {
+    private static final String[] NAMES = {
+            "+5 Dexterity Vest",
+            "Elixir of the Mongoose",
+            GildedRose.AGED_BRIE,
+            GildedRose.BACKSTAGE_PASSES,
+            GildedRose.SULFURAS,
+            GildedRose.CONJURED
+    };
+
+    private Inventories() {
+    }
+
+    static List<Item> random(int size, long seed) {
+        Random random = new Random(seed);
+        List<Item> items = new ArrayList<>(size);
+        for (int i = 0; i < size; i++) {
+            String name = NAMES[random.nextInt(NAMES.length)];
+            int quality = name.equals(GildedRose.SULFURAS) ? 80 : random.nextInt(56) - 3;
+            items.add(new Item(name, random.nextInt(40) - 10, quality));
+        }
+        return items;
+    }
+
+    static List<Item> copy(List<Item> items) {
+        List<Item> copy = new ArrayList<>(items.size());
+        for (Item item : items) {
+            copy.add(new Item(item.name, item.sellIn, item.quality));
+        }
+        return copy;
+    }
+
+    /**
+     * The update loop as the shop originally wrote it, one {@link Item} at a time.
+     */
+    static void updateQuality(List<Item> items) {
+        for (Item item : items) {
+            String name = item.name;
+            if (!name.equals(GildedRose.AGED_BRIE) && !name.equals(GildedRose.BACKSTAGE_PASSES)) {
+                if (item.quality > 0 && !name.equals(GildedRose.SULFURAS)) {
+                    item.quality -= name.equals(GildedRose.CONJURED) ? 2 : 1;
+                }
+            } else if (item.quality < 50) {
+                item.quality++;
+                if (name.equals(GildedRose.BACKSTAGE_PASSES)) {
+                    if (item.sellIn < 11 && item.quality < 50) {
+                        item.quality++;
+                    }
+                    if (item.sellIn < 6 && item.quality < 50) {
+                        item.quality++;
+                    }
+                }
+            }
+
+            if (!name.equals(GildedRose.SULFURAS)) {
+                item.sellIn--;
+            }
+
+            if (item.sellIn < 0) {
+                if (name.equals(GildedRose.AGED_BRIE)) {
+                    if (item.quality < 50) {
+                        item.quality++;
+                    }
+                } else if (name.equals(GildedRose.BACKSTAGE_PASSES)) {
+                    item.quality = 0;
+                } else if (item.quality > 0 && !name.equals(GildedRose.SULFURAS)) {
+                    item.quality -= name.equals(GildedRose.CONJURED) ? 2 : 1;
+                }
+            }
+        }
+    }
+}
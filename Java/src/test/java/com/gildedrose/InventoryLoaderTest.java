@@ -0,0 +1,135 @@
+package com.gildedrose;
+
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+import java.io.ByteArrayInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.nio.charset.Charset;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.Arrays;
+import java.util.List;
+import java.util.concurrent.ForkJoinPool;
+
+import static java.nio.charset.StandardCharsets.UTF_8;
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+
+public class InventoryLoaderTest {
+
+    @Rule
+    public final TemporaryFolder folder = new TemporaryFolder();
+
+    private static GildedRose load(String text) throws IOException {
+        return new InventoryLoader().load(new ByteArrayInputStream(text.getBytes(Charset.defaultCharset())));
+    }
+
+    private Path dump(List<Item> items) throws IOException {
+        Path file = folder.newFile().toPath();
+        try (OutputStream out = Files.newOutputStream(file)) {
+            new ReportWriter(out).line("OMGHAI!").dayHeader(0).items(new GildedRose(items)).newLine().flush();
+        }
+        return file;
+    }
+
+    @Test
+    public void readsBackTheFixtureReport() throws IOException {
+        GildedRose shop = load("OMGHAI!\n"
+                + "-------- day 0 --------\n"
+                + "name, sellIn, quality\n"
+                + "+5 Dexterity Vest, 10, 20\n"
+                + "Sulfuras, Hand of Ragnaros, -1, 80\n"
+                + "Backstage passes to a TAFKAL80ETC concert, 15, 20\n"
+                + "  \n"
+                + "\n");
+
+        assertThat(shop.getItems()).extracting(Item::toString).containsExactly(
+                "+5 Dexterity Vest, 10, 20",
+                "Sulfuras, Hand of Ragnaros, -1, 80",
+                "Backstage passes to a TAFKAL80ETC concert, 15, 20");
+
+        shop.updateQuality();
+        assertThat(shop.getItems().get(1).sellIn).isEqualTo(-1);
+        assertThat(shop.getItems().get(2).quality).isEqualTo(21);
+    }
+
+    @Test
+    public void acceptsCarriageReturnsAndAMissingFinalLineBreak() throws IOException {
+        GildedRose shop = load("Aged Brie, 2, 0\r\nElixir of the Mongoose,-5,7");
+
+        assertThat(shop.getItems()).extracting(Item::toString).containsExactly(
+                "Aged Brie, 2, 0",
+                "Elixir of the Mongoose, -5, 7");
+    }
+
+    @Test
+    public void rejectsMalformedLines() {
+        assertThatThrownBy(() -> load("Aged Brie, two, 0\n"))
+                .isInstanceOf(IllegalArgumentException.class)
+                .hasMessageContaining("Aged Brie, two, 0");
+        assertThatThrownBy(() -> load("Aged Brie, 2, 99999999999\n"))
+                .isInstanceOf(IllegalArgumentException.class);
+        assertThatThrownBy(() -> load("Elixir of the Mongoose, 5, 7\nAged Brie, 2\n"))
+                .isInstanceOf(IllegalArgumentException.class)
+                .hasMessageContaining("Aged Brie, 2");
+        assertThatThrownBy(() -> load("Aged Brie\n"))
+                .isInstanceOf(IllegalArgumentException.class)
+                .hasMessageContaining("Aged Brie");
+    }
+
+    @Test
+    public void parsesIntegersInRange() {
+        byte[] text = " -2147483648 2147483647 2147483648 - ".getBytes(UTF_8);
+
+        assertThat(InventoryLoader.parseInt(text, 0, 12)).isEqualTo(Integer.MIN_VALUE);
+        assertThat(InventoryLoader.parseInt(text, 12, 23)).isEqualTo(Integer.MAX_VALUE);
+        assertThat(InventoryLoader.parseInt(text, 23, 34)).isEqualTo(Long.MIN_VALUE);
+        assertThat(InventoryLoader.parseInt(text, 34, 37)).isEqualTo(Long.MIN_VALUE);
+    }
+
+    @Test
+    public void internsNames() throws IOException {
+        NameTable names = new NameTable();
+        InventoryLoader loader = new InventoryLoader(names, RuleBook.STANDARD, UTF_8, Parallelism.SEQUENTIAL);
+
+        Inventory inventory = loader.read(new ByteArrayInputStream("Aged Brie, 1, 1\nAged Brie, 2, 2\n".getBytes(UTF_8)));
+
+        assertThat(names.size()).isEqualTo(1);
+        assertThat(inventory.nameId(0)).isEqualTo(inventory.nameId(1));
+    }
+
+    @Test
+    public void parallelLoadMatchesTheDump() throws IOException {
+        List<Item> items = Inventories.random(200_000, 16);
+        Path file = dump(Inventories.copy(items));
+        ForkJoinPool pool = new ForkJoinPool(4);
+        try {
+            InventoryLoader loader = new InventoryLoader(NameTable.SHARED, RuleBook.STANDARD,
+                    Charset.defaultCharset(), Parallelism.of(pool, 64));
+
+            GildedRose shop = loader.load(file);
+
+            assertThat(shop.getItems().toString()).isEqualTo(items.toString());
+            Inventories.updateQuality(items);
+            shop.updateQuality();
+            assertThat(shop.getItems().toString()).isEqualTo(items.toString());
+        } finally {
+            pool.shutdown();
+        }
+    }
+
+    @Test
+    public void sequentialLoadOfAFileMatchesTheStream() throws IOException {
+        List<Item> items = Arrays.asList(new Item("Sulfuras, Hand of Ragnaros", 0, 80), new Item("Aged Brie", 2, 0));
+        Path file = dump(Inventories.copy(items));
+
+        assertThat(new InventoryLoader().load(file).getItems().toString()).isEqualTo(items.toString());
+        try (InputStream in = Files.newInputStream(file)) {
+            assertThat(new InventoryLoader().load(in).getItems().toString()).isEqualTo(items.toString());
+        }
+    }
+}
@@ -0,0 +1,128 @@
+package com.gildedrose;
+
+import org.junit.Test;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicReference;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+
+public class InventorySnapshotTest {
+
+    private static List<List<Item>> referenceDays(List<Item> items, int days) {
+        List<List<Item>> states = new ArrayList<>();
+        List<Item> state = Inventories.copy(items);
+        states.add(Inventories.copy(state));
+        for (int day = 0; day < days; day++) {
+            Inventories.updateQuality(state);
+            states.add(Inventories.copy(state));
+        }
+        return states;
+    }
+
+    private static boolean matches(InventorySnapshot snapshot, List<Item> expected) {
+        for (int i = 0; i < expected.size(); i++) {
+            Item item = expected.get(i);
+            if (snapshot.sellIn(i) != item.sellIn || snapshot.quality(i) != item.quality) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    @Test
+    public void snapshotKeepsItsDayWhileTheShopMovesOn() {
+        List<Item> items = Inventories.random(5_000, 51);
+        List<List<Item>> expected = referenceDays(items, 10);
+        GildedRose shop = new GildedRose(items);
+        shop.updateQuality();
+        shop.updateQuality();
+
+        try (InventorySnapshot snapshot = shop.snapshot()) {
+            for (int day = 0; day < 8; day++) {
+                shop.updateQuality();
+            }
+
+            assertThat(snapshot.day()).isEqualTo(2);
+            assertThat(matches(snapshot, expected.get(2))).isTrue();
+            assertThat(snapshot.items().get(7)).isEqualToComparingFieldByField(expected.get(2).get(7));
+        }
+
+        try (InventorySnapshot snapshot = shop.snapshot()) {
+            assertThat(snapshot.day()).isEqualTo(10);
+            assertThat(matches(snapshot, expected.get(10))).isTrue();
+        }
+        for (int day = 0; day < 3; day++) {
+            shop.updateQuality();
+        }
+        try (InventorySnapshot snapshot = shop.snapshot()) {
+            assertThat(matches(snapshot, referenceDays(items, 13).get(13))).isTrue();
+        }
+    }
+
+    @Test
+    public void closedSnapshotCannotBeRead() {
+        InventorySnapshot snapshot = new GildedRose(Inventories.random(3, 52)).snapshot();
+        snapshot.close();
+        snapshot.close();
+
+        assertThatThrownBy(() -> snapshot.quality(0)).isInstanceOf(IllegalStateException.class);
+    }
+
+    @Test
+    public void readersOnlyEverSeeWholeDays() throws InterruptedException {
+        List<Item> items = Inventories.random(2_000, 53);
+        int days = 80;
+        List<List<Item>> expected = referenceDays(items, days);
+        GildedRose shop = new GildedRose(items);
+
+        AtomicBoolean running = new AtomicBoolean(true);
+        AtomicInteger reads = new AtomicInteger();
+        AtomicReference<String> inconsistency = new AtomicReference<>();
+        List<Thread> readers = new ArrayList<>();
+        for (int r = 0; r < 3; r++) {
+            Thread reader = new Thread(() -> {
+                while (running.get()) {
+                    try (InventorySnapshot snapshot = shop.snapshot()) {
+                        if (!matches(snapshot, expected.get(snapshot.day()))) {
+                            inconsistency.compareAndSet(null, "day " + snapshot.day());
+                        }
+                    }
+                    reads.incrementAndGet();
+                }
+            });
+            reader.start();
+            readers.add(reader);
+        }
+
+        for (int day = 0; day < days; day++) {
+            shop.updateQuality();
+            Thread.yield();
+        }
+        running.set(false);
+        for (Thread reader : readers) {
+            reader.join();
+        }
+
+        assertThat(inconsistency.get()).isNull();
+        assertThat(reads.get()).isPositive();
+    }
+
+    @Test
+    public void storesWithoutGenerationsRejectSnapshots() {
+        OffHeapInventory inventory = new OffHeapInventory(Inventories.random(3, 54));
+        try {
+            GildedRose shop = new GildedRose(inventory, Parallelism.SEQUENTIAL);
+            assertThat(shop.supports(ItemStore.Snapshots.class)).isFalse();
+            assertThatThrownBy(shop::snapshot)
+                    .isInstanceOf(UnsupportedOperationException.class)
+                    .hasMessage("OffHeapInventory does not support snapshots");
+        } finally {
+            inventory.close();
+        }
+    }
+}
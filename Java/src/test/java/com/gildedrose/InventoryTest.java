@@ -0,0 +1,84 @@
+package com.gildedrose;
+
+import org.junit.Test;
+
+import java.util.Arrays;
+import java.util.List;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.tuple;
+
+public class InventoryTest {
+
+    private static void assertSameItems(Inventory inventory, List<Item> expected) {
+        assertThat(inventory.asList().toString()).isEqualTo(expected.toString());
+    }
+
+    @Test
+    public void settledItemsAreNotActive() {
+        Inventory inventory = new Inventory(Arrays.asList(
+                new Item(GildedRose.SULFURAS, 0, 80),
+                new Item("Normal Item", 5, 0),
+                new Item(GildedRose.CONJURED, -3, 0),
+                new Item(GildedRose.AGED_BRIE, 10, 50),
+                new Item(GildedRose.BACKSTAGE_PASSES, -1, 0),
+                new Item("Normal Item", 5, 3),
+                new Item(GildedRose.BACKSTAGE_PASSES, 1, 0)
+        ));
+
+        assertThat(inventory.activeCount()).isEqualTo(2);
+    }
+
+    @Test
+    public void itemsSettleAsTheyReachAFixedPoint() {
+        Inventory inventory = new Inventory(Arrays.asList(
+                new Item("Normal Item", 5, 2),
+                new Item(GildedRose.AGED_BRIE, 10, 49),
+                new Item(GildedRose.BACKSTAGE_PASSES, 1, 10)
+        ));
+
+        inventory.updateQuality(Parallelism.SEQUENTIAL);
+        assertThat(inventory.activeCount()).isEqualTo(2);
+
+        inventory.updateQuality(Parallelism.SEQUENTIAL);
+        assertThat(inventory.activeCount()).isZero();
+        assertThat(inventory.asList())
+                .extracting("sellIn", "quality")
+                .containsExactly(
+                        tuple(3, 0),
+                        tuple(8, 50),
+                        tuple(-1, 0));
+    }
+
+    @Test
+    public void settledItemsKeepAgingSellIn() {
+        List<Item> items = Inventories.random(5_000, 21);
+        List<Item> expected = Inventories.copy(items);
+        Inventory inventory = new Inventory(items);
+
+        for (int day = 0; day < 60; day++) {
+            inventory.updateQuality(Parallelism.SEQUENTIAL);
+            Inventories.updateQuality(expected);
+        }
+
+        assertSameItems(inventory, expected);
+        assertThat(inventory.activeCount()).isLessThan(items.size() / 2);
+    }
+
+    @Test
+    public void advanceMixesWithDailyUpdates() {
+        List<Item> items = Inventories.random(5_000, 22);
+        List<Item> expected = Inventories.copy(items);
+        Inventory inventory = new Inventory(items);
+
+        inventory.updateQuality(Parallelism.SEQUENTIAL);
+        inventory.advance(12, Parallelism.SEQUENTIAL);
+        inventory.updateQuality(Parallelism.SEQUENTIAL);
+        inventory.advance(30, Parallelism.SEQUENTIAL);
+        for (int day = 0; day < 44; day++) {
+            Inventories.updateQuality(expected);
+        }
+
+        assertSameItems(inventory, expected);
+    }
+}
@@ -0,0 +1,122 @@
+package com.gildedrose;
+
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Spliterator;
+import java.util.concurrent.atomic.AtomicIntegerArray;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+
+public class ItemCursorTest {
+    @Rule
+    public TemporaryFolder folder = new TemporaryFolder();
+
+    private static List<Item> drain(ItemCursor cursor, int batchSize, int first) {
+        List<Item> items = new ArrayList<>();
+        ItemBatch batch = new ItemBatch(batchSize);
+        while (cursor.next(batch)) {
+            assertThat(batch.start()).isEqualTo(first + items.size());
+            for (int j = 0; j < batch.size(); j++) {
+                items.add(new Item(batch.name(j), batch.sellIn(j), batch.quality(j)));
+            }
+        }
+        return items;
+    }
+
+    @Test
+    public void batchesMatchTheItems() {
+        GildedRose shop = new GildedRose(Inventories.random(2_500, 3));
+        shop.advance(7);
+
+        try (ItemCursor cursor = shop.cursor()) {
+            assertThat(drain(cursor, 64, 0).toString()).isEqualTo(shop.getItems().toString());
+        }
+    }
+
+    @Test
+    public void cursorReadsTheDayItWasOpenedOn() {
+        GildedRose shop = new GildedRose(Inventories.random(1_000, 5));
+        List<Item> before = Inventories.copy(shop.getItems());
+
+        try (ItemCursor cursor = shop.cursor()) {
+            ItemBatch batch = new ItemBatch(100);
+            assertThat(cursor.next(batch)).isTrue();
+            for (int day = 0; day < 5; day++) {
+                shop.updateQuality();
+            }
+            assertThat(drain(cursor, 100, 100).toString()).isEqualTo(before.subList(100, 1_000).toString());
+        }
+    }
+
+    @Test
+    public void parallelStreamVisitsEveryRowOnce() {
+        List<Item> items = Inventories.random(10_000, 11);
+        GildedRose shop = new GildedRose(Inventories.copy(items));
+        AtomicIntegerArray seen = new AtomicIntegerArray(items.size());
+
+        long total;
+        try (ItemCursor cursor = shop.cursor()) {
+            total = cursor.stream(256, true).mapToLong(batch -> {
+                long sum = 0;
+                int[] quality = batch.qualities();
+                for (int j = 0; j < batch.size(); j++) {
+                    seen.incrementAndGet(batch.start() + j);
+                    sum += quality[j];
+                }
+                return sum;
+            }).sum();
+        }
+
+        assertThat(total).isEqualTo(items.stream().mapToLong(item -> item.quality).sum());
+        for (int i = 0; i < items.size(); i++) {
+            assertThat(seen.get(i)).isEqualTo(1);
+        }
+    }
+
+    @Test
+    public void splitsFallOnBatchBoundaries() {
+        GildedRose shop = new GildedRose(Inventories.random(1_000, 2));
+        try (ItemCursor cursor = shop.cursor()) {
+            Spliterator<ItemBatch> suffix = cursor.spliterator(64);
+            assertThat(suffix.estimateSize()).isEqualTo(16);
+            assertThat(suffix.hasCharacteristics(Spliterator.SUBSIZED)).isTrue();
+
+            Spliterator<ItemBatch> prefix = suffix.trySplit();
+            assertThat(prefix.estimateSize()).isEqualTo(8);
+            assertThat(suffix.estimateSize()).isEqualTo(8);
+
+            int[] starts = new int[2];
+            prefix.forEachRemaining(batch -> starts[0] = batch.start());
+            suffix.tryAdvance(batch -> starts[1] = batch.start());
+            assertThat(starts).containsExactly(448, 512);
+        }
+        try (ItemCursor cursor = new GildedRose(Inventories.random(10, 2)).cursor()) {
+            assertThat(cursor.spliterator(64).trySplit()).isNull();
+        }
+    }
+
+    @Test
+    public void storesWithoutSnapshotsAreReadLive() throws Exception {
+        List<Item> items = Inventories.random(3_000, 8);
+        try (MappedInventory file = MappedInventory.create(folder.newFile().toPath(), items)) {
+            GildedRose shop = new GildedRose(file, Parallelism.SEQUENTIAL);
+            shop.updateQuality();
+            try (ItemCursor cursor = shop.cursor()) {
+                assertThat(drain(cursor, 1_000, 0).toString()).isEqualTo(shop.getItems().toString());
+            }
+        }
+    }
+
+    @Test
+    public void closedCursorReadsNoMore() {
+        ItemCursor cursor = new GildedRose(Inventories.random(10, 1)).cursor();
+        cursor.close();
+        assertThatThrownBy(() -> cursor.next(new ItemBatch(4))).isInstanceOf(IllegalStateException.class);
+        assertThatThrownBy(() -> new ItemBatch(0)).isInstanceOf(IllegalArgumentException.class);
+    }
+}
@@ -0,0 +1,102 @@
+package com.gildedrose;
+
+import org.junit.Test;
+
+import java.util.Arrays;
+import java.util.List;
+import java.util.function.Predicate;
+import java.util.stream.IntStream;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+public class ItemIndexTest {
+
+    private static int[] scan(GildedRose shop, Predicate<Item> filter) {
+        List<Item> items = shop.getItems();
+        return IntStream.range(0, items.size()).filter(i -> filter.test(items.get(i))).toArray();
+    }
+
+    private static int[] sorted(int[] rows) {
+        Arrays.sort(rows);
+        return rows;
+    }
+
+    @Test
+    public void answersOperatorQueries() {
+        GildedRose shop = new GildedRose(Arrays.asList(
+                new Item("+5 Dexterity Vest", 10, 20),
+                new Item(GildedRose.AGED_BRIE, 2, 0),
+                new Item(GildedRose.BACKSTAGE_PASSES, 15, 20),
+                new Item(GildedRose.BACKSTAGE_PASSES, 5, 49),
+                new Item(GildedRose.SULFURAS, -1, 80),
+                new Item(GildedRose.CONJURED, 3, 6)
+        ));
+        ItemIndex index = shop.index();
+
+        assertThat(sorted(index.sellInBetween(0, 5))).containsExactly(1, 3, 5);
+        assertThat(sorted(index.qualityBetween(Integer.MIN_VALUE, 9))).containsExactly(1, 5);
+        assertThat(index.sellInBetween(BuiltInRule.BACKSTAGE_PASSES, Integer.MIN_VALUE, 5)).containsExactly(3);
+
+        shop.advance(10);
+
+        assertThat(sorted(index.sellInBetween(0, 5))).containsExactly(0, 2);
+        assertThat(sorted(index.qualityBetween(Integer.MIN_VALUE, 9))).containsExactly(3, 5);
+        assertThat(sorted(index.sellInBetween(BuiltInRule.BACKSTAGE_PASSES, Integer.MIN_VALUE, 5)))
+                .containsExactly(2, 3);
+        assertThat(index.sellInBetween(BuiltInRule.SULFURAS, -1, -1)).containsExactly(4);
+        assertThat(index.qualityBetween(BuiltInRule.SULFURAS, 51, 100)).containsExactly(4);
+    }
+
+    @Test
+    public void staysCurrentAcrossRollovers() {
+        GildedRose shop = new GildedRose(Inventories.random(20_000, 14));
+        ItemIndex index = shop.index();
+
+        for (int day = 0; day < 40; day++) {
+            for (int bound = -12; bound <= 52; bound += 8) {
+                int low = bound;
+                int high = bound + 5;
+                assertThat(sorted(index.sellInBetween(low, high)))
+                        .isEqualTo(scan(shop, item -> item.sellIn >= low && item.sellIn <= high));
+                assertThat(sorted(index.qualityBetween(low, high)))
+                        .isEqualTo(scan(shop, item -> item.quality >= low && item.quality <= high));
+                assertThat(sorted(index.qualityBetween(BuiltInRule.BACKSTAGE_PASSES, low, high)))
+                        .isEqualTo(scan(shop, item -> item.name.equals(GildedRose.BACKSTAGE_PASSES)
+                                && item.quality >= low && item.quality <= high));
+            }
+            if (day % 3 == 0) {
+                shop.advance(day % 5);
+            } else {
+                shop.updateQuality();
+            }
+        }
+    }
+
+    @Test
+    public void indexesCustomRules() {
+        QualityRule keepsForever = new QualityRule() {
+            @Override
+            public int age(int sellIn, int quality) {
+                return quality;
+            }
+
+            @Override
+            public boolean agesSellIn() {
+                return false;
+            }
+        };
+        RuleBook rules = RuleBook.STANDARD.withPrefixRule("Heirloom ", keepsForever);
+        GildedRose shop = new GildedRose(Arrays.asList(
+                new Item("Heirloom Ring", 3, 30),
+                new Item("Elixir of the Mongoose", 3, 30)
+        ), rules, Parallelism.SEQUENTIAL);
+        ItemIndex index = shop.index();
+
+        shop.advance(5);
+
+        assertThat(index.category(keepsForever)).containsExactly(0);
+        assertThat(index.sellInBetween(3, 3)).containsExactly(0);
+        assertThat(index.qualityBetween(keepsForever, 30, 30)).containsExactly(0);
+        assertThat(index.qualityBetween(20, 29)).containsExactly(1);
+    }
+}
@@ -0,0 +1,103 @@
+package com.gildedrose;
+
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+import java.io.IOException;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.List;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+
+public class MappedInventoryTest {
+
+    @Rule
+    public final TemporaryFolder folder = new TemporaryFolder();
+
+    private static void assertSameItems(List<Item> actual, List<Item> expected) {
+        assertThat(actual).hasSameSizeAs(expected);
+        for (int i = 0; i < expected.size(); i++) {
+            assertThat(actual.get(i)).isEqualToComparingFieldByField(expected.get(i));
+        }
+    }
+
+    @Test
+    public void updatesInPlaceAndPersists() throws IOException {
+        Path file = folder.getRoot().toPath().resolve("stock.grif");
+        List<Item> items = Inventories.random(10_000, 5);
+        GildedRose expected = new GildedRose(items);
+
+        try (MappedInventory mapped = MappedInventory.create(file, items, NameTable.SHARED, RuleBook.STANDARD, 1_000)) {
+            GildedRose shop = new GildedRose(mapped, Parallelism.SEQUENTIAL);
+            for (int day = 0; day < 5; day++) {
+                shop.updateQuality();
+                expected.updateQuality();
+            }
+            mapped.force();
+        }
+
+        try (MappedInventory mapped = MappedInventory.open(file, NameTable.SHARED, RuleBook.STANDARD, 3_333)) {
+            GildedRose shop = new GildedRose(mapped, Parallelism.SEQUENTIAL);
+            assertSameItems(shop.getItems(), expected.getItems());
+
+            shop.advance(20);
+            expected.advance(20);
+            assertSameItems(shop.getItems(), expected.getItems());
+        }
+    }
+
+    @Test
+    public void createsEmptyInventory() throws IOException {
+        Path file = folder.getRoot().toPath().resolve("empty.grif");
+
+        MappedInventory.create(file, List.of()).close();
+
+        try (MappedInventory mapped = MappedInventory.open(file)) {
+            assertThat(mapped.size()).isZero();
+        }
+    }
+
+    @Test
+    public void rejectsOtherFiles() throws IOException {
+        Path file = folder.newFile("other.grif").toPath();
+        Files.write(file, new byte[64]);
+
+        assertThatThrownBy(() -> MappedInventory.open(file))
+                .isInstanceOf(IOException.class)
+                .hasMessageContaining("Not an inventory file");
+    }
+
+    @Test
+    public void rejectsTruncatedFilesWithoutGrowingThem() throws IOException {
+        Path file = folder.getRoot().toPath().resolve("stock.grif");
+        MappedInventory.create(file, Inventories.random(1_000, 6)).close();
+        try (FileChannel channel = FileChannel.open(file, StandardOpenOption.WRITE)) {
+            channel.truncate(channel.size() - 100);
+        }
+        long size = Files.size(file);
+
+        assertThatThrownBy(() -> MappedInventory.open(file))
+                .isInstanceOf(IOException.class)
+                .hasMessageContaining("Truncated inventory file");
+        assertThat(Files.size(file)).isEqualTo(size);
+    }
+
+    @Test
+    public void segmentsMustFitInOneMapping() throws IOException {
+        Path file = folder.getRoot().toPath().resolve("stock.grif");
+        List<Item> items = Inventories.random(10, 7);
+        try (MappedInventory mapped = MappedInventory.create(file, items, NameTable.SHARED, RuleBook.STANDARD,
+                MappedInventory.MAX_SEGMENT_ITEMS)) {
+            assertThat(mapped.asList().toString()).isEqualTo(items.toString());
+        }
+        assertThatThrownBy(() -> MappedInventory.open(file, NameTable.SHARED, RuleBook.STANDARD, Integer.MAX_VALUE))
+                .isInstanceOf(IllegalArgumentException.class);
+        assertThatThrownBy(() -> MappedInventory.open(file, NameTable.SHARED, RuleBook.STANDARD, 0))
+                .isInstanceOf(IllegalArgumentException.class);
+    }
+}
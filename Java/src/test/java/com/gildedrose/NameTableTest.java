@@ -0,0 +1,31 @@
+package com.gildedrose;
+
+import org.junit.Test;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+public class NameTableTest {
+
+    @Test
+    public void internsEachNameOnce() {
+        NameTable names = new NameTable();
+
+        int vest = names.intern("+5 Dexterity Vest");
+        int brie = names.intern(GildedRose.AGED_BRIE);
+
+        assertThat(names.intern(new String("+5 Dexterity Vest"))).isEqualTo(vest);
+        assertThat(names.intern(GildedRose.AGED_BRIE)).isEqualTo(brie);
+        assertThat(names.size()).isEqualTo(2);
+        assertThat(names.name(vest)).isEqualTo("+5 Dexterity Vest");
+    }
+
+    @Test
+    public void growsPastInitialCapacity() {
+        NameTable names = new NameTable();
+
+        for (int i = 0; i < 100; i++) {
+            assertThat(names.intern("Item " + i)).isEqualTo(i);
+        }
+        assertThat(names.name(99)).isEqualTo("Item 99");
+    }
+}
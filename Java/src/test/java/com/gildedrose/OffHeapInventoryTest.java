@@ -0,0 +1,59 @@
+package com.gildedrose;
+
+import org.junit.Test;
+
+import java.util.List;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+
+public class OffHeapInventoryTest {
+
+    @Test
+    public void agesLikeTheOriginalRules() {
+        List<Item> items = Inventories.random(10_000, 31);
+        List<Item> expected = Inventories.copy(items);
+
+        try (OffHeapInventory inventory = new OffHeapInventory(items, NameTable.SHARED, RuleBook.STANDARD, 999)) {
+            GildedRose shop = new GildedRose(inventory, Parallelism.SEQUENTIAL);
+            for (int day = 0; day < 10; day++) {
+                shop.updateQuality();
+                Inventories.updateQuality(expected);
+            }
+            shop.advance(15);
+            for (int day = 0; day < 15; day++) {
+                Inventories.updateQuality(expected);
+            }
+
+            List<Item> actual = shop.getItems();
+            assertThat(actual).hasSameSizeAs(expected);
+            for (int i = 0; i < expected.size(); i++) {
+                assertThat(actual.get(i)).isEqualToComparingFieldByField(expected.get(i));
+            }
+        }
+    }
+
+    @Test
+    public void cannotBeUsedOnceClosed() {
+        OffHeapInventory inventory = new OffHeapInventory(Inventories.random(10, 32));
+        inventory.close();
+        inventory.close();
+
+        assertThatThrownBy(() -> inventory.quality(0)).isInstanceOf(IllegalStateException.class);
+        assertThatThrownBy(() -> inventory.updateQuality(Parallelism.SEQUENTIAL))
+                .isInstanceOf(IllegalStateException.class);
+    }
+
+    @Test
+    public void segmentsMustFitInOneBuffer() {
+        List<Item> items = Inventories.random(10, 33);
+        try (OffHeapInventory inventory = new OffHeapInventory(items, NameTable.SHARED, RuleBook.STANDARD,
+                OffHeapInventory.MAX_SEGMENT_ITEMS)) {
+            assertThat(inventory.asList().toString()).isEqualTo(items.toString());
+        }
+        assertThatThrownBy(() -> new OffHeapInventory(items, NameTable.SHARED, RuleBook.STANDARD, Integer.MAX_VALUE))
+                .isInstanceOf(IllegalArgumentException.class);
+        assertThatThrownBy(() -> new OffHeapInventory(items, NameTable.SHARED, RuleBook.STANDARD, 0))
+                .isInstanceOf(IllegalArgumentException.class);
+    }
+}
@@ -0,0 +1,75 @@
+package com.gildedrose;
+
+import org.junit.AfterClass;
+import org.junit.Test;
+
+import java.util.concurrent.ForkJoinPool;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+
+public class ParallelismTest {
+
+    private static final ForkJoinPool POOL = new ForkJoinPool(4);
+
+    @AfterClass
+    public static void shutdownPool() {
+        POOL.shutdown();
+    }
+
+    private static void assertSameItems(GildedRose actual, GildedRose expected) {
+        assertThat(actual.getItems().toString()).isEqualTo(expected.getItems().toString());
+    }
+
+    @Test
+    public void parallelUpdateMatchesSequential() {
+        GildedRose sequential = new GildedRose(Inventories.random(100_000, 42));
+        GildedRose parallel = new GildedRose(Inventories.random(100_000, 42), Parallelism.of(POOL, 1_000));
+
+        for (int day = 0; day < 30; day++) {
+            sequential.updateQuality();
+            parallel.updateQuality();
+        }
+
+        assertSameItems(parallel, sequential);
+    }
+
+    @Test
+    public void parallelismCanBeChosenPerCall() {
+        GildedRose sequential = new GildedRose(Inventories.random(10_000, 7));
+        GildedRose mixed = new GildedRose(Inventories.random(10_000, 7));
+
+        for (int day = 0; day < 10; day++) {
+            sequential.updateQuality();
+            mixed.updateQuality(day % 2 == 0 ? Parallelism.of(POOL, 100) : Parallelism.SEQUENTIAL);
+        }
+
+        assertSameItems(mixed, sequential);
+    }
+
+    @Test
+    public void parallelAdvanceMatchesSequential() {
+        GildedRose sequential = new GildedRose(Inventories.random(50_000, 3));
+        GildedRose parallel = new GildedRose(Inventories.random(50_000, 3), Parallelism.of(POOL, 500));
+
+        sequential.advance(25);
+        parallel.advance(25);
+
+        assertSameItems(parallel, sequential);
+    }
+
+    @Test
+    public void smallInventoriesStayOnCallingThread() {
+        Thread caller = Thread.currentThread();
+        Parallelism.of(POOL, 100).run(99, (from, to) -> {
+            assertThat(Thread.currentThread()).isSameAs(caller);
+            assertThat(from).isZero();
+            assertThat(to).isEqualTo(99);
+        });
+    }
+
+    @Test
+    public void rejectsNonPositiveThreshold() {
+        assertThatThrownBy(() -> Parallelism.of(POOL, 0)).isInstanceOf(IllegalArgumentException.class);
+    }
+}
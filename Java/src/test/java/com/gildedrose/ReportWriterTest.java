@@ -0,0 +1,73 @@
+package com.gildedrose;
+
+import org.junit.Test;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.PrintStream;
+import java.nio.channels.Channels;
+import java.nio.charset.Charset;
+import java.util.Arrays;
+import java.util.List;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+public class ReportWriterTest {
+
+    private static byte[] printed(List<Item> items) {
+        ByteArrayOutputStream out = new ByteArrayOutputStream();
+        try (PrintStream printStream = new PrintStream(out)) {
+            for (int day = 0; day < 3; day++) {
+                printStream.println("-------- day " + day + " --------");
+                printStream.println("name, sellIn, quality");
+                for (Item item : items) {
+                    printStream.println(item);
+                }
+                printStream.println();
+            }
+        }
+        return out.toByteArray();
+    }
+
+    private static byte[] written(ReportWriter report, ByteArrayOutputStream out, GildedRose shop) throws IOException {
+        for (int day = 0; day < 3; day++) {
+            report.dayHeader(day).items(shop).newLine();
+        }
+        report.flush();
+        return out.toByteArray();
+    }
+
+    @Test
+    public void matchesPrintStreamOutput() throws IOException {
+        List<Item> items = Inventories.random(10_000, 11);
+        ByteArrayOutputStream out = new ByteArrayOutputStream();
+
+        byte[] bytes = written(new ReportWriter(out), out, new GildedRose(items));
+
+        assertThat(bytes).isEqualTo(printed(items));
+    }
+
+    @Test
+    public void matchesPrintStreamOutputThroughSmallChannelBuffer() throws IOException {
+        List<Item> items = Inventories.random(1_000, 12);
+        ByteArrayOutputStream out = new ByteArrayOutputStream();
+
+        byte[] bytes = written(new ReportWriter(Channels.newChannel(out), 16, Charset.defaultCharset()), out, new GildedRose(items));
+
+        assertThat(bytes).isEqualTo(printed(items));
+    }
+
+    @Test
+    public void formatsExtremeNumbers() throws IOException {
+        List<Item> items = Arrays.asList(
+                new Item("Extremes", Integer.MIN_VALUE, Integer.MAX_VALUE),
+                new Item("Extremes", -1, 0),
+                new Item("Ünïcödé", 1_000_000_000, -999)
+        );
+        ByteArrayOutputStream out = new ByteArrayOutputStream();
+
+        byte[] bytes = written(new ReportWriter(out), out, new GildedRose(items));
+
+        assertThat(bytes).isEqualTo(printed(items));
+    }
+}
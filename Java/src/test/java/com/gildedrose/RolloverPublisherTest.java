@@ -0,0 +1,280 @@
+package com.gildedrose;
+
+import org.junit.Test;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Flow;
+import java.util.concurrent.TimeUnit;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+
+public class RolloverPublisherTest {
+
+    /**
+     * Records every event, requesting {@code initial} up front and one more
+     * per event once {@link #unthrottle()} has been called.
+     */
+    private static final class Recorder implements Flow.Subscriber<RolloverEvent> {
+        final List<String> events = new ArrayList<>();
+
+        final List<List<Item>> days = new ArrayList<>();
+
+        final CountDownLatch completed = new CountDownLatch(1);
+
+        private final long initial;
+
+        private List<Item> current = new ArrayList<>();
+
+        private Flow.Subscription subscription;
+
+        Recorder(long initial) {
+            this.initial = initial;
+        }
+
+        @Override
+        public void onSubscribe(Flow.Subscription subscription) {
+            this.subscription = subscription;
+            subscription.request(initial);
+        }
+
+        @Override
+        public synchronized void onNext(RolloverEvent event) {
+            events.add(event.toString());
+            if (event.isDayCompleted()) {
+                days.add(current);
+                current = new ArrayList<>();
+            } else {
+                assertThat(event.batch().start()).isEqualTo(current.size());
+                current.addAll(event.items());
+            }
+        }
+
+        void unthrottle() {
+            subscription.request(Long.MAX_VALUE);
+        }
+
+        @Override
+        public void onError(Throwable throwable) {
+            throwable.printStackTrace();
+        }
+
+        @Override
+        public void onComplete() {
+            completed.countDown();
+        }
+    }
+
+    /**
+     * An inventory that counts every read of its rows.
+     */
+    private static final class CountingStore implements ItemStore {
+        private final Inventory inventory;
+
+        int reads;
+
+        CountingStore(Inventory inventory) {
+            this.inventory = inventory;
+        }
+
+        @Override
+        public int size() {
+            return inventory.size();
+        }
+
+        @Override
+        public NameTable names() {
+            return inventory.names();
+        }
+
+        @Override
+        public int nameId(int index) {
+            reads++;
+            return inventory.nameId(index);
+        }
+
+        @Override
+        public int sellIn(int index) {
+            reads++;
+            return inventory.sellIn(index);
+        }
+
+        @Override
+        public int quality(int index) {
+            reads++;
+            return inventory.quality(index);
+        }
+
+        @Override
+        public void updateQuality(Parallelism parallelism) {
+            inventory.updateQuality(parallelism);
+        }
+
+        @Override
+        public void setMetrics(UpdateMetrics metrics) {
+            inventory.setMetrics(metrics);
+        }
+
+        @Override
+        public void advance(int days, Parallelism parallelism) {
+            inventory.advance(days, parallelism);
+        }
+    }
+
+    @Test
+    public void publishesEachDayInBatchesThenCompletion() throws Exception {
+        List<Item> items = Inventories.random(250, 4);
+        GildedRose shop = new GildedRose(Inventories.copy(items));
+        Recorder recorder = new Recorder(Long.MAX_VALUE);
+
+        try (RolloverPublisher publisher = new RolloverPublisher(shop, 100, Runnable::run, 16)) {
+            publisher.subscribe(recorder);
+            publisher.run(3);
+            publisher.advance(5);
+            assertThat(publisher.day()).isEqualTo(8);
+        }
+        assertThat(recorder.completed.await(10, TimeUnit.SECONDS)).isTrue();
+
+        assertThat(recorder.events.subList(0, 4)).containsExactly(
+                "day 1 rows 0..100", "day 1 rows 100..200", "day 1 rows 200..250", "day 1 completed");
+        assertThat(recorder.days).hasSize(4);
+        for (int day = 0; day < 3; day++) {
+            Inventories.updateQuality(items);
+            assertThat(recorder.days.get(day).toString()).isEqualTo(items.toString());
+        }
+        assertThat(recorder.days.get(3).toString()).isEqualTo(shop.getItems().toString());
+    }
+
+    @Test
+    public void slowSubscriberHoldsBackTheSimulation() throws Exception {
+        GildedRose shop = new GildedRose(Inventories.random(1_000, 6));
+        Recorder recorder = new Recorder(1);
+        ExecutorService executor = Executors.newSingleThreadExecutor();
+
+        try (RolloverPublisher publisher = new RolloverPublisher(shop, 100, executor, 4)) {
+            publisher.subscribe(recorder);
+            Thread simulation = new Thread(() -> publisher.run(50));
+            simulation.start();
+
+            simulation.join(300);
+            assertThat(simulation.isAlive()).isTrue();
+            assertThat(publisher.day()).isEqualTo(1);
+
+            recorder.unthrottle();
+            simulation.join(10_000);
+            assertThat(simulation.isAlive()).isFalse();
+            assertThat(publisher.day()).isEqualTo(50);
+        } finally {
+            executor.shutdown();
+        }
+        assertThat(recorder.completed.await(10, TimeUnit.SECONDS)).isTrue();
+        synchronized (recorder) {
+            assertThat(recorder.days).hasSize(50);
+            assertThat(recorder.days.get(49).toString()).isEqualTo(shop.getItems().toString());
+        }
+    }
+
+    @Test
+    public void lateSubscribersStartAtTheNextDay() throws Exception {
+        GildedRose shop = new GildedRose(Inventories.random(1_000, 8));
+        Recorder slow = new Recorder(1);
+        Recorder late = new Recorder(Long.MAX_VALUE);
+        ExecutorService executor = Executors.newFixedThreadPool(2);
+
+        try (RolloverPublisher publisher = new RolloverPublisher(shop, 100, executor, 4)) {
+            publisher.subscribe(slow);
+            Thread simulation = new Thread(() -> publisher.run(3));
+            simulation.start();
+            simulation.join(300);
+            assertThat(simulation.isAlive()).isTrue();
+
+            Thread subscriber = new Thread(() -> publisher.subscribe(late));
+            subscriber.start();
+            subscriber.join(300);
+            assertThat(subscriber.isAlive()).isTrue();
+
+            slow.unthrottle();
+            subscriber.join(10_000);
+            simulation.join(10_000);
+            assertThat(simulation.isAlive()).isFalse();
+            publisher.updateQuality();
+        } finally {
+            executor.shutdown();
+        }
+        assertThat(late.completed.await(10, TimeUnit.SECONDS)).isTrue();
+        synchronized (late) {
+            assertThat(late.events).isNotEmpty();
+            assertThat(late.events.get(0)).endsWith("rows 0..100");
+            assertThat(late.days).allSatisfy(day -> assertThat(day).hasSize(1_000));
+            assertThat(late.days.get(late.days.size() - 1).toString()).isEqualTo(shop.getItems().toString());
+        }
+    }
+
+    @Test
+    public void closingWaitsForTheDayBeingPublished() throws Exception {
+        GildedRose shop = new GildedRose(Inventories.random(1_000, 9));
+        Recorder recorder = new Recorder(1);
+        ExecutorService executor = Executors.newSingleThreadExecutor();
+        RolloverPublisher publisher = new RolloverPublisher(shop, 100, executor, 4);
+        List<Throwable> failures = new ArrayList<>();
+
+        try {
+            publisher.subscribe(recorder);
+            Thread simulation = new Thread(() -> publisher.run(50));
+            simulation.setUncaughtExceptionHandler((thread, e) -> failures.add(e));
+            simulation.start();
+            simulation.join(300);
+
+            Thread closer = new Thread(publisher::close);
+            closer.start();
+            closer.join(300);
+            assertThat(closer.isAlive()).isTrue();
+
+            recorder.unthrottle();
+            closer.join(10_000);
+            simulation.join(10_000);
+            assertThat(simulation.isAlive()).isFalse();
+        } finally {
+            executor.shutdown();
+        }
+        assertThat(failures).isEmpty();
+        assertThat(recorder.completed.await(10, TimeUnit.SECONDS)).isTrue();
+        synchronized (recorder) {
+            assertThat(recorder.days).hasSize(publisher.day());
+            assertThat(recorder.days.get(recorder.days.size() - 1).toString())
+                    .isEqualTo(shop.getItems().toString());
+        }
+    }
+
+    @Test
+    public void nothingIsReadWithoutSubscribers() {
+        CountingStore store = new CountingStore(new Inventory(Inventories.random(10, 1)));
+        GildedRose shop = new GildedRose(store, Parallelism.SEQUENTIAL);
+        try (RolloverPublisher publisher = new RolloverPublisher(shop, 100, Runnable::run, 16)) {
+            publisher.run(2);
+            assertThat(publisher.day()).isEqualTo(2);
+            assertThat(store.reads).isZero();
+
+            publisher.subscribe(new Recorder(Long.MAX_VALUE));
+            publisher.updateQuality();
+            assertThat(store.reads).isPositive();
+        }
+    }
+
+    @Test
+    public void closedPublisherLeavesTheShopAlone() {
+        List<Item> items = Inventories.random(10, 2);
+        GildedRose shop = new GildedRose(Inventories.copy(items));
+        RolloverPublisher publisher = new RolloverPublisher(shop);
+        publisher.close();
+
+        assertThatThrownBy(publisher::updateQuality).isInstanceOf(IllegalStateException.class);
+        assertThatThrownBy(() -> publisher.advance(3)).isInstanceOf(IllegalStateException.class);
+        assertThat(publisher.day()).isZero();
+        assertThat(shop.getItems().toString()).isEqualTo(items.toString());
+    }
+}
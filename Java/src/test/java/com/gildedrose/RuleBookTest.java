@@ -0,0 +1,117 @@
+package com.gildedrose;
+
+import org.junit.Test;
+
+import java.util.Arrays;
+import java.util.List;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+import static org.assertj.core.api.Assertions.tuple;
+
+public class RuleBookTest {
+
+    /**
+     * Gains one quality a day, twice as fast once past its sell-in, up to 50.
+     */
+    private static final QualityRule FINE_WINE = new QualityRule() {
+        @Override
+        public int age(int sellIn, int quality) {
+            return Math.min(50, quality + (sellIn <= 0 ? 2 : 1));
+        }
+
+        @Override
+        public boolean isSettled(int sellIn, int quality) {
+            return quality >= 50;
+        }
+    };
+
+    private static final QualityRule HEIRLOOM = new QualityRule() {
+        @Override
+        public int age(int sellIn, int quality) {
+            return quality;
+        }
+
+        @Override
+        public boolean agesSellIn() {
+            return false;
+        }
+    };
+
+    @Test
+    public void standardBookResolvesBuiltInRules() {
+        RuleBook rules = RuleBook.STANDARD;
+
+        assertThat(rules.kindOf("Elixir of the Mongoose")).isEqualTo(ItemKind.NORMAL);
+        assertThat(rules.kindOf(GildedRose.AGED_BRIE)).isEqualTo(ItemKind.AGED_BRIE);
+        assertThat(rules.kindOf(GildedRose.BACKSTAGE_PASSES)).isEqualTo(ItemKind.BACKSTAGE_PASSES);
+        assertThat(rules.kindOf(GildedRose.SULFURAS)).isEqualTo(ItemKind.SULFURAS);
+        assertThat(rules.kindOf(GildedRose.CONJURED)).isEqualTo(ItemKind.CONJURED);
+        assertThat(rules.kindOf("Conjured Sword")).isEqualTo(ItemKind.CONJURED);
+        assertThat(rules.rule(ItemKind.BACKSTAGE_PASSES)).isSameAs(BuiltInRule.BACKSTAGE_PASSES);
+    }
+
+    @Test
+    public void exactNamesWinOverPrefixesAndLongerPrefixesWin() {
+        RuleBook rules = RuleBook.STANDARD
+                .withPrefixRule("Conjured Wine", FINE_WINE)
+                .withRule("Conjured Wine of Ages", HEIRLOOM);
+
+        assertThat(rules.rule(rules.kindOf("Conjured Wine, 1999"))).isSameAs(FINE_WINE);
+        assertThat(rules.rule(rules.kindOf("Conjured Wine of Ages"))).isSameAs(HEIRLOOM);
+        assertThat(rules.kindOf("Conjured Mana Cake")).isEqualTo(ItemKind.CONJURED);
+    }
+
+    @Test
+    public void extendingABookLeavesItUnchanged() {
+        RuleBook extended = RuleBook.STANDARD.withRule("Fine Wine", FINE_WINE);
+
+        assertThat(extended.kindOf("Fine Wine")).isGreaterThanOrEqualTo(ItemKind.FIRST_CUSTOM);
+        assertThat(RuleBook.STANDARD.kindOf("Fine Wine")).isEqualTo(ItemKind.NORMAL);
+    }
+
+    @Test
+    public void shopAgesItemsWithAddedRules() {
+        RuleBook rules = RuleBook.STANDARD
+                .withRule("Fine Wine", FINE_WINE)
+                .withRule("Grandmother's Ring", HEIRLOOM);
+        List<Item> items = Arrays.asList(
+                new Item("Fine Wine", 2, 44),
+                new Item("Grandmother's Ring", 3, 30),
+                new Item("Conjured Sword", 1, 10),
+                new Item(GildedRose.AGED_BRIE, 1, 10)
+        );
+
+        GildedRose daily = new GildedRose(items, rules, Parallelism.SEQUENTIAL);
+        for (int day = 0; day < 4; day++) {
+            daily.updateQuality();
+        }
+        GildedRose advanced = new GildedRose(items, rules, Parallelism.SEQUENTIAL);
+        advanced.advance(4);
+
+        for (GildedRose shop : Arrays.asList(daily, advanced)) {
+            assertThat(shop.getItems())
+                    .extracting("name", "sellIn", "quality")
+                    .containsExactly(
+                            tuple("Fine Wine", -2, 50),
+                            tuple("Grandmother's Ring", 3, 30),
+                            tuple("Conjured Sword", -3, 0),
+                            tuple(GildedRose.AGED_BRIE, -3, 17));
+        }
+    }
+
+    @Test
+    public void rejectsMoreThanTwoHundredAndFiftySixRules() {
+        RuleBook rules = RuleBook.STANDARD;
+        for (int i = ItemKind.FIRST_CUSTOM; i < 256; i++) {
+            int bonus = i;
+            rules = rules.withRule("Rule " + i, (sellIn, quality) -> quality + bonus);
+        }
+        RuleBook full = rules;
+
+        assertThat(full.rule(full.kindOf("Rule 255")).age(0, 0)).isEqualTo(255);
+        assertThat(full.withRule("Rule 255 again", full.rule(full.kindOf("Rule 255")))).isNotNull();
+        assertThatThrownBy(() -> full.withRule("One too many", (sellIn, quality) -> -quality))
+                .isInstanceOf(IllegalStateException.class);
+    }
+}
@@ -0,0 +1,226 @@
+package com.gildedrose;
+
+import org.junit.After;
+import org.junit.Test;
+
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.net.InetAddress;
+import java.net.InetSocketAddress;
+import java.net.ServerSocket;
+import java.net.Socket;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+
+public class ShardCoordinatorTest {
+
+    private final List<ShardWorker> workers = new ArrayList<>();
+
+    private List<InetSocketAddress> startWorkers(int count) throws IOException {
+        List<InetSocketAddress> addresses = new ArrayList<>();
+        for (int i = 0; i < count; i++) {
+            ShardWorker worker = ShardWorker.start(0, Parallelism.SEQUENTIAL);
+            workers.add(worker);
+            addresses.add(worker.address());
+        }
+        return addresses;
+    }
+
+    @After
+    public void stopWorkers() throws IOException {
+        for (ShardWorker worker : workers) {
+            worker.close();
+        }
+    }
+
+    private static long totalQuality(List<Item> items) {
+        long total = 0;
+        for (Item item : items) {
+            total += item.quality;
+        }
+        return total;
+    }
+
+    @Test
+    public void shardsAdvanceLikeOneShop() throws IOException {
+        List<Item> items = Inventories.random(40_000, 19);
+        List<Item> expected = Inventories.copy(items);
+
+        try (ShardCoordinator coordinator = ShardCoordinator.connect(startWorkers(4),
+                ShardCoordinator.Partitioning.BY_ID)) {
+            coordinator.load(items);
+            assertThat(coordinator.size()).isEqualTo(40_000);
+            for (int s = 0; s < 4; s++) {
+                assertThat(coordinator.shardSize(s)).isBetween(9_000, 11_000);
+            }
+
+            for (int day = 1; day <= 12; day++) {
+                coordinator.updateQuality();
+                Inventories.updateQuality(expected);
+            }
+
+            assertThat(coordinator.day()).isEqualTo(12);
+            assertThat(coordinator.getItems().toString()).isEqualTo(expected.toString());
+            StockSummary summary = coordinator.summary();
+            assertThat(summary.count()).isEqualTo(40_000);
+            assertThat(summary.totalQuality()).isEqualTo(totalQuality(expected));
+        }
+    }
+
+    @Test
+    public void partitionsByCategory() throws IOException {
+        List<Item> items = Inventories.random(5_000, 20);
+
+        try (ShardCoordinator coordinator = ShardCoordinator.connect(startWorkers(5),
+                ShardCoordinator.Partitioning.BY_CATEGORY)) {
+            coordinator.load(items);
+            coordinator.advance(7);
+
+            StockSummary summary = coordinator.summary();
+            for (int s = 0; s < 5; s++) {
+                assertThat((long) coordinator.shardSize(s)).isEqualTo(summary.count(s));
+            }
+            List<Item> expected = Inventories.copy(items);
+            for (int day = 0; day < 7; day++) {
+                Inventories.updateQuality(expected);
+            }
+            assertThat(coordinator.getItems().toString()).isEqualTo(expected.toString());
+        }
+    }
+
+    @Test
+    public void aRefusingShardAbortsTheRollover() throws IOException {
+        List<InetSocketAddress> addresses = startWorkers(2);
+        List<Item> items = Inventories.random(1_000, 21);
+
+        try (ShardCoordinator coordinator = ShardCoordinator.connect(addresses,
+                ShardCoordinator.Partitioning.BY_ID)) {
+            coordinator.load(items);
+
+            // another coordinator moves the first shard on behind this one's back
+            try (ShardCoordinator other = ShardCoordinator.connect(Collections.singletonList(addresses.get(0)),
+                    ShardCoordinator.Partitioning.BY_ID)) {
+                other.advance(1);
+            }
+
+            assertThatThrownBy(coordinator::updateQuality)
+                    .isInstanceOf(IllegalStateException.class)
+                    .hasMessageContaining("shard 0: shard is on day 1, not 0");
+            assertThat(coordinator.day()).isZero();
+
+            List<Item> current = coordinator.getItems();
+            for (int id = 0; id < items.size(); id++) {
+                if (ShardCoordinator.Partitioning.BY_ID.shard(id, items.get(id).name, 2) == 1) {
+                    assertThat(current.get(id).toString()).isEqualTo(items.get(id).toString());
+                }
+            }
+        }
+    }
+
+    @Test
+    public void aFailingShardLeavesTheOthersInStep() throws IOException {
+        List<InetSocketAddress> addresses = startWorkers(2);
+        List<Item> items = Inventories.random(1_000, 23);
+
+        // only the second shard holds stock, so the first fails to summarise
+        try (ShardCoordinator other = ShardCoordinator.connect(Collections.singletonList(addresses.get(1)),
+                ShardCoordinator.Partitioning.BY_ID)) {
+            other.load(items);
+        }
+
+        try (ShardCoordinator coordinator = ShardCoordinator.connect(addresses,
+                ShardCoordinator.Partitioning.BY_ID)) {
+            assertThatThrownBy(coordinator::summary)
+                    .isInstanceOf(IllegalStateException.class)
+                    .hasMessageContaining("shard 0: No stock is loaded");
+
+            coordinator.load(items);
+            coordinator.advance(2);
+            List<Item> expected = Inventories.copy(items);
+            for (int day = 0; day < 2; day++) {
+                Inventories.updateQuality(expected);
+            }
+            assertThat(coordinator.getItems().toString()).isEqualTo(expected.toString());
+        }
+    }
+
+    @Test
+    public void aBadRequestLeavesTheConnectionInStep() throws IOException {
+        InetSocketAddress address = startWorkers(1).get(0);
+        try (Socket socket = new Socket(address.getAddress(), address.getPort())) {
+            DataOutputStream out = new DataOutputStream(socket.getOutputStream());
+            DataInputStream in = new DataInputStream(socket.getInputStream());
+
+            out.writeByte(ShardProtocol.LOAD);
+            out.writeInt(1);
+            ShardProtocol.writeString(out, "+5 Dexterity Vest");
+            out.writeInt(3);
+            for (int i = 0; i < 3; i++) {
+                out.writeInt(i);
+                out.writeInt(10);
+                out.writeInt(20);
+            }
+            out.writeByte(ShardProtocol.ABORT);
+            out.flush();
+
+            assertThat(in.readByte()).isEqualTo(ShardProtocol.FAILED);
+            assertThat(ShardProtocol.readString(in)).isEqualTo("Row 1 names entry 1 of 1");
+            assertThat(in.readByte()).isEqualTo(ShardProtocol.OK);
+            assertThat(in.readInt()).isZero();
+        }
+    }
+
+    @Test
+    public void aLostShardStopsTheCoordinator() throws IOException {
+        List<InetSocketAddress> addresses = startWorkers(1);
+        try (ServerSocket hangUp = new ServerSocket(0, 1, InetAddress.getLoopbackAddress())) {
+            addresses.add((InetSocketAddress) hangUp.getLocalSocketAddress());
+            try (ShardCoordinator coordinator = ShardCoordinator.connect(addresses,
+                    ShardCoordinator.Partitioning.BY_ID)) {
+                hangUp.accept().close();
+
+                assertThatThrownBy(() -> coordinator.load(Inventories.random(100, 24)))
+                        .isInstanceOf(IOException.class);
+                assertThatThrownBy(coordinator::summary)
+                        .isInstanceOf(IllegalStateException.class)
+                        .hasMessageContaining("Coordinator stopped: lost a shard");
+            }
+        }
+    }
+
+    @Test
+    public void workersRunInTheirOwnProcesses() throws IOException {
+        List<Process> processes = new ArrayList<>();
+        try {
+            List<InetSocketAddress> addresses = new ArrayList<>();
+            for (int i = 0; i < 2; i++) {
+                Process process = ShardWorker.launch();
+                processes.add(process);
+                addresses.add(ShardWorker.addressOf(process));
+            }
+
+            List<Item> items = Inventories.random(2_000, 22);
+            try (ShardCoordinator coordinator = ShardCoordinator.connect(addresses,
+                    ShardCoordinator.Partitioning.BY_ID)) {
+                coordinator.load(items);
+                coordinator.advance(3);
+
+                List<Item> expected = Inventories.copy(items);
+                for (int day = 0; day < 3; day++) {
+                    Inventories.updateQuality(expected);
+                }
+                assertThat(coordinator.getItems().toString()).isEqualTo(expected.toString());
+            }
+        } finally {
+            for (Process process : processes) {
+                process.getOutputStream().close();
+                process.destroy();
+            }
+        }
+    }
+}
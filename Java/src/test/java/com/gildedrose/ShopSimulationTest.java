@@ -0,0 +1,135 @@
+package com.gildedrose;
+
+import org.junit.After;
+import org.junit.Test;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+
+public class ShopSimulationTest {
+
+    private final ExecutorService executor = Executors.newFixedThreadPool(4);
+
+    @After
+    public void shutdownExecutor() {
+        executor.shutdownNow();
+    }
+
+    @Test
+    public void rollsEveryShopOver() throws InterruptedException {
+        List<List<Item>> expected = new ArrayList<>();
+        List<GildedRose> shops = new ArrayList<>();
+        ShopSimulation simulation = new ShopSimulation(executor, 3, 500);
+        for (int i = 0; i < 1_000; i++) {
+            List<Item> items = Inventories.random(i % 50, i);
+            expected.add(Inventories.copy(items));
+            shops.add(new GildedRose(items));
+            simulation.register("shop-" + i, shops.get(i));
+        }
+
+        Set<String> completed = ConcurrentHashMap.newKeySet();
+        AtomicInteger lastProgress = new AtomicInteger();
+        ShopSimulation.Listener listener = new ShopSimulation.Listener() {
+            @Override
+            public void shopCompleted(String id, GildedRose shop) {
+                completed.add(id);
+            }
+
+            @Override
+            public void progress(int shopsCompleted, int shopsTotal) {
+                assertThat(shopsTotal).isEqualTo(1_000);
+                lastProgress.accumulateAndGet(shopsCompleted, Math::max);
+            }
+        };
+
+        simulation.rollover(1, listener);
+        simulation.rollover(6, ShopSimulation.Listener.NONE);
+
+        assertThat(completed).hasSize(1_000);
+        assertThat(lastProgress.get()).isEqualTo(1_000);
+        for (int i = 0; i < expected.size(); i++) {
+            for (int day = 0; day < 7; day++) {
+                Inventories.updateQuality(expected.get(i));
+            }
+            List<Item> actual = shops.get(i).getItems();
+            for (int j = 0; j < actual.size(); j++) {
+                assertThat(actual.get(j)).isEqualToComparingFieldByField(expected.get(i).get(j));
+            }
+        }
+    }
+
+    @Test
+    public void reportsFailedShopsAfterFinishingTheRest() throws InterruptedException {
+        OffHeapInventory closed = new OffHeapInventory(Inventories.random(5, 42));
+        closed.close();
+        GildedRose healthy = new GildedRose(Inventories.random(5, 43));
+        List<Item> expected = Inventories.copy(healthy.getItems());
+        ShopSimulation simulation = new ShopSimulation(executor, 2, 1);
+        simulation.register("broken", new GildedRose(closed, Parallelism.SEQUENTIAL));
+        simulation.register("healthy", healthy);
+
+        assertThatThrownBy(() -> simulation.rollover(1, ShopSimulation.Listener.NONE))
+                .isInstanceOf(IllegalStateException.class)
+                .hasMessageContaining("broken");
+
+        Inventories.updateQuality(expected);
+        assertThat(healthy.getItems().get(0)).isEqualToComparingFieldByField(expected.get(0));
+    }
+
+    @Test
+    public void failingListenerDoesNotSkipTheRestOfItsBatch() {
+        GildedRose first = new GildedRose(Inventories.random(5, 45));
+        GildedRose second = new GildedRose(Inventories.random(5, 46));
+        List<Item> expected = Inventories.copy(second.getItems());
+        ShopSimulation simulation = new ShopSimulation(executor, 2, 1_000);
+        simulation.register("first", first);
+        simulation.register("second", second);
+        ShopSimulation.Listener listener = new ShopSimulation.Listener() {
+            @Override
+            public void shopCompleted(String id, GildedRose shop) {
+                if (id.equals("first")) {
+                    throw new AssertionError("listener failed");
+                }
+            }
+        };
+
+        assertThatThrownBy(() -> simulation.rollover(1, listener))
+                .isInstanceOf(IllegalStateException.class)
+                .hasMessageContaining("first")
+                .hasRootCauseInstanceOf(AssertionError.class);
+
+        Inventories.updateQuality(expected);
+        assertThat(second.getItems().toString()).isEqualTo(expected.toString());
+    }
+
+    @Test
+    public void rejectedBatchesFailTheRolloverWithoutHanging() {
+        executor.shutdown();
+        ShopSimulation simulation = new ShopSimulation(executor, 1, 1);
+        for (int i = 0; i < 3; i++) {
+            simulation.register("shop-" + i, new GildedRose(Inventories.random(5, 47 + i)));
+        }
+
+        assertThatThrownBy(() -> simulation.rollover(1, ShopSimulation.Listener.NONE))
+                .isInstanceOf(IllegalStateException.class)
+                .hasMessageContaining("shop-0")
+                .hasCauseInstanceOf(RejectedExecutionException.class);
+    }
+
+    @Test
+    public void defaultExecutorRunsAndCloses() throws InterruptedException {
+        try (ShopSimulation simulation = new ShopSimulation()) {
+            simulation.register("fixture", new GildedRose(Inventories.random(9, 44)));
+            simulation.rollover(2, ShopSimulation.Listener.NONE);
+        }
+    }
+}
@@ -0,0 +1,91 @@
+package com.gildedrose;
+
+import org.junit.Test;
+
+import java.util.List;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+
+public class StockAggregatesTest {
+
+    private static void assertMatches(StockAggregates aggregates, List<Item> items) {
+        RuleBook.Resolver resolver = RuleBook.STANDARD.resolver();
+        long[] counts = new long[UpdateMetrics.CATEGORIES];
+        long[] quality = new long[UpdateMetrics.CATEGORIES];
+        long[] atZero = new long[UpdateMetrics.CATEGORIES];
+        long[] atMax = new long[UpdateMetrics.CATEGORIES];
+        long[][] histogram = new long[UpdateMetrics.CATEGORIES][3];
+        for (Item item : items) {
+            int c = UpdateMetrics.category(resolver.kindOf(NameTable.SHARED.intern(item.name), item.name));
+            counts[c]++;
+            quality[c] += item.quality;
+            atZero[c] += item.quality == 0 ? 1 : 0;
+            atMax[c] += item.quality == 50 ? 1 : 0;
+            histogram[c][item.sellIn < 0 ? 0 : item.sellIn < 10 ? 1 : 2]++;
+        }
+        for (int c = 0; c < UpdateMetrics.CATEGORIES; c++) {
+            assertThat(aggregates.count(c)).isEqualTo(counts[c]);
+            assertThat(aggregates.totalQuality(c)).isEqualTo(quality[c]);
+            assertThat(aggregates.atZero(c)).isEqualTo(atZero[c]);
+            assertThat(aggregates.atMax(c)).isEqualTo(atMax[c]);
+            assertThat(aggregates.expired(c)).isEqualTo(histogram[c][0]);
+            assertThat(aggregates.sellInBetween(c, 0, 9)).isEqualTo(histogram[c][1]);
+            assertThat(aggregates.expiryHistogram(c, 0, 10)).containsExactly(histogram[c]);
+        }
+    }
+
+    @Test
+    public void aggregatesFollowEveryRollover() {
+        List<Item> expected = Inventories.random(10_000, 25);
+        GildedRose shop = new GildedRose(Inventories.copy(expected), Parallelism.common());
+        StockAggregates aggregates = shop.aggregates();
+        assertMatches(aggregates, expected);
+
+        for (int day = 1; day <= 40; day++) {
+            shop.updateQuality();
+            Inventories.updateQuality(expected);
+            assertMatches(aggregates, expected);
+        }
+        shop.advance(12);
+        for (int day = 0; day < 12; day++) {
+            Inventories.updateQuality(expected);
+        }
+        assertMatches(aggregates, expected);
+    }
+
+    @Test
+    public void aggregatesMatchWithMetricsCounting() {
+        List<Item> expected = Inventories.random(3_000, 26);
+        GildedRose shop = new GildedRose(Inventories.copy(expected));
+        shop.enableMetrics();
+        StockAggregates aggregates = shop.aggregates();
+
+        for (int day = 1; day <= 20; day++) {
+            shop.updateQuality();
+            Inventories.updateQuality(expected);
+        }
+        assertMatches(aggregates, expected);
+    }
+
+    @Test
+    public void abortedRolloverLeavesTotalsAlone() {
+        List<Item> items = Inventories.random(1_000, 27);
+        Inventory inventory = new Inventory(Inventories.copy(items));
+        StockAggregates aggregates = inventory.aggregates();
+
+        inventory.prepare(3, Parallelism.SEQUENTIAL).abort();
+        assertMatches(aggregates, items);
+        inventory.prepare(1, Parallelism.SEQUENTIAL).commit();
+        Inventories.updateQuality(items);
+        assertMatches(aggregates, items);
+    }
+
+    @Test
+    public void histogramBoundsMustAscend() {
+        StockAggregates aggregates = new GildedRose(Inventories.random(10, 1)).aggregates();
+        assertThatThrownBy(() -> aggregates.expiryHistogram(0, 5, 1))
+                .isInstanceOf(IllegalArgumentException.class);
+        assertThat(aggregates.sellInBetween(0, 5, 1)).isZero();
+    }
+}
@@ -0,0 +1,200 @@
+package com.gildedrose;
+
+import org.junit.Test;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+public class TieredInventoryTest {
+
+    private static List<Item> drain(ItemCursor cursor) {
+        List<Item> items = new ArrayList<>();
+        ItemBatch batch = new ItemBatch(100);
+        while (cursor.next(batch)) {
+            for (int j = 0; j < batch.size(); j++) {
+                items.add(new Item(batch.name(j), batch.sellIn(j), batch.quality(j)));
+            }
+        }
+        return items;
+    }
+
+    private static long processed(UpdateMetrics metrics) {
+        return metrics.getItemsProcessed().values().stream().mapToLong(Long::longValue).sum();
+    }
+
+    private static int[] sorted(int[] rows) {
+        Arrays.sort(rows);
+        return rows;
+    }
+
+    /**
+     * Writes down every change reported, whatever the batches.
+     */
+    private static final class Changes implements DeltaSink {
+        final List<String> changes = new ArrayList<>();
+
+        @Override
+        public void dayAdvanced(int day, int days) {
+            changes.add("day " + day + " after " + days);
+        }
+
+        @Override
+        public void accept(DeltaBatch batch) {
+            for (int j = 0; j < batch.size(); j++) {
+                changes.add(batch.id(j) + ": " + batch.oldQuality(j) + " -> " + batch.newQuality(j)
+                        + " at " + batch.sellIn(j));
+            }
+        }
+
+        @Override
+        public void dayCompleted(int day) {
+            changes.add("completed " + day);
+        }
+    }
+
+    @Test
+    public void settledItemsMoveToTheColdTierAndStayVisible() {
+        List<Item> expected = Inventories.random(5_000, 17);
+        TieredInventory tiered = new TieredInventory(Inventories.copy(expected), NameTable.SHARED, RuleBook.STANDARD, 100);
+        GildedRose shop = new GildedRose(tiered, Parallelism.common());
+        int coldAtStart = tiered.coldSize();
+
+        for (int day = 1; day <= 60; day++) {
+            shop.updateQuality();
+            Inventories.updateQuality(expected);
+            if (day % 10 == 0) {
+                assertThat(shop.getItems().toString()).isEqualTo(expected.toString());
+            }
+        }
+        shop.advance(15);
+        for (int day = 0; day < 15; day++) {
+            Inventories.updateQuality(expected);
+        }
+
+        assertThat(tiered.day()).isEqualTo(75);
+        assertThat(tiered.coldSize()).isGreaterThan(coldAtStart);
+        assertThat(tiered.hotSize() + tiered.coldSize()).isEqualTo(expected.size());
+        assertThat(tiered.coldBytes()).isLessThan(8L * tiered.coldSize());
+        assertThat(shop.getItems().toString()).isEqualTo(expected.toString());
+        try (ItemCursor cursor = shop.cursor()) {
+            assertThat(drain(cursor).toString()).isEqualTo(expected.toString());
+        }
+    }
+
+    @Test
+    public void coldSellInKeepsCountingDown() {
+        List<Item> items = new ArrayList<>();
+        items.add(new Item("+5 Dexterity Vest", -3, 0));
+        items.add(new Item(GildedRose.SULFURAS, -1, 80));
+        items.add(new Item("Elixir of the Mongoose", 1, 1));
+        items.add(new Item(GildedRose.BACKSTAGE_PASSES, 0, 30));
+        TieredInventory tiered = new TieredInventory(items, NameTable.SHARED, RuleBook.STANDARD, 1);
+        assertThat(tiered.hotSize()).isEqualTo(2);
+
+        tiered.updateQuality(Parallelism.SEQUENTIAL);
+        assertThat(tiered.hotSize()).isZero();
+        tiered.advance(4, Parallelism.SEQUENTIAL);
+
+        assertThat(tiered.asList()).extracting(Item::toString).containsExactly(
+                "+5 Dexterity Vest, -8, 0",
+                "Sulfuras, Hand of Ragnaros, -1, 80",
+                "Elixir of the Mongoose, -4, 0",
+                "Backstage passes to a TAFKAL80ETC concert, -5, 0");
+    }
+
+    @Test
+    public void queriesAndChangesCoverBothTiers() {
+        List<Item> items = Inventories.random(5_000, 18);
+        GildedRose plain = new GildedRose(Inventories.copy(items));
+        TieredInventory tiered = new TieredInventory(Inventories.copy(items), NameTable.SHARED, RuleBook.STANDARD, 100);
+        GildedRose shop = new GildedRose(tiered, Parallelism.SEQUENTIAL);
+        int coldAtStart = tiered.coldSize();
+
+        ItemIndex expectedIndex = plain.index();
+        ItemIndex index = shop.index();
+        StockAggregates expectedAggregates = plain.aggregates();
+        StockAggregates aggregates = shop.aggregates();
+        Changes expectedChanges = new Changes();
+        Changes changes = new Changes();
+        plain.setDeltaSink(expectedChanges, 100);
+        shop.setDeltaSink(changes, 64);
+
+        for (int day = 1; day <= 40; day++) {
+            if (day % 5 == 0) {
+                plain.advance(3);
+                shop.advance(3);
+            } else {
+                plain.updateQuality();
+                shop.updateQuality();
+            }
+
+            assertThat(sorted(index.sellInBetween(-3, 4))).isEqualTo(sorted(expectedIndex.sellInBetween(-3, 4)));
+            assertThat(sorted(index.qualityBetween(0, 10))).isEqualTo(sorted(expectedIndex.qualityBetween(0, 10)));
+            assertThat(sorted(index.qualityBetween(BuiltInRule.SULFURAS, 51, 100)))
+                    .isEqualTo(sorted(expectedIndex.qualityBetween(BuiltInRule.SULFURAS, 51, 100)));
+            for (int c = 0; c < UpdateMetrics.CATEGORIES; c++) {
+                assertThat(aggregates.totalQuality(c)).isEqualTo(expectedAggregates.totalQuality(c));
+                assertThat(aggregates.atZero(c)).isEqualTo(expectedAggregates.atZero(c));
+                assertThat(aggregates.atMax(c)).isEqualTo(expectedAggregates.atMax(c));
+                assertThat(aggregates.expiryHistogram(c, 0, 10))
+                        .containsExactly(expectedAggregates.expiryHistogram(c, 0, 10));
+            }
+        }
+
+        assertThat(tiered.coldSize()).isGreaterThan(coldAtStart);
+        assertThat(changes.changes).isEqualTo(expectedChanges.changes);
+    }
+
+    @Test
+    public void snapshotsHoldTheirDayAcrossSpills() {
+        List<Item> expected = Inventories.random(3_000, 19);
+        TieredInventory tiered = new TieredInventory(Inventories.copy(expected), NameTable.SHARED, RuleBook.STANDARD, 1);
+        GildedRose shop = new GildedRose(tiered, Parallelism.SEQUENTIAL);
+        shop.advance(5);
+        for (int day = 0; day < 5; day++) {
+            Inventories.updateQuality(expected);
+        }
+
+        try (InventorySnapshot snapshot = shop.snapshot(); ItemCursor cursor = shop.cursor()) {
+            int cold = tiered.coldSize();
+            shop.advance(30);
+            assertThat(tiered.coldSize()).isGreaterThan(cold);
+
+            assertThat(snapshot.day()).isEqualTo(5);
+            assertThat(snapshot.items().toString()).isEqualTo(expected.toString());
+            assertThat(drain(cursor).toString()).isEqualTo(expected.toString());
+        }
+    }
+
+    @Test
+    public void shopsTierOnRequest() {
+        List<Item> expected = Inventories.random(2_000, 20);
+        GildedRose shop = GildedRose.tiered(Inventories.copy(expected), Parallelism.SEQUENTIAL);
+        assertThat(shop.supports(ItemStore.Snapshots.class)).isTrue();
+        assertThat(shop.supports(ItemStore.Indexed.class)).isTrue();
+        assertThat(shop.supports(ItemStore.Aggregated.class)).isTrue();
+        assertThat(shop.supports(ItemStore.ChangeCapture.class)).isTrue();
+
+        shop.advance(20);
+        for (int day = 0; day < 20; day++) {
+            Inventories.updateQuality(expected);
+        }
+        assertThat(shop.getItems().toString()).isEqualTo(expected.toString());
+    }
+
+    @Test
+    public void metricsFollowTheRebuiltHotTier() {
+        TieredInventory tiered = new TieredInventory(Inventories.random(2_000, 9), NameTable.SHARED, RuleBook.STANDARD, 1);
+        UpdateMetrics metrics = new UpdateMetrics();
+        tiered.setMetrics(metrics);
+        tiered.advance(30, Parallelism.SEQUENTIAL);
+        int hot = tiered.hotSize();
+        long before = processed(metrics);
+
+        tiered.updateQuality(Parallelism.SEQUENTIAL);
+        assertThat(processed(metrics) - before).isEqualTo(hot);
+    }
+}
@@ -0,0 +1,102 @@
+package com.gildedrose;
+
+import org.junit.Test;
+
+import java.lang.management.ManagementFactory;
+import java.util.Arrays;
+import java.util.concurrent.ForkJoinPool;
+import javax.management.JMException;
+import javax.management.MBeanServer;
+import javax.management.ObjectName;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.entry;
+
+public class UpdateMetricsTest {
+
+    private static GildedRose fixtureShop() {
+        return new GildedRose(Arrays.asList(
+                new Item("Normal Item", 5, 1),
+                new Item(GildedRose.AGED_BRIE, 5, 49),
+                new Item(GildedRose.BACKSTAGE_PASSES, 0, 30),
+                new Item(GildedRose.SULFURAS, 0, 80),
+                new Item(GildedRose.CONJURED, 5, 10)
+        ));
+    }
+
+    @Test
+    public void countsItemsAndClampEvents() {
+        GildedRose shop = fixtureShop();
+        UpdateMetrics metrics = shop.enableMetrics();
+
+        shop.updateQuality();
+
+        assertThat(metrics.getRollovers()).isEqualTo(1);
+        assertThat(metrics.getLastRolloverItems()).isEqualTo(4);
+        assertThat(metrics.getLastRolloverNanos()).isPositive();
+        assertThat(metrics.getItemsProcessed()).contains(
+                entry("normal", 1L),
+                entry("agedBrie", 1L),
+                entry("backstagePasses", 1L),
+                entry("sulfuras", 0L),
+                entry("conjured", 1L));
+        assertThat(metrics.getQualityFloorEvents()).isEqualTo(1);
+        assertThat(metrics.getQualityCeilingEvents()).isEqualTo(1);
+        assertThat(metrics.getBackstageDropEvents()).isEqualTo(1);
+
+        // the three items that reached a fixed point are no longer visited
+        shop.updateQuality();
+        assertThat(metrics.getLastRolloverItems()).isEqualTo(1);
+        assertThat(metrics.getItemsProcessed()).containsEntry("conjured", 2L);
+    }
+
+    @Test
+    public void countsAcrossParallelWorkers() {
+        ForkJoinPool pool = new ForkJoinPool(4);
+        try {
+            GildedRose shop = new GildedRose(Inventories.random(100_000, 61), Parallelism.of(pool, 1_000));
+            GildedRose sequential = new GildedRose(Inventories.random(100_000, 61));
+            UpdateMetrics parallelMetrics = shop.enableMetrics();
+            UpdateMetrics sequentialMetrics = sequential.enableMetrics();
+
+            for (int day = 0; day < 5; day++) {
+                shop.updateQuality();
+                sequential.updateQuality();
+            }
+
+            assertThat(parallelMetrics.getItemsProcessed()).isEqualTo(sequentialMetrics.getItemsProcessed());
+            assertThat(parallelMetrics.getQualityFloorEvents()).isEqualTo(sequentialMetrics.getQualityFloorEvents());
+        } finally {
+            pool.shutdown();
+        }
+    }
+
+    @Test
+    public void disabledMetricsStopCounting() {
+        GildedRose shop = fixtureShop();
+        UpdateMetrics metrics = shop.enableMetrics();
+        assertThat(shop.enableMetrics()).isSameAs(metrics);
+
+        shop.disableMetrics();
+        shop.updateQuality();
+
+        assertThat(metrics.getRollovers()).isZero();
+    }
+
+    @Test
+    public void registersWithThePlatformMBeanServer() throws JMException {
+        GildedRose shop = fixtureShop();
+        UpdateMetrics metrics = shop.enableMetrics();
+        shop.advance(3);
+
+        ObjectName name = metrics.register("test-shop");
+        try {
+            MBeanServer server = ManagementFactory.getPlatformMBeanServer();
+            assertThat(server.getAttribute(name, "Rollovers")).isEqualTo(1L);
+            assertThat(server.getAttribute(name, "BackstageDropEvents")).isEqualTo(1L);
+        } finally {
+            metrics.unregister();
+        }
+        assertThat(ManagementFactory.getPlatformMBeanServer().isRegistered(name)).isFalse();
+    }
+}
@@ -0,0 +1,122 @@
+package com.gildedrose;
+
+import jdk.incubator.vector.IntVector;
+import jdk.incubator.vector.VectorMask;
+import jdk.incubator.vector.VectorOperators;
+import jdk.incubator.vector.VectorSpecies;
+
+/**
+ * The daily rules of {@link ItemKind} as masked lane arithmetic. Every kind's
+ * outcome is computed for every lane and the right one is blended in by kind,
+ * so a block costs the same whatever its mix of items. Blocks of consecutive
+ * rows are loaded and stored directly; blocks with gaps, left by settled rows,
+ * are copied through the scratch buffer. Kinds are always widened into the
+ * scratch buffer one lane at a time.
+ * <p>
+ * Every vector is loaded from a single call site, choosing only the array
+ * and offset, and no helpers or vector gathers are used: on JDK 17 C2 boxes
+ * vectors that merge across branches or cross a call that is not inlined,
+ * and the kernel then allocates on every block.
+ * <p>
+ * Each step mirrors the scalar code, including its {@code int} wrap-around, so
+ * results are bit-identical for any input.
+ */
+final class VectorDailyKernel implements DailyKernel {
+    private static final VectorSpecies<Integer> INTS = IntVector.SPECIES_PREFERRED;
+
+    private static final int MAX_QUALITY = 50;
+
+    VectorDailyKernel() {
+        if (INTS.length() < 8) {
+            throw new UnsupportedOperationException("Vectors of " + INTS.length() + " ints are too narrow");
+        }
+    }
+
+    @Override
+    public int lanes() {
+        return INTS.length();
+    }
+
+    @Override
+    public int age(byte[] kinds, int[] sellIn, int[] quality, int[] back, int[] active, int from, int day,
+                   int[] scratch) {
+        int lanes = INTS.length();
+        for (int lane = 0; lane < lanes; lane++) {
+            int kind = kinds[active[from + lane]] & 0xFF;
+            if (kind >= ItemKind.FIRST_CUSTOM) {
+                return UNSUPPORTED;
+            }
+            scratch[lane] = kind;
+        }
+
+        // scratch holds kinds, then sell-in anchors, qualities and results of gapped blocks
+        int first = active[from];
+        boolean consecutive = active[from + lanes - 1] - first == lanes - 1;
+        int[] anchors = sellIn;
+        int[] qualities = quality;
+        int[] out = back;
+        int anchorAt = first;
+        int qualityAt = first;
+        int outAt = first;
+        if (!consecutive) {
+            for (int lane = 0; lane < lanes; lane++) {
+                int i = active[from + lane];
+                scratch[lanes + lane] = sellIn[i];
+                scratch[2 * lanes + lane] = quality[i];
+            }
+            anchors = scratch;
+            qualities = scratch;
+            out = scratch;
+            anchorAt = lanes;
+            qualityAt = 2 * lanes;
+            outAt = 3 * lanes;
+        }
+
+        IntVector kind = IntVector.fromArray(INTS, scratch, 0);
+        IntVector anchor = IntVector.fromArray(INTS, anchors, anchorAt);
+        IntVector q = IntVector.fromArray(INTS, qualities, qualityAt);
+
+        VectorMask<Integer> sulfuras = kind.eq(ItemKind.SULFURAS);
+        VectorMask<Integer> agedBrie = kind.eq(ItemKind.AGED_BRIE);
+        VectorMask<Integer> backstagePasses = kind.eq(ItemKind.BACKSTAGE_PASSES);
+
+        // sell-in at the start of the day, and whether the day ends past it
+        IntVector s = anchor.sub(day, sulfuras.not());
+        IntVector next = s.sub(1);
+        VectorMask<Integer> expired = next.lt(0);
+
+        // conjured items lose a second point wherever others lose one
+        VectorMask<Integer> conjured = kind.eq(ItemKind.CONJURED);
+        VectorMask<Integer> losing = q.compare(VectorOperators.GT, 0);
+        IntVector degraded = q.sub(1, losing).sub(1, losing.and(conjured));
+        losing = expired.and(degraded.compare(VectorOperators.GT, 0));
+        degraded = degraded.sub(1, losing).sub(1, losing.and(conjured));
+
+        IntVector brie = q.add(1, q.lt(MAX_QUALITY));
+        brie = brie.add(1, expired.and(brie.lt(MAX_QUALITY)));
+
+        IntVector passes = q.add(1, q.lt(MAX_QUALITY));
+        passes = passes.add(1, s.lt(11).and(passes.lt(MAX_QUALITY)));
+        passes = passes.add(1, s.lt(6).and(passes.lt(MAX_QUALITY)));
+        passes = passes.blend(0, expired);
+
+        IntVector aged = degraded.blend(brie, agedBrie).blend(passes, backstagePasses).blend(q, sulfuras);
+        aged.intoArray(out, outAt);
+        if (!consecutive) {
+            for (int lane = 0; lane < lanes; lane++) {
+                back[active[from + lane]] = scratch[3 * lanes + lane];
+            }
+        }
+
+        VectorMask<Integer> others = agedBrie.or(backstagePasses).not();
+        VectorMask<Integer> settled = agedBrie.and(aged.compare(VectorOperators.GE, MAX_QUALITY))
+                .or(backstagePasses.and(next.compare(VectorOperators.LE, 0)).and(aged.eq(0)))
+                .or(others.and(sulfuras.or(aged.compare(VectorOperators.LE, 0))));
+        if (!settled.anyTrue()) {
+            return AGED;
+        }
+        IntVector rows = IntVector.fromArray(INTS, active, from);
+        rows.blend(rows.not(), settled).intoArray(active, from);
+        return SETTLED;
+    }
+}